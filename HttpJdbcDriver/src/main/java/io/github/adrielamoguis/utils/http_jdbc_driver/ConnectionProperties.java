@@ -0,0 +1,253 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver;
+
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.Protocol;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ResponseEncoding;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ResultFormat;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.TransactionMode;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ValidateOnConnect;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Typed view of the {@code Properties} passed to {@link HttpJdbcDriver#connect}.
+ * Unknown properties are ignored; malformed values fail the connect with an {@link SQLException}.
+ */
+public class ConnectionProperties {
+
+    public static final String USER = "user";
+    public static final String PASSWORD = "password";
+    public static final String DISABLE_SSL = "disableSSL";
+    public static final String PROTOCOL = "protocol";
+    public static final String VALIDATE_ON_CONNECT = "validateOnConnect";
+    public static final String VALIDATION_TTL_SECONDS = "validationTtlSeconds";
+    public static final String COMPRESSION = "compression";
+    public static final String COMPRESSION_THRESHOLD = "compressionThreshold";
+    public static final String STREAM_RESULTS = "streamResults";
+    public static final String RESULT_FORMAT = "resultFormat";
+    public static final String ENCODING = "encoding";
+    public static final String BATCH_MAX_BYTES = "batchMaxBytes";
+    public static final String REWRITE_BATCHED_INSERTS = "rewriteBatchedInserts";
+    public static final String PIPELINE_WRITES = "pipelineWrites";
+    public static final String TRANSACTION_MODE = "transactionMode";
+    public static final String TRANSACTION_LEASE_SECONDS = "transactionLeaseSeconds";
+    public static final String RESULT_CACHE_TTL_SECONDS = "resultCacheTtlSeconds";
+    public static final String RESULT_CACHE_STALE_SECONDS = "resultCacheStaleSeconds";
+    public static final String RESULT_CACHE_MAX_BYTES = "resultCacheMaxBytes";
+    public static final String SERVER_PREPARE = "serverPrepare";
+
+    public static final int DEFAULT_VALIDATION_TTL_SECONDS = 30;
+    /**
+     * Request bodies are sent uncompressed unless a threshold is set: a proxy that doesn't expect
+     * {@code Content-Encoding: gzip} may fail with something other than 415, which can't be told apart.
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = -1;
+    public static final int DEFAULT_BATCH_MAX_BYTES = 1024 * 1024;
+    public static final int DEFAULT_TRANSACTION_LEASE_SECONDS = 60;
+    public static final int DEFAULT_RESULT_CACHE_MAX_BYTES = 16 * 1024 * 1024;
+
+    private final String user;
+    private final String password;
+    private final boolean disableSSL;
+    private final Protocol protocol;
+    private final ValidateOnConnect validateOnConnect;
+    private final Duration validationTtl;
+    private final boolean compression;
+    private final int compressionThreshold;
+    private final boolean streamResults;
+    private final ResultFormat resultFormat;
+    private final ResponseEncoding encoding;
+    private final int batchMaxBytes;
+    private final boolean rewriteBatchedInserts;
+    private final boolean pipelineWrites;
+    private final TransactionMode transactionMode;
+    private final Duration transactionLease;
+    private final Duration resultCacheTtl;
+    private final Duration resultCacheStale;
+    private final int resultCacheMaxBytes;
+    private final boolean serverPrepare;
+
+    private ConnectionProperties(Properties info) throws SQLException {
+        this.user = info.getProperty(USER);
+        this.password = info.getProperty(PASSWORD);
+        this.disableSSL = Boolean.parseBoolean(info.getProperty(DISABLE_SSL, "false"));
+        try {
+            this.protocol = Protocol.fromProperty(info.getProperty(PROTOCOL, Protocol.HTTP_1_1.getPropertyValue()));
+            this.validateOnConnect = ValidateOnConnect.fromProperty(info.getProperty(VALIDATE_ON_CONNECT, "lazy"));
+            this.resultFormat = ResultFormat.fromProperty(info.getProperty(RESULT_FORMAT, ResultFormat.COLUMNAR.getPropertyValue()));
+            this.encoding = ResponseEncoding.fromProperty(info.getProperty(ENCODING, ResponseEncoding.JSON.getPropertyValue()));
+            this.transactionMode = TransactionMode.fromProperty(info.getProperty(TRANSACTION_MODE, "none"));
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+        this.validationTtl = Duration.ofSeconds(getInt(info, VALIDATION_TTL_SECONDS, DEFAULT_VALIDATION_TTL_SECONDS));
+        this.compression = Boolean.parseBoolean(info.getProperty(COMPRESSION, "true"));
+        this.compressionThreshold = getInt(info, COMPRESSION_THRESHOLD, DEFAULT_COMPRESSION_THRESHOLD);
+        this.streamResults = Boolean.parseBoolean(info.getProperty(STREAM_RESULTS, "false"));
+        this.batchMaxBytes = getInt(info, BATCH_MAX_BYTES, DEFAULT_BATCH_MAX_BYTES);
+        if (batchMaxBytes <= 0) {
+            throw new SQLException("Invalid value for '" + BATCH_MAX_BYTES + "': " + batchMaxBytes);
+        }
+        this.rewriteBatchedInserts = Boolean.parseBoolean(info.getProperty(REWRITE_BATCHED_INSERTS, "false"));
+        this.pipelineWrites = Boolean.parseBoolean(info.getProperty(PIPELINE_WRITES, "false"));
+        this.transactionLease = Duration.ofSeconds(getInt(info, TRANSACTION_LEASE_SECONDS, DEFAULT_TRANSACTION_LEASE_SECONDS));
+        this.resultCacheTtl = Duration.ofSeconds(getNonNegativeInt(info, RESULT_CACHE_TTL_SECONDS, 0));
+        this.resultCacheStale = Duration.ofSeconds(getNonNegativeInt(info, RESULT_CACHE_STALE_SECONDS, 0));
+        this.resultCacheMaxBytes = getNonNegativeInt(info, RESULT_CACHE_MAX_BYTES, DEFAULT_RESULT_CACHE_MAX_BYTES);
+        this.serverPrepare = Boolean.parseBoolean(info.getProperty(SERVER_PREPARE, "false"));
+    }
+
+    public static ConnectionProperties parse(Properties info) throws SQLException {
+        return new ConnectionProperties(info == null ? new Properties() : info);
+    }
+
+    /**
+     * Properties for a connection built without going through the driver, e.g. in tests.
+     */
+    public static ConnectionProperties defaults(boolean disableSSL) {
+        Properties info = new Properties();
+        info.setProperty(DISABLE_SSL, Boolean.toString(disableSSL));
+        try {
+            return parse(info);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int getInt(Properties info, String name, int defaultValue) throws SQLException {
+        String value = info.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new SQLException("Invalid value for '" + name + "': " + value, e);
+        }
+    }
+
+    private static int getNonNegativeInt(Properties info, String name, int defaultValue) throws SQLException {
+        int value = getInt(info, name, defaultValue);
+        if (value < 0) {
+            throw new SQLException("Invalid value for '" + name + "': " + value);
+        }
+        return value;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public boolean isDisableSSL() {
+        return disableSSL;
+    }
+
+    public Protocol getProtocol() {
+        return protocol;
+    }
+
+    public ValidateOnConnect getValidateOnConnect() {
+        return validateOnConnect;
+    }
+
+    public Duration getValidationTtl() {
+        return validationTtl;
+    }
+
+    /**
+     * @return whether compressed responses are requested with {@code Accept-Encoding}
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * @return request body size in bytes from which bodies are gzipped; negative disables request compression
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * @return whether query results are read row by row from the response instead of materialized
+     */
+    public boolean isStreamResults() {
+        return streamResults;
+    }
+
+    /**
+     * @return the result layout asked of the proxy
+     */
+    public ResultFormat getResultFormat() {
+        return resultFormat;
+    }
+
+    /**
+     * @return the response encoding preferred in the {@code Accept} header
+     */
+    public ResponseEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * @return request body size in bytes above which a JDBC batch is split over several requests
+     */
+    public int getBatchMaxBytes() {
+        return batchMaxBytes;
+    }
+
+    /**
+     * @return whether batches of simple single-row inserts are sent as multi-row inserts
+     */
+    public boolean isRewriteBatchedInserts() {
+        return rewriteBatchedInserts;
+    }
+
+    /**
+     * @return whether {@code executeUpdate} inside a transaction is deferred until the next sync point
+     */
+    public boolean isPipelineWrites() {
+        return pipelineWrites;
+    }
+
+    public TransactionMode getTransactionMode() {
+        return transactionMode;
+    }
+
+    /**
+     * @return how long the proxy keeps an idle transaction session open before rolling it back
+     */
+    public Duration getTransactionLease() {
+        return transactionLease;
+    }
+
+    /**
+     * @return how long a cached query result is served without asking the proxy; zero disables the cache
+     */
+    public Duration getResultCacheTtl() {
+        return resultCacheTtl;
+    }
+
+    /**
+     * @return how long past its TTL a cached result may still be served while it is refreshed in the background
+     */
+    public Duration getResultCacheStale() {
+        return resultCacheStale;
+    }
+
+    public int getResultCacheMaxBytes() {
+        return resultCacheMaxBytes;
+    }
+
+    /**
+     * @return whether prepared statements are registered with the proxy and later sent by handle only
+     */
+    public boolean isServerPrepare() {
+        return serverPrepare;
+    }
+}
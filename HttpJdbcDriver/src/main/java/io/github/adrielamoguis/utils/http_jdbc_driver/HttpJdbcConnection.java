@@ -1,19 +1,27 @@
 package io.github.adrielamoguis.utils.http_jdbc_driver;
 
-import io.github.adrielamoguis.utils.http_jdbc_driver.db.ProxyStatement;
 import io.github.adrielamoguis.utils.http_jdbc_driver.db.ProxyDatabaseMetaData;
 import io.github.adrielamoguis.utils.http_jdbc_driver.db.ProxyPreparedStatement;
 import io.github.adrielamoguis.utils.http_jdbc_driver.db.ProxyStatement;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ProxyTransport;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.SharedHttpClient;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.TransactionMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.net.http.HttpClient;
 import java.sql.*;
+import java.time.Duration;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Executor;
 
 public class HttpJdbcConnection implements Connection {
 
-    private final HttpClient httpClient;
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpJdbcConnection.class);
+
+    private final SharedHttpClient sharedClient;
+    private final ProxyTransport transport;
+    private final ConnectionProperties properties;
     private String endpoint;
     private final boolean disableSSL;
 
@@ -22,28 +30,45 @@ public class HttpJdbcConnection implements Connection {
     private boolean readOnly = false;
     private String catalog = "";
     private String schema = "";
+    private int transactionIsolation = Connection.TRANSACTION_READ_COMMITTED;
+
+    public HttpJdbcConnection(SharedHttpClient sharedClient, String endpoint, boolean disableSSL) {
+        this(sharedClient, endpoint, ConnectionProperties.defaults(disableSSL));
+    }
 
-    public HttpJdbcConnection(HttpClient httpClient, String endpoint, boolean disableSSL) {
-        this.httpClient = httpClient;
-        this.disableSSL = disableSSL;
+    /**
+     * @param sharedClient client leased from the driver's registry; released when this connection is closed
+     */
+    public HttpJdbcConnection(SharedHttpClient sharedClient, String endpoint, ConnectionProperties properties) {
+        this.sharedClient = sharedClient;
+        this.properties = properties;
+        this.disableSSL = properties.isDisableSSL();
 
         if(disableSSL) {
             this.endpoint = "http://" + endpoint.replace("https://", "");
         } else {
             this.endpoint = "https://" + endpoint.replace("http://", "");
         }
+        this.transport = new ProxyTransport(sharedClient, this.endpoint, properties);
+    }
+
+    /**
+     * @return the transport statements of this connection send through, including its in-flight counters
+     */
+    public ProxyTransport getTransport() {
+        return transport;
     }
 
     @Override
     public Statement createStatement() throws SQLException {
         checkClosed();
-        return new ProxyStatement(this, httpClient, endpoint);
+        return new ProxyStatement(this, transport);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql) throws SQLException {
         checkClosed();
-        return new ProxyPreparedStatement(this, httpClient, endpoint, sql);
+        return new ProxyPreparedStatement(this, transport, sql);
     }
 
     @Override
@@ -61,9 +86,35 @@ public class HttpJdbcConnection implements Connection {
     @Override
     public void setAutoCommit(boolean autoCommit) throws SQLException {
         checkClosed();
+        if (autoCommit == this.autoCommit) {
+            return;
+        }
+        if (autoCommit) {
+            // Switching auto-commit back on commits the current transaction
+            if (isSessionTransactions() && transport.isTransactionAborted()) {
+                // Nothing left to commit; leave transactions behind, but say the work was lost
+                transport.discardDeferred();
+                transport.endTransactions();
+                this.autoCommit = true;
+                throw new SQLException("The transaction session expired on the proxy and was rolled back",
+                        ProxyTransport.TRANSACTION_ABORTED_STATE);
+            }
+            if (isSessionTransactions()) {
+                transport.commitTransaction();
+                transport.endTransactions();
+            } else {
+                transport.flushDeferred();
+            }
+        } else if (isSessionTransactions()) {
+            transport.beginTransaction(isolationSql(transactionIsolation));
+        }
         this.autoCommit = autoCommit;
     }
 
+    private boolean isSessionTransactions() {
+        return properties.getTransactionMode() == TransactionMode.SESSION;
+    }
+
     @Override
     public boolean getAutoCommit() throws SQLException {
         checkClosed();
@@ -74,19 +125,65 @@ public class HttpJdbcConnection implements Connection {
     public void commit() throws SQLException {
         checkClosed();
         if (autoCommit) throw new SQLException("Cannot commit in auto-commit mode");
-        // No-op: proxy is stateless, or could be extended for transaction support
+        if (isSessionTransactions()) {
+            transport.commitTransaction();
+        } else {
+            transport.flushDeferred();
+        }
+    }
+
+    /**
+     * Sends any writes deferred by {@code pipelineWrites} or held by {@code transactionMode=buffered} now,
+     * reporting the first failure among them. Queries, batches and {@link #commit()} do this implicitly.
+     */
+    public void sync() throws SQLException {
+        checkClosed();
+        transport.flushDeferred();
+    }
+
+    /**
+     * @return whether {@code executeUpdate} should queue its request instead of sending it
+     */
+    public boolean isDeferringWrites() {
+        return (properties.isPipelineWrites() || isBufferedTransactions()) && !autoCommit && !closed;
+    }
+
+    /**
+     * @return whether batches are held with the other writes, so they commit together
+     */
+    public boolean isBufferedTransactions() {
+        return properties.getTransactionMode() == TransactionMode.BUFFERED;
     }
 
     @Override
     public void rollback() throws SQLException {
         checkClosed();
         if (autoCommit) throw new SQLException("Cannot rollback in auto-commit mode");
-        // No-op: proxy is stateless, or could be extended for transaction support
+        if (isSessionTransactions()) {
+            transport.rollbackTransaction();
+        } else {
+            // Writes still queued never reached the proxy
+            transport.discardDeferred();
+        }
     }
 
     @Override
     public void close() throws SQLException {
+        if (closed) return;
         closed = true;
+        // Like a rollback: deferred writes of an uncommitted transaction are dropped
+        transport.discardDeferred();
+        if (transport.isInTransaction()) {
+            try {
+                transport.rollbackTransaction();
+            } catch (SQLException e) {
+                // The proxy's lease will roll it back anyway
+                LOGGER.warn("Failed to roll back the open transaction on close: {}", e.getMessage());
+            }
+        }
+        transport.close();
+        // Only drops our reference; the sockets stay up while other connections share the client
+        sharedClient.release();
     }
 
     @Override
@@ -127,13 +224,39 @@ public class HttpJdbcConnection implements Connection {
     @Override
     public void setTransactionIsolation(int level) throws SQLException {
         checkClosed();
-        // No-op: proxy is stateless
+        String isolation = isolationSql(level);
+        if (!isSessionTransactions()) {
+            // Every statement auto-commits on the proxy, so there is nothing to isolate
+            return;
+        }
+        if (transport.isInTransaction()) {
+            throw new SQLException("Cannot change the transaction isolation level in the middle of a transaction");
+        }
+        transactionIsolation = level;
+        if (!autoCommit) {
+            transport.beginTransaction(isolation);
+        }
+    }
+
+    private static String isolationSql(int level) throws SQLException {
+        switch (level) {
+            case Connection.TRANSACTION_READ_UNCOMMITTED:
+                return "READ UNCOMMITTED";
+            case Connection.TRANSACTION_READ_COMMITTED:
+                return "READ COMMITTED";
+            case Connection.TRANSACTION_REPEATABLE_READ:
+                return "REPEATABLE READ";
+            case Connection.TRANSACTION_SERIALIZABLE:
+                return "SERIALIZABLE";
+            default:
+                throw new SQLException("Unsupported transaction isolation level: " + level);
+        }
     }
 
     @Override
     public int getTransactionIsolation() throws SQLException {
         checkClosed();
-        return Connection.TRANSACTION_NONE;
+        return isSessionTransactions() ? transactionIsolation : Connection.TRANSACTION_NONE;
     }
 
     @Override
@@ -256,7 +379,20 @@ public class HttpJdbcConnection implements Connection {
 
     @Override
     public boolean isValid(int timeout) throws SQLException {
-        return !closed;
+        if (timeout < 0) throw new SQLException("Timeout must not be negative");
+        if (closed) return false;
+        try {
+            // validateOnConnect only governs connect(); pools rely on this to evict connections to a dead proxy.
+            // Answered from the shared client's cache unless nobody reached the proxy within the TTL
+            transport.verify(properties.getValidationTtl(), Duration.ofSeconds(timeout));
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    public ConnectionProperties getProperties() {
+        return properties;
     }
 
     @Override
@@ -3,15 +3,21 @@ package io.github.adrielamoguis.utils.http_jdbc_driver;
 import java.net.Authenticator;
 import java.net.PasswordAuthentication;
 import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
 import java.sql.*;
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.Properties;
 
-import io.github.adrielamoguis.utils.http_jdbc_driver.dto.Request;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.BufferPool;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.HttpClientExecutors;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.HttpClientRegistry;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.Protocol;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ResponseEncoding;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ResultCache;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ResultFormat;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.SharedHttpClient;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ValidateOnConnect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,9 +33,27 @@ public class HttpJdbcDriver implements Driver {
 
     private static final String URL_PREFIX = "jdbc:http://";
 
-    private HttpClient httpClient;
+    /**
+     * Shared across every driver instance, since pools such as Hikari instantiate the driver class directly.
+     */
+    private static final HttpClientRegistry CLIENTS = new HttpClientRegistry();
+
+    /**
+     * @return the result cache shared by every connection of the driver, with its hit and miss counters
+     */
+    public static ResultCache getResultCache() {
+        return CLIENTS.getResultCache();
+    }
+
+    /**
+     * @return the byte chunks reused for request and response bodies, with their reuse counters
+     */
+    public static BufferPool getBufferPool() {
+        return CLIENTS.getBufferPool();
+    }
 
     static {
+        HttpClientRegistry.configureConnectionPool();
         try {
             DriverManager.registerDriver(new HttpJdbcDriver());
         } catch (SQLException e) {
@@ -82,48 +106,61 @@ public class HttpJdbcDriver implements Driver {
         // Attempt to establish an HTTP connection
         matcher.matches();
         String endpoint = matcher.group(1);
-        String username = info.getProperty("user");
-        String password = info.getProperty("password");
-        boolean disableSSL = Boolean.parseBoolean(info.getProperty("disableSSL", "false"));
+        ConnectionProperties properties = ConnectionProperties.parse(info);
+        String username = properties.getUser();
+        String password = properties.getPassword();
+        boolean disableSSL = properties.isDisableSSL();
+        Protocol protocol = properties.getProtocol();
         if(username == null || password == null) {
             throw new SQLException("Username and password must be provided in the properties");
         }
+        if (protocol == Protocol.H2C && !disableSSL) {
+            LOGGER.warn("protocol=h2c requested for a TLS endpoint; HTTP/2 will be negotiated through ALPN instead");
+        }
+        HttpClientRegistry.ClientKey key = new HttpClientRegistry.ClientKey(endpoint, username, password, disableSSL, protocol);
+        SharedHttpClient sharedClient;
         try {
-            HttpClient.Builder builder = HttpClient.newBuilder()
-                .version(HttpClient.Version.HTTP_1_1)
-                .authenticator(new Authenticator() {
-                    @Override
-                    protected PasswordAuthentication getPasswordAuthentication() {
-                        return new PasswordAuthentication(username, password.toCharArray());
-                    }
-                });
-
-            if (disableSSL) {
-                builder.sslContext(createTrustAllSSLContext());
-            }
-
-            httpClient = builder.build();
-            Request req = new Request("SELECT 1", new ArrayList<>());
-            ObjectMapper mapper = new ObjectMapper();
-            String jsonRequest = mapper.writeValueAsString(req);
+            sharedClient = CLIENTS.acquire(key, () -> buildHttpClient(username, password, disableSSL, protocol));
+        } catch (RuntimeException e) {
+            throw new SQLException("Failed to create HTTP client for " + endpoint, e.getCause() != null ? e.getCause() : e);
+        }
 
-            LOGGER.debug("Prepared test JSON request: {}", jsonRequest);
+        // Connections are cheap handles; with validateOnConnect=lazy the first statement surfaces connect errors
+        HttpJdbcConnection connection = new HttpJdbcConnection(sharedClient, endpoint, properties);
+        if (properties.getValidateOnConnect() == ValidateOnConnect.EAGER) {
+            try {
+                LOGGER.info("Attempting to connect to HTTP endpoint: {}", endpoint);
+                connection.getTransport().verify(properties.getValidationTtl(), Duration.ZERO);
+            } catch (SQLException e) {
+                connection.close();
+                throw new SQLException("Failed to connect to the database at " + endpoint, e);
+            }
+        }
+        return connection;
+    }
 
-            LOGGER.info("Attempting to connect to HTTP endpoint: {}", endpoint);
-            String endpointPrefix = disableSSL ? "https://" : "http://";
-            HttpRequest testRequest = HttpRequest.newBuilder()
-                .uri(java.net.URI.create(endpointPrefix + endpoint))
-                .POST(HttpRequest.BodyPublishers.ofString(jsonRequest))
-                .build();
+    private static HttpClient buildHttpClient(String username, String password, boolean disableSSL, Protocol protocol) {
+        // With HTTP_2 the JDK client multiplexes concurrent requests as streams over one connection
+        // per host, and falls back to HTTP/1.1 on its own if ALPN or the h2c upgrade is refused
+        HttpClient.Builder builder = HttpClient.newBuilder()
+            .version(protocol.getVersion())
+            .authenticator(new Authenticator() {
+                @Override
+                protected PasswordAuthentication getPasswordAuthentication() {
+                    return new PasswordAuthentication(username, password.toCharArray());
+                }
+            });
 
-            LOGGER.debug("Sending test request to endpoint: {}", testRequest.uri());
-            httpClient.send(testRequest, java.net.http.HttpResponse.BodyHandlers.ofString());
+        HttpClientExecutors.configure(builder);
 
-            // Simulate a successful connection (you would replace this with actual logic)
-            return new HttpJdbcConnection(httpClient, endpoint, disableSSL);
-        } catch(Exception e) {
-            throw new SQLException("Failed to connect to the database at " + endpoint, e);
+        if (disableSSL) {
+            try {
+                builder.sslContext(createTrustAllSSLContext());
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to create trust-all SSL context", e);
+            }
         }
+        return builder.build();
     }
 
     private static SSLContext createTrustAllSSLContext() throws Exception {
@@ -178,7 +215,7 @@ public class HttpJdbcDriver implements Driver {
      */
     @Override
     public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) throws SQLException {
-        DriverPropertyInfo[] propertyInfos = new DriverPropertyInfo[3];
+        DriverPropertyInfo[] propertyInfos = new DriverPropertyInfo[20];
 
         propertyInfos[0] = new DriverPropertyInfo("user", null);
         propertyInfos[0].description = "Database username";
@@ -192,6 +229,79 @@ public class HttpJdbcDriver implements Driver {
         propertyInfos[2].description = "Disable SSL verification (true/false)";
         propertyInfos[2].required = false;
 
+        propertyInfos[3] = new DriverPropertyInfo("protocol", Protocol.HTTP_1_1.getPropertyValue());
+        propertyInfos[3].description = "HTTP protocol used to reach the proxy (h2/h2c/http1.1)";
+        propertyInfos[3].required = false;
+        propertyInfos[3].choices = new String[] { "h2", "h2c", "http1.1" };
+
+        propertyInfos[4] = new DriverPropertyInfo("validateOnConnect", "lazy");
+        propertyInfos[4].description = "When to probe the proxy with SELECT 1 (none/lazy/eager)";
+        propertyInfos[4].required = false;
+        propertyInfos[4].choices = new String[] { "none", "lazy", "eager" };
+
+        propertyInfos[5] = new DriverPropertyInfo("validationTtlSeconds", String.valueOf(ConnectionProperties.DEFAULT_VALIDATION_TTL_SECONDS));
+        propertyInfos[5].description = "How long a successful probe or response is trusted per shared client";
+        propertyInfos[5].required = false;
+
+        propertyInfos[6] = new DriverPropertyInfo("compression", "true");
+        propertyInfos[6].description = "Accept gzip/deflate compressed responses (true/false)";
+        propertyInfos[6].required = false;
+
+        propertyInfos[7] = new DriverPropertyInfo("compressionThreshold", String.valueOf(ConnectionProperties.DEFAULT_COMPRESSION_THRESHOLD));
+        propertyInfos[7].description = "Gzip request bodies of at least this many bytes; negative disables request compression";
+        propertyInfos[7].required = false;
+
+        propertyInfos[8] = new DriverPropertyInfo("streamResults", "false");
+        propertyInfos[8].description = "Read query results row by row from the response instead of materializing them (true/false)";
+        propertyInfos[8].required = false;
+
+        propertyInfos[9] = new DriverPropertyInfo("resultFormat", ResultFormat.COLUMNAR.getPropertyValue());
+        propertyInfos[9].description = "Result layout asked of the proxy; the driver falls back to objects if columnar isn't offered (columnar/objects)";
+        propertyInfos[9].required = false;
+        propertyInfos[9].choices = new String[] { "columnar", "objects" };
+
+        propertyInfos[10] = new DriverPropertyInfo("encoding", ResponseEncoding.JSON.getPropertyValue());
+        propertyInfos[10].description = "Preferred response encoding; JSON is used if the proxy doesn't offer it (json/cbor/smile)";
+        propertyInfos[10].required = false;
+        propertyInfos[10].choices = new String[] { "json", "cbor", "smile" };
+
+        propertyInfos[11] = new DriverPropertyInfo("batchMaxBytes", String.valueOf(ConnectionProperties.DEFAULT_BATCH_MAX_BYTES));
+        propertyInfos[11].description = "Split JDBC batches into requests of at most this many bytes";
+        propertyInfos[11].required = false;
+
+        propertyInfos[12] = new DriverPropertyInfo("rewriteBatchedInserts", "false");
+        propertyInfos[12].description = "Send batches of INSERT ... VALUES (?, ...) as multi-row inserts (true/false)";
+        propertyInfos[12].required = false;
+
+        propertyInfos[13] = new DriverPropertyInfo("pipelineWrites", "false");
+        propertyInfos[13].description = "Defer executeUpdate inside a transaction and send the writes with the next query or commit (true/false)";
+        propertyInfos[13].required = false;
+
+        propertyInfos[14] = new DriverPropertyInfo("transactionMode", "none");
+        propertyInfos[14].description = "none: the proxy auto-commits every statement; session: setAutoCommit(false) opens a transaction on the proxy; buffered: writes are held and committed in one atomic request";
+        propertyInfos[14].required = false;
+        propertyInfos[14].choices = new String[] { "none", "session", "buffered" };
+
+        propertyInfos[15] = new DriverPropertyInfo("transactionLeaseSeconds", String.valueOf(ConnectionProperties.DEFAULT_TRANSACTION_LEASE_SECONDS));
+        propertyInfos[15].description = "Idle time after which the proxy rolls back a transaction session";
+        propertyInfos[15].required = false;
+
+        propertyInfos[16] = new DriverPropertyInfo("resultCacheTtlSeconds", "0");
+        propertyInfos[16].description = "Serve repeated auto-commit queries from a driver-wide cache for this many seconds; 0 disables it";
+        propertyInfos[16].required = false;
+
+        propertyInfos[17] = new DriverPropertyInfo("resultCacheStaleSeconds", "0");
+        propertyInfos[17].description = "Keep serving an expired cached result for this many seconds while it is refreshed in the background";
+        propertyInfos[17].required = false;
+
+        propertyInfos[18] = new DriverPropertyInfo("resultCacheMaxBytes", String.valueOf(ConnectionProperties.DEFAULT_RESULT_CACHE_MAX_BYTES));
+        propertyInfos[18].description = "Estimated size the result cache may hold before evicting the least recently used results";
+        propertyInfos[18].required = false;
+
+        propertyInfos[19] = new DriverPropertyInfo("serverPrepare", "false");
+        propertyInfos[19].description = "Register prepared statements with the proxy and send only their handle and parameters once registered (true/false)";
+        propertyInfos[19].required = false;
+
         return propertyInfos;
     }
 
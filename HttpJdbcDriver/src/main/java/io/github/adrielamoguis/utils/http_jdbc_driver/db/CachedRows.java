@@ -0,0 +1,46 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.CachedResult;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ProxyResponse;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * A result as the result cache stores it: the column vectors read from the response, trimmed and never
+ * modified again. Each result set served from the cache gets a cursor of its own over them.
+ */
+final class CachedRows implements CachedResult {
+
+    private final MaterializedRows rows;
+    private final long bytes;
+
+    private CachedRows(MaterializedRows rows) {
+        rows.trimToSize();
+        this.rows = rows;
+        this.bytes = rows.bytes();
+    }
+
+    /**
+     * Reads every row of a buffered response into the compact form the cache stores.
+     */
+    static CachedRows capture(ProxyResponse response) throws SQLException {
+        try {
+            return new CachedRows(MaterializedRows.read(JsonRowReader.of(response.createParser())));
+        } catch (IOException e) {
+            throw new SQLException("Failed to parse " + response.getEncoding() + " for ResultSet", e);
+        }
+    }
+
+    /**
+     * @return a fresh cursor over the rows, positioned before the first
+     */
+    RowCursor open() {
+        return rows.reopen();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Column label to position table for one result shape, built once rather than consulted per row.
+ * A label matches exactly first, then ignoring case as JDBC requires; where several columns share a
+ * label, the first of them wins.
+ */
+final class ColumnIndex {
+
+    private final int size;
+    private final Map<String, Integer> exact;
+    private final Map<String, Integer> folded;
+
+    ColumnIndex(List<String> columns) {
+        this.size = columns.size();
+        int capacity = size * 4 / 3 + 1;
+        this.exact = new HashMap<>(capacity);
+        this.folded = new HashMap<>(capacity);
+        for (int i = 0; i < size; i++) {
+            String column = columns.get(i);
+            exact.putIfAbsent(column, i);
+            folded.putIfAbsent(column.toLowerCase(Locale.ROOT), i);
+        }
+    }
+
+    /**
+     * @return how many columns the table covers; a stream that discovers more needs a new table
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the 0-based position of {@code label}, or -1 if no column has it
+     */
+    int indexOf(String label) {
+        Integer index = exact.get(label);
+        if (index == null && label != null) {
+            index = folded.get(label.toLowerCase(Locale.ROOT));
+        }
+        return index == null ? -1 : index;
+    }
+}
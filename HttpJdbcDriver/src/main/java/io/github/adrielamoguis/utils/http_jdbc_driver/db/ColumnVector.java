@@ -0,0 +1,299 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ColumnType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * One column of a materialized result. Integers and floating-point values are held unboxed in a
+ * {@code long[]} or {@code double[]} next to a null bitmap, so typed getters read them without boxing or
+ * parsing; strings and everything else share a single {@code Object[]}. A column that mixes kinds, e.g.
+ * integers and strings, falls back to boxed objects. A column whose type the proxy declared starts out in
+ * that type's storage instead of waiting for the first value.
+ */
+final class ColumnVector {
+
+    private enum Kind { EMPTY, LONG, DOUBLE, OBJECT }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Per-object header plus reference, as a rough figure for the JVMs we run on
+    private static final int OBJECT_OVERHEAD = 16;
+
+    private final boolean wide;
+    private final boolean narrow;
+    private Kind kind = Kind.EMPTY;
+    private long[] longs;
+    private double[] doubles;
+    private Object[] objects;
+    // One bit per row, set for SQL NULL
+    private long[] nulls = new long[1];
+    private int capacity;
+    private int size;
+
+    ColumnVector() {
+        this(ColumnType.OTHER);
+    }
+
+    /**
+     * @param type declared type; integer columns keep {@code long[]} storage and bigint ones box as Long,
+     *             real ones hold their values rounded to float and box them as Float
+     */
+    ColumnVector(ColumnType type) {
+        this.wide = type == ColumnType.BIGINT;
+        this.narrow = type == ColumnType.REAL;
+        if (type.getDecoder() == ColumnType.Decoder.LONG) {
+            switchTo(Kind.LONG);
+        } else if (type.getDecoder() == ColumnType.Decoder.DOUBLE) {
+            switchTo(Kind.DOUBLE);
+        }
+    }
+
+    /**
+     * @return a column holding {@code rows} nulls, for a column first seen part way through a result
+     */
+    static ColumnVector ofNulls(int rows) {
+        return ofNulls(ColumnType.OTHER, rows);
+    }
+
+    static ColumnVector ofNulls(ColumnType type, int rows) {
+        ColumnVector vector = new ColumnVector(type);
+        for (int i = 0; i < rows; i++) {
+            vector.appendNull();
+        }
+        return vector;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void appendNull() {
+        ensureCapacity(size + 1);
+        nulls[size >>> 6] |= 1L << size;
+        if (kind == Kind.OBJECT) {
+            objects[size] = null;
+        }
+        size++;
+    }
+
+    void appendLong(long value) {
+        if (kind == Kind.EMPTY) {
+            switchTo(Kind.LONG);
+        }
+        if (kind != Kind.LONG) {
+            appendObject(wide ? Long.valueOf(value) : boxInteger(value));
+            return;
+        }
+        ensureCapacity(size + 1);
+        longs[size++] = value;
+    }
+
+    void appendDouble(double value) {
+        if (narrow) {
+            value = (float) value;
+        }
+        if (kind == Kind.EMPTY) {
+            switchTo(Kind.DOUBLE);
+        }
+        if (kind != Kind.DOUBLE) {
+            appendObject(boxDouble(value));
+            return;
+        }
+        ensureCapacity(size + 1);
+        doubles[size++] = value;
+    }
+
+    void appendObject(Object value) {
+        if (value == null) {
+            appendNull();
+            return;
+        }
+        if (kind != Kind.OBJECT) {
+            switchTo(Kind.OBJECT);
+        }
+        ensureCapacity(size + 1);
+        objects[size++] = value;
+    }
+
+    /**
+     * Drops the rows from {@code rows} on, e.g. to replace a value repeated under the same key in one object.
+     */
+    void truncate(int rows) {
+        for (int row = rows; row < size; row++) {
+            nulls[row >>> 6] &= ~(1L << row);
+            if (objects != null) {
+                objects[row] = null;
+            }
+        }
+        size = Math.min(size, rows);
+    }
+
+    /**
+     * Drops the spare capacity left by growing, once the last row has been appended.
+     */
+    void trimToSize() {
+        if (capacity > size) {
+            capacity = size;
+            if (longs != null) {
+                longs = Arrays.copyOf(longs, size);
+            }
+            if (doubles != null) {
+                doubles = Arrays.copyOf(doubles, size);
+            }
+            if (objects != null) {
+                objects = Arrays.copyOf(objects, size);
+            }
+        }
+        int words = Math.max(1, (size + 63) >>> 6);
+        if (nulls.length > words) {
+            nulls = Arrays.copyOf(nulls, words);
+        }
+    }
+
+    /**
+     * @return an estimate of the heap this column occupies, its arrays plus whatever its boxed values hold
+     */
+    long bytes() {
+        long bytes = OBJECT_OVERHEAD + 8L * nulls.length;
+        if (longs != null) {
+            bytes += OBJECT_OVERHEAD + 8L * longs.length;
+        }
+        if (doubles != null) {
+            bytes += OBJECT_OVERHEAD + 8L * doubles.length;
+        }
+        if (objects != null) {
+            bytes += OBJECT_OVERHEAD + 8L * objects.length;
+            for (int row = 0; row < size; row++) {
+                bytes += sizeOf(objects[row]);
+            }
+        }
+        return bytes;
+    }
+
+    static long sizeOf(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String s) {
+            return OBJECT_OVERHEAD + 24 + s.length();
+        }
+        if (value instanceof byte[] b) {
+            return OBJECT_OVERHEAD + b.length;
+        }
+        if (value instanceof BigDecimal || value instanceof BigInteger) {
+            return OBJECT_OVERHEAD + 40;
+        }
+        return OBJECT_OVERHEAD + 8;
+    }
+
+    boolean isNull(int row) {
+        return (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @return the value boxed as the parser would have produced it: Integer or Long, Float or Double, or the object itself
+     */
+    Object get(int row) {
+        if (isNull(row)) {
+            return null;
+        }
+        switch (kind) {
+            case LONG:
+                return wide ? Long.valueOf(longs[row]) : boxInteger(longs[row]);
+            case DOUBLE:
+                return boxDouble(doubles[row]);
+            default:
+                return objects[row];
+        }
+    }
+
+    long getLong(int row) {
+        if (isNull(row)) {
+            return 0;
+        }
+        switch (kind) {
+            case LONG:
+                return longs[row];
+            case DOUBLE:
+                return (long) doubles[row];
+            default:
+                Object value = objects[row];
+                return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+        }
+    }
+
+    double getDouble(int row) {
+        if (isNull(row)) {
+            return 0;
+        }
+        switch (kind) {
+            case LONG:
+                return longs[row];
+            case DOUBLE:
+                return doubles[row];
+            default:
+                Object value = objects[row];
+                return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+        }
+    }
+
+    /**
+     * Jackson reports integers that fit in an int as Integer, so getObject keeps doing the same unless the
+     * column was declared bigint.
+     */
+    private static Object boxInteger(long value) {
+        if (value == (int) value) {
+            return Integer.valueOf((int) value);
+        }
+        return Long.valueOf(value);
+    }
+
+    private Object boxDouble(double value) {
+        // Not a conditional expression, which would unbox the Float and widen it back to Double
+        if (narrow) {
+            return (float) value;
+        }
+        return value;
+    }
+
+    private void switchTo(Kind next) {
+        if (next == Kind.OBJECT && kind != Kind.EMPTY) {
+            Object[] boxed = new Object[capacity];
+            for (int row = 0; row < size; row++) {
+                boxed[row] = get(row);
+            }
+            objects = boxed;
+            longs = null;
+            doubles = null;
+        } else if (next == Kind.LONG) {
+            longs = new long[capacity];
+        } else if (next == Kind.DOUBLE) {
+            doubles = new double[capacity];
+        } else {
+            objects = new Object[capacity];
+        }
+        kind = next;
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows > capacity) {
+            capacity = Math.max(INITIAL_CAPACITY, Math.max(rows, capacity * 2));
+            if (longs != null) {
+                longs = Arrays.copyOf(longs, capacity);
+            }
+            if (doubles != null) {
+                doubles = Arrays.copyOf(doubles, capacity);
+            }
+            if (objects != null) {
+                objects = Arrays.copyOf(objects, capacity);
+            }
+        }
+        int words = (rows + 63) >>> 6;
+        if (words > nulls.length) {
+            nulls = Arrays.copyOf(nulls, Math.max(words, nulls.length * 2));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking extension of {@link PreparedStatement}, reachable through
+ * {@code statement.unwrap(HttpJdbcPreparedStatement.class)}.
+ * <p>
+ * Parameters are captured when the method is called, so the statement may be re-bound and executed
+ * again before the returned future completes.
+ *
+ * @see HttpJdbcStatement
+ */
+public interface HttpJdbcPreparedStatement {
+
+    /**
+     * Asynchronous counterpart of {@link PreparedStatement#executeQuery()}.
+     *
+     * @throws SQLException if the statement is closed
+     */
+    CompletableFuture<ResultSet> executeQueryAsync() throws SQLException;
+
+    /**
+     * Asynchronous counterpart of {@link PreparedStatement#executeUpdate()}.
+     *
+     * @throws SQLException if the statement is closed
+     */
+    CompletableFuture<Integer> executeUpdateAsync() throws SQLException;
+}
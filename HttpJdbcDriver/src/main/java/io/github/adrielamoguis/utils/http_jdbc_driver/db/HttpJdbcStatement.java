@@ -0,0 +1,30 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking extension of {@link Statement}, reachable through {@code statement.unwrap(HttpJdbcStatement.class)}.
+ * <p>
+ * The calling thread only builds and dispatches the request; the response is decoded off the caller thread,
+ * so several independent statements can be in flight at once. Futures complete exceptionally with an
+ * {@link SQLException} (wrapped in a {@link java.util.concurrent.CompletionException}) on failure.
+ */
+public interface HttpJdbcStatement {
+
+    /**
+     * Asynchronous counterpart of {@link Statement#executeQuery(String)}.
+     *
+     * @throws SQLException if the statement is closed
+     */
+    CompletableFuture<ResultSet> executeQueryAsync(String sql) throws SQLException;
+
+    /**
+     * Asynchronous counterpart of {@link Statement#executeUpdate(String)}.
+     *
+     * @throws SQLException if the statement is closed
+     */
+    CompletableFuture<Integer> executeUpdateAsync(String sql) throws SQLException;
+}
@@ -0,0 +1,79 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Collapses a batch of single-row {@code INSERT ... VALUES (?, ?, ...)} executions into multi-row
+ * {@code VALUES (?, ?), (?, ?), ...} statements, as the PostgreSQL and MySQL drivers do with
+ * {@code reWriteBatchedInserts} / {@code rewriteBatchedStatements}.
+ * <p>
+ * Only inserts whose values tuple is made of placeholders alone are rewritten; anything else,
+ * e.g. {@code ON CONFLICT}, {@code RETURNING}, {@code SELECT} or literal values, is left to the regular batch.
+ */
+class InsertRewriter {
+
+    /**
+     * Bind parameter cap per rewritten statement; PostgreSQL rejects more than 65535,
+     * and the PostgreSQL driver stays at half of that.
+     */
+    static final int MAX_PARAMETERS = 32767;
+
+    private static final Pattern SIMPLE_INSERT = Pattern.compile(
+            "^\\s*(insert\\s+into\\s+[^()?';]+?(?:\\([^()?';]*\\))?\\s*values\\s*)(\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\))\\s*;?\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final String prefix;
+    private final String tuple;
+    private final int parameterCount;
+
+    private InsertRewriter(String prefix, String tuple) {
+        this.prefix = prefix;
+        this.tuple = tuple;
+        this.parameterCount = (int) tuple.chars().filter(c -> c == '?').count();
+    }
+
+    /**
+     * @return a rewriter for {@code sql}, or {@code null} if it isn't a simple single-row insert
+     */
+    static InsertRewriter parse(String sql) {
+        Matcher matcher = SIMPLE_INSERT.matcher(sql);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new InsertRewriter(matcher.group(1), matcher.group(2));
+    }
+
+    int getParameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * @return how many rows fit in one rewritten statement under {@link #MAX_PARAMETERS}
+     */
+    int rowsPerStatement() {
+        return Math.max(1, MAX_PARAMETERS / parameterCount);
+    }
+
+    /**
+     * @return the insert with its values tuple repeated {@code rows} times
+     */
+    String rewrite(int rows) {
+        StringBuilder sb = new StringBuilder(prefix.length() + rows * (tuple.length() + 2));
+        sb.append(prefix).append(tuple);
+        for (int i = 1; i < rows; i++) {
+            sb.append(", ").append(tuple);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Spreads the count of one rewritten statement over the batch entries it covered: one row each when
+     * the totals agree, {@link Statement#SUCCESS_NO_INFO} otherwise (e.g. rows skipped by a trigger).
+     */
+    static void fillCounts(int[] counts, int from, int rows, int affected) {
+        Arrays.fill(counts, from, from + rows, affected == rows ? 1 : Statement.SUCCESS_NO_INFO);
+    }
+}
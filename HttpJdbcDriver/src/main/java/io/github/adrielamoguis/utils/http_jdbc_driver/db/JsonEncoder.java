@@ -0,0 +1,236 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+
+/**
+ * Builds request bodies in a buffer that its owner keeps and reuses for every execution. Strings are
+ * escaped as JSON requires, control characters included, by copying unescaped runs in bulk. Numbers,
+ * booleans and dates are written straight into the buffer without an intermediate string. The only
+ * allocation per request is the finished body.
+ * <p>
+ * Dates and times are sent as ISO-8601 strings. java.sql date types are sent as their java.time
+ * equivalents, so timestamps read {@code 2024-01-31T10:15:30}. {@code NaN} and infinite doubles,
+ * which JSON has no literal for, are sent as the strings PostgreSQL accepts. Byte arrays are sent as
+ * {@code {"bytea": "<base64>"}}, a third larger than the raw bytes rather than the four to five times of a
+ * list of numbers.
+ */
+final class JsonEncoder {
+
+    /**
+     * Buffers grown past this by one large request are dropped rather than held for the life of the statement.
+     */
+    static final int MAX_RETAINED_CHARS = 64 * 1024;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private StringBuilder out;
+
+    JsonEncoder() {
+        this(256);
+    }
+
+    JsonEncoder(int capacity) {
+        this.out = new StringBuilder(capacity);
+    }
+
+    /**
+     * @return {@code value} as a quoted JSON string
+     */
+    static String quote(String value) {
+        return new JsonEncoder(value.length() + 16).string(value).toJson();
+    }
+
+    /**
+     * @return {@code {"query": sql, "params": []}}
+     */
+    static String query(String sql) {
+        return new JsonEncoder(sql.length() + 32).raw("{\"query\": ").string(sql).raw(", \"params\": []}").toJson();
+    }
+
+    /**
+     * Empties the buffer for the next request.
+     */
+    JsonEncoder reset() {
+        if (out.capacity() > MAX_RETAINED_CHARS) {
+            out = new StringBuilder(256);
+        } else {
+            out.setLength(0);
+        }
+        return this;
+    }
+
+    /**
+     * Appends already-encoded JSON, e.g. a pre-built request prefix.
+     */
+    JsonEncoder raw(String json) {
+        out.append(json);
+        return this;
+    }
+
+    JsonEncoder string(CharSequence value) {
+        out.append('"');
+        int length = value.length();
+        int run = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            out.append(value, run, i);
+            run = i + 1;
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                case '\b': out.append("\\b"); break;
+                case '\f': out.append("\\f"); break;
+                default: out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+        }
+        out.append(value, run, length).append('"');
+        return this;
+    }
+
+    JsonEncoder number(long value) {
+        out.append(value);
+        return this;
+    }
+
+    JsonEncoder number(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            // JSON has no literal for these; PostgreSQL parses the strings
+            return string(Double.toString(value));
+        }
+        out.append(value);
+        return this;
+    }
+
+    /**
+     * Appends {@code value} as a {@code {"bytea": ...}} object, base64 encoded straight into the buffer.
+     */
+    JsonEncoder bytes(byte[] value) {
+        out.ensureCapacity(out.length() + value.length / 3 * 4 + 16);
+        out.append("{\"bytea\": \"");
+        int whole = value.length - value.length % 3;
+        for (int i = 0; i < whole; i += 3) {
+            int bits = (value[i] & 0xFF) << 16 | (value[i + 1] & 0xFF) << 8 | value[i + 2] & 0xFF;
+            out.append(BASE64[bits >> 18]).append(BASE64[bits >> 12 & 0x3F])
+                    .append(BASE64[bits >> 6 & 0x3F]).append(BASE64[bits & 0x3F]);
+        }
+        int left = value.length - whole;
+        if (left > 0) {
+            int bits = (value[whole] & 0xFF) << 16 | (left == 2 ? (value[whole + 1] & 0xFF) << 8 : 0);
+            out.append(BASE64[bits >> 18]).append(BASE64[bits >> 12 & 0x3F])
+                    .append(left == 2 ? BASE64[bits >> 6 & 0x3F] : '=').append('=');
+        }
+        out.append("\"}");
+        return this;
+    }
+
+    /**
+     * Appends a statement parameter: {@code null}, a number, a boolean, a date or time, bytes, or otherwise the
+     * quoted {@code toString()} of the value.
+     */
+    JsonEncoder value(Object value) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof String) {
+            string((String) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            number(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            number((double) (Double) value);
+        } else if (value instanceof Float) {
+            float f = (Float) value;
+            if (Float.isNaN(f) || Float.isInfinite(f)) {
+                string(Float.toString(f));
+            } else {
+                out.append(f);
+            }
+        } else if (value instanceof Boolean) {
+            out.append((boolean) (Boolean) value);
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            out.append(value);
+        } else if (value instanceof TemporalAccessor) {
+            temporal((TemporalAccessor) value);
+        } else if (value instanceof java.util.Date) {
+            temporal(toJavaTime((java.util.Date) value));
+        } else if (value instanceof byte[]) {
+            bytes((byte[]) value);
+        } else {
+            string(value.toString());
+        }
+        return this;
+    }
+
+    private void temporal(TemporalAccessor value) {
+        DateTimeFormatter format = formatFor(value);
+        if (format == null) {
+            string(value.toString());
+            return;
+        }
+        out.append('"');
+        format.formatTo(value, out);
+        out.append('"');
+    }
+
+    private static DateTimeFormatter formatFor(TemporalAccessor value) {
+        if (value instanceof LocalDate) {
+            return DateTimeFormatter.ISO_LOCAL_DATE;
+        }
+        if (value instanceof LocalDateTime) {
+            return DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+        }
+        if (value instanceof LocalTime) {
+            return DateTimeFormatter.ISO_LOCAL_TIME;
+        }
+        if (value instanceof OffsetDateTime || value instanceof ZonedDateTime) {
+            // Not ISO_ZONED_DATE_TIME: a trailing [Europe/Paris] is not something the database parses
+            return DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+        }
+        if (value instanceof OffsetTime) {
+            return DateTimeFormatter.ISO_OFFSET_TIME;
+        }
+        if (value instanceof Instant) {
+            return DateTimeFormatter.ISO_INSTANT;
+        }
+        return null;
+    }
+
+    /**
+     * The java.sql subclasses have no time zone or no date part, so they convert to local types; only a
+     * plain {@code java.util.Date} is an instant.
+     */
+    private static TemporalAccessor toJavaTime(java.util.Date value) {
+        if (value instanceof java.sql.Timestamp) {
+            return ((java.sql.Timestamp) value).toLocalDateTime();
+        }
+        if (value instanceof java.sql.Date) {
+            return ((java.sql.Date) value).toLocalDate();
+        }
+        if (value instanceof java.sql.Time) {
+            return ((java.sql.Time) value).toLocalTime();
+        }
+        return value.toInstant();
+    }
+
+    /**
+     * @return the body written since the last {@link #reset()}
+     */
+    String toJson() {
+        return out.toString();
+    }
+}
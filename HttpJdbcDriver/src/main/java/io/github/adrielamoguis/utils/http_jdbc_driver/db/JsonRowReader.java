@@ -0,0 +1,455 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ColumnInfo;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ColumnType;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.JsonSupport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pulls rows one at a time out of the proxy's response, straight from the token stream,
+ * without building a {@code JsonNode} tree first. The same layouts are read from JSON, CBOR and Smile.
+ * <p>
+ * Two layouts are understood, told apart by the first token:
+ * <ul>
+ *     <li>array of objects, {@code [{"id": 1, "name": "Alice"}, ...]}, where columns are discovered
+ *     as rows are read;</li>
+ *     <li>columnar envelope, {@code {"columns": ["id", "name"], "types": ["int4", "text"], "rows": [[1, "Alice"], ...]}},
+ *     where {@code columns} (and {@code types}, if present) must come before {@code rows}.</li>
+ * </ul>
+ * The envelope may also carry {@code precision}, {@code scale} and {@code nullable} arrays parallel to
+ * {@code columns}, with {@code null} wherever a value isn't known. Declared types pick each column's decoder
+ * once, see {@link ColumnType.Decoder}.
+ */
+class JsonRowReader implements Closeable {
+
+    private final JsonParser parser;
+    private final List<String> columns = new ArrayList<>();
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    private final List<String> types = new ArrayList<>();
+    private final List<ColumnInfo> infos = new ArrayList<>();
+    private final boolean columnar;
+
+    private JsonRowReader(JsonParser parser) throws IOException {
+        this.parser = parser;
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                readEnvelopeHeader();
+                columnar = true;
+            } else if (token == JsonToken.START_ARRAY) {
+                columnar = false;
+            } else {
+                throw new IOException("Expected a JSON array or columnar object for ResultSet");
+            }
+        } catch (IOException e) {
+            parser.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the envelope up to and including the start of the {@code rows} array.
+     */
+    private void readEnvelopeHeader() throws IOException {
+        boolean hasColumns = false;
+        List<Integer> precisions = List.of();
+        List<Integer> scales = List.of();
+        List<Boolean> nullables = List.of();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "columns":
+                    for (String column : readStrings(value, field)) {
+                        columnIndexes.putIfAbsent(column, columns.size());
+                        columns.add(column);
+                    }
+                    hasColumns = true;
+                    break;
+                case "types":
+                    types.addAll(readStrings(value, field));
+                    break;
+                case "precision":
+                    precisions = readInts(value, field);
+                    break;
+                case "scale":
+                    scales = readInts(value, field);
+                    break;
+                case "nullable":
+                    nullables = readBooleans(value, field);
+                    break;
+                case "rows":
+                    if (value != JsonToken.START_ARRAY) {
+                        throw new IOException("Expected a JSON array for 'rows', got " + value);
+                    }
+                    if (!hasColumns) {
+                        throw new IOException("Columnar result must send 'columns' before 'rows'");
+                    }
+                    for (int i = 0; i < columns.size(); i++) {
+                        String typeName = i < types.size() ? types.get(i) : null;
+                        Boolean nullable = i < nullables.size() ? nullables.get(i) : null;
+                        infos.add(new ColumnInfo(typeName, ColumnType.forName(typeName),
+                                intAt(precisions, i), intAt(scales, i),
+                                nullable == null ? ResultSetMetaData.columnNullableUnknown
+                                        : nullable ? ResultSetMetaData.columnNullable : ResultSetMetaData.columnNoNulls));
+                    }
+                    return;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        throw new IOException("Columnar result has no 'rows' array");
+    }
+
+    private List<String> readStrings(JsonToken start, String field) throws IOException {
+        if (start != JsonToken.START_ARRAY) {
+            throw new IOException("Expected a JSON array for '" + field + "', got " + start);
+        }
+        List<String> values = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(parser.getValueAsString());
+        }
+        return values;
+    }
+
+    private List<Integer> readInts(JsonToken start, String field) throws IOException {
+        if (start != JsonToken.START_ARRAY) {
+            throw new IOException("Expected a JSON array for '" + field + "', got " + start);
+        }
+        List<Integer> values = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            values.add(token == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : null);
+        }
+        return values;
+    }
+
+    private List<Boolean> readBooleans(JsonToken start, String field) throws IOException {
+        if (start != JsonToken.START_ARRAY) {
+            throw new IOException("Expected a JSON array for '" + field + "', got " + start);
+        }
+        List<Boolean> values = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            values.add(token == JsonToken.VALUE_TRUE ? Boolean.TRUE : token == JsonToken.VALUE_FALSE ? Boolean.FALSE : null);
+        }
+        return values;
+    }
+
+    private static int intAt(List<Integer> values, int index) {
+        Integer value = index < values.size() ? values.get(index) : null;
+        return value == null ? 0 : value;
+    }
+
+    static JsonRowReader of(String json) throws IOException {
+        return new JsonRowReader(JsonSupport.JSON_FACTORY.createParser(json));
+    }
+
+    static JsonRowReader of(InputStream in) throws IOException {
+        return new JsonRowReader(JsonSupport.JSON_FACTORY.createParser(in));
+    }
+
+    /**
+     * Reads rows from a parser of any Jackson format, e.g. CBOR or Smile; closing the reader closes the parser.
+     */
+    static JsonRowReader of(JsonParser parser) throws IOException {
+        return new JsonRowReader(parser);
+    }
+
+    /**
+     * @return column names in the order they were first seen
+     */
+    List<String> columns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * @return whether the rows come in a columnar envelope, whose columns are all declared up front
+     */
+    boolean isColumnar() {
+        return columnar;
+    }
+
+    /**
+     * @return database type names sent in a columnar envelope, empty for the array-of-objects layout
+     */
+    List<String> types() {
+        return Collections.unmodifiableList(types);
+    }
+
+    /**
+     * @return what the envelope declared about the column at {@code index}, {@link ColumnInfo#UNKNOWN} if nothing
+     */
+    ColumnInfo columnInfo(int index) {
+        return index < infos.size() ? infos.get(index) : ColumnInfo.UNKNOWN;
+    }
+
+    /**
+     * @return the next row, or {@code null} at the end of the array
+     */
+    Map<String, Object> nextRow() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY || token == null) {
+            return null;
+        }
+        return columnar ? readPositionalRow(token) : readObjectRow(token);
+    }
+
+    /**
+     * Appends the next row to {@code vectors}, one per column, adding a vector padded with nulls for each
+     * column first seen in this row. Numbers go into the vectors unboxed.
+     *
+     * @param row index of the row being read, i.e. the number of rows already in the vectors
+     * @return {@code false} at the end of the array
+     */
+    boolean nextRow(List<ColumnVector> vectors, int row) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY || token == null) {
+            return false;
+        }
+        while (vectors.size() < columns.size()) {
+            vectors.add(ColumnVector.ofNulls(columnInfo(vectors.size()).type(), row));
+        }
+        if (columnar) {
+            readPositionalRow(token, vectors);
+        } else {
+            readObjectRow(token, vectors, row);
+        }
+        return true;
+    }
+
+    private void readPositionalRow(JsonToken token, List<ColumnVector> vectors) throws IOException {
+        if (token != JsonToken.START_ARRAY) {
+            throw new IOException("Expected a JSON array for each row, got " + token);
+        }
+        int index = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (index >= columns.size()) {
+                throw new IOException("Row has more values than the " + columns.size() + " declared columns");
+            }
+            appendValue(vectors.get(index), columnInfo(index).type().getDecoder());
+            index++;
+        }
+        if (index != columns.size()) {
+            throw new IOException("Row has " + index + " values but " + columns.size() + " columns are declared");
+        }
+    }
+
+    private void readObjectRow(JsonToken token, List<ColumnVector> vectors, int row) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object for each row, got " + token);
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String column = parser.getCurrentName();
+            Integer index = columnIndexes.putIfAbsent(column, columns.size());
+            ColumnVector vector;
+            if (index == null) {
+                columns.add(column);
+                vector = ColumnVector.ofNulls(row);
+                vectors.add(vector);
+            } else {
+                vector = vectors.get(index);
+                // A key repeated within one object replaces its earlier value, as it would in a map
+                vector.truncate(row);
+            }
+            parser.nextToken();
+            appendValue(vector);
+        }
+        for (ColumnVector vector : vectors) {
+            if (vector.size() == row) {
+                vector.appendNull();
+            }
+        }
+    }
+
+    /**
+     * Reads the current value with the column's declared decoder, falling back to {@link #appendValue(ColumnVector)}
+     * for tokens the decoder doesn't take, e.g. a text value in an integer column.
+     */
+    private void appendValue(ColumnVector vector, ColumnType.Decoder decoder) throws IOException {
+        JsonToken token = parser.currentToken();
+        switch (decoder) {
+            case LONG:
+                if (token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+                    vector.appendLong(parser.getLongValue());
+                    return;
+                }
+                if (token == JsonToken.VALUE_STRING) {
+                    try {
+                        vector.appendLong(Long.parseLong(parser.getText()));
+                        return;
+                    } catch (NumberFormatException e) {
+                        // Kept as text below
+                    }
+                }
+                break;
+            case DOUBLE:
+                if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                    vector.appendDouble(parser.getDoubleValue());
+                    return;
+                }
+                if (token == JsonToken.VALUE_STRING) {
+                    try {
+                        vector.appendDouble(Double.parseDouble(parser.getText()));
+                        return;
+                    } catch (NumberFormatException e) {
+                        // Kept as text below
+                    }
+                }
+                break;
+            case DECIMAL:
+                if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                    vector.appendObject(parser.getDecimalValue());
+                    return;
+                }
+                break;
+            default:
+        }
+        appendValue(vector);
+    }
+
+    private void appendValue(ColumnVector vector) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NULL:
+                vector.appendNull();
+                break;
+            case VALUE_NUMBER_INT:
+                if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                    vector.appendObject(parser.getBigIntegerValue());
+                } else {
+                    vector.appendLong(parser.getLongValue());
+                }
+                break;
+            case VALUE_NUMBER_FLOAT:
+                vector.appendDouble(parser.getDoubleValue());
+                break;
+            default:
+                vector.appendObject(readValue());
+        }
+    }
+
+    private Map<String, Object> readPositionalRow(JsonToken token) throws IOException {
+        if (token != JsonToken.START_ARRAY) {
+            throw new IOException("Expected a JSON array for each row, got " + token);
+        }
+        Map<String, Object> row = new HashMap<>(columns.size() * 4 / 3 + 1);
+        int index = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (index >= columns.size()) {
+                throw new IOException("Row has more values than the " + columns.size() + " declared columns");
+            }
+            row.put(columns.get(index), readValue(columnInfo(index).type()));
+            index++;
+        }
+        if (index != columns.size()) {
+            throw new IOException("Row has " + index + " values but " + columns.size() + " columns are declared");
+        }
+        return row;
+    }
+
+    private Map<String, Object> readObjectRow(JsonToken token) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object for each row, got " + token);
+        }
+        Map<String, Object> row = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String column = parser.getCurrentName();
+            if (columnIndexes.putIfAbsent(column, columns.size()) == null) {
+                columns.add(column);
+            }
+            parser.nextToken();
+            row.put(column, readValue());
+        }
+        return row;
+    }
+
+    /**
+     * Boxed counterpart of {@link #appendValue(ColumnVector, ColumnType.Decoder)}, for rows read one map at a time.
+     */
+    private Object readValue(ColumnType type) throws IOException {
+        JsonToken token = parser.currentToken();
+        switch (type.getDecoder()) {
+            case LONG:
+                if (token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+                    return type == ColumnType.BIGINT ? Long.valueOf(parser.getLongValue()) : parser.getNumberValue();
+                }
+                if (token == JsonToken.VALUE_STRING) {
+                    try {
+                        long value = Long.parseLong(parser.getText());
+                        if (type == ColumnType.BIGINT || value != (int) value) {
+                            return value;
+                        }
+                        return (int) value;
+                    } catch (NumberFormatException e) {
+                        // Kept as text below
+                    }
+                }
+                break;
+            case DOUBLE:
+                if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                    return boxDouble(type, parser.getDoubleValue());
+                }
+                if (token == JsonToken.VALUE_STRING) {
+                    try {
+                        return boxDouble(type, Double.parseDouble(parser.getText()));
+                    } catch (NumberFormatException e) {
+                        // Kept as text below
+                    }
+                }
+                break;
+            case DECIMAL:
+                if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                    return parser.getDecimalValue();
+                }
+                break;
+            default:
+        }
+        return readValue();
+    }
+
+    private static Object boxDouble(ColumnType type, double value) {
+        if (type == ColumnType.REAL) {
+            return (float) value;
+        }
+        return value;
+    }
+
+    private Object readValue() throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_EMBEDDED_OBJECT:
+                // Binary formats carry bytea columns as raw bytes
+                return parser.getEmbeddedObject();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            default:
+                // Nested JSON/array columns, e.g. jsonb
+                return JsonSupport.VALUE_READER.readValue(parser);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,173 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ColumnInfo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows read fully into memory before the result set is handed out, held as one {@link ColumnVector}
+ * per column rather than a map per row.
+ */
+class MaterializedRows implements RowCursor {
+
+    private final List<String> columns;
+    private final Map<String, Integer> indexes;
+    private final List<ColumnVector> vectors;
+    private final List<ColumnInfo> infos;
+    private final int rowCount;
+    private int cursor = -1;
+
+    MaterializedRows(List<String> columns, List<ColumnVector> vectors, int rowCount, List<ColumnInfo> infos) {
+        this.columns = columns;
+        this.vectors = vectors;
+        this.infos = infos;
+        this.rowCount = rowCount;
+        this.indexes = new HashMap<>(columns.size() * 4 / 3 + 1);
+        for (int i = 0; i < columns.size(); i++) {
+            indexes.putIfAbsent(columns.get(i), i);
+        }
+    }
+
+    /**
+     * A fresh cursor over the same rows, which are shared rather than copied.
+     */
+    private MaterializedRows(MaterializedRows rows) {
+        this.columns = rows.columns;
+        this.indexes = rows.indexes;
+        this.vectors = rows.vectors;
+        this.infos = rows.infos;
+        this.rowCount = rows.rowCount;
+    }
+
+    /**
+     * Reads every remaining row from {@code reader} and closes it.
+     */
+    static MaterializedRows read(JsonRowReader reader) throws IOException {
+        try (reader) {
+            List<ColumnVector> vectors = new ArrayList<>();
+            int rows = 0;
+            while (reader.nextRow(vectors, rows)) {
+                rows++;
+            }
+            List<ColumnInfo> infos = new ArrayList<>(reader.columns().size());
+            for (int i = 0; i < reader.columns().size(); i++) {
+                infos.add(reader.columnInfo(i));
+            }
+            return new MaterializedRows(new ArrayList<>(reader.columns()), vectors, rows, infos);
+        }
+    }
+
+    /**
+     * @return a cursor of its own over these rows, positioned before the first; safe to hand to another thread
+     *         as long as no rows are appended to the vectors any more
+     */
+    MaterializedRows reopen() {
+        return new MaterializedRows(this);
+    }
+
+    /**
+     * Trims the vectors to the rows read, for a result kept around after this cursor is done with it.
+     */
+    void trimToSize() {
+        for (ColumnVector vector : vectors) {
+            vector.trimToSize();
+        }
+    }
+
+    /**
+     * @return an estimate of the heap the rows occupy, the column names included
+     */
+    long bytes() {
+        long bytes = 0;
+        for (String column : columns) {
+            bytes += ColumnVector.sizeOf(column);
+        }
+        for (ColumnVector vector : vectors) {
+            bytes += vector.bytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public List<String> columns() {
+        return columns;
+    }
+
+    @Override
+    public boolean next() {
+        if (cursor + 1 < rowCount) {
+            cursor++;
+            return true;
+        }
+        cursor = rowCount;
+        return false;
+    }
+
+    @Override
+    public boolean hasRow() {
+        return cursor >= 0 && cursor < rowCount;
+    }
+
+    /**
+     * Builds a map of the current row; the typed accessors read the vectors directly instead.
+     */
+    @Override
+    public Map<String, Object> current() {
+        if (!hasRow()) {
+            return null;
+        }
+        Map<String, Object> row = new HashMap<>(columns.size() * 4 / 3 + 1);
+        for (int i = 0; i < columns.size(); i++) {
+            row.put(columns.get(i), vectors.get(i).get(cursor));
+        }
+        return row;
+    }
+
+    /**
+     * @return the position of {@code column}, matched exactly, or -1 if this result doesn't have it
+     */
+    int indexOf(String column) {
+        Integer index = indexes.get(column);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public ColumnInfo columnInfo(int column) {
+        return infos.get(column);
+    }
+
+    /**
+     * @return the declared column metadata, one entry per column
+     */
+    List<ColumnInfo> columnInfos() {
+        return infos;
+    }
+
+    @Override
+    public Object value(int column) {
+        return vectors.get(column).get(cursor);
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return vectors.get(column).isNull(cursor);
+    }
+
+    @Override
+    public long longValue(int column) {
+        return vectors.get(column).getLong(cursor);
+    }
+
+    @Override
+    public double doubleValue(int column) {
+        return vectors.get(column).getDouble(cursor);
+    }
+
+    @Override
+    public void close() {
+    }
+}
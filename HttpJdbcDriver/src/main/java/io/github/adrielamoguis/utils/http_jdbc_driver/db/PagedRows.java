@@ -0,0 +1,163 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ColumnInfo;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ProxyResponse;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ProxyTransport;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows of a server-side cursor, one page in memory at a time. The next page is requested with
+ * {@code {"cursor": id, "fetchSize": n}} once the current one is used up; the proxy names the cursor
+ * in the {@value ProxyResponse#CURSOR_HEADER} response header for as long as rows remain. Closing before
+ * the last page sends {@code {"cursor": id, "close": true}} so the proxy can free it.
+ */
+class PagedRows implements RowCursor {
+
+    private final ProxyTransport transport;
+    private final List<String> columns;
+    private MaterializedRows page;
+    // Position of each of our columns in the current page, -1 where the page doesn't have it
+    private int[] pageIndexes;
+    private String cursor;
+    private int fetchSize;
+
+    PagedRows(ProxyTransport transport, MaterializedRows firstPage, String cursor, int fetchSize) {
+        this.transport = transport;
+        this.columns = new ArrayList<>(firstPage.columns());
+        this.page = firstPage;
+        this.pageIndexes = indexPage(firstPage);
+        this.cursor = cursor;
+        this.fetchSize = fetchSize;
+    }
+
+    static MaterializedRows readPage(ProxyResponse response) throws SQLException {
+        try {
+            return MaterializedRows.read(JsonRowReader.of(response.createParser()));
+        } catch (IOException e) {
+            throw new SQLException("Failed to parse " + response.getEncoding() + " for ResultSet", e);
+        }
+    }
+
+    @Override
+    public List<String> columns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    @Override
+    public boolean columnsMayGrow() {
+        return cursor != null;
+    }
+
+    @Override
+    public ColumnInfo columnInfo(int column) {
+        int index = pageIndexes[column];
+        return index < 0 ? ColumnInfo.UNKNOWN : page.columnInfo(index);
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        while (!page.next()) {
+            if (cursor == null) {
+                return false;
+            }
+            fetchNextPage();
+        }
+        return true;
+    }
+
+    private void fetchNextPage() throws SQLException {
+        ProxyResponse response = request("{\"cursor\": " + JsonEncoder.quote(cursor) + ", \"fetchSize\": " + fetchSize + "}");
+        page = readPage(response);
+        cursor = response.getCursor();
+        for (String column : page.columns()) {
+            if (!columns.contains(column)) {
+                columns.add(column);
+            }
+        }
+        pageIndexes = indexPage(page);
+    }
+
+    private int[] indexPage(MaterializedRows page) {
+        int[] indexes = new int[columns.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = page.indexOf(columns.get(i));
+        }
+        return indexes;
+    }
+
+    private ProxyResponse request(String json) throws SQLException {
+        try {
+            return transport.send(json);
+        } catch (IOException e) {
+            throw new SQLException("HTTP error: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while fetching from cursor " + cursor, e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> current() {
+        return page.current();
+    }
+
+    @Override
+    public boolean hasRow() {
+        return page.hasRow();
+    }
+
+    @Override
+    public Object value(int column) {
+        int index = pageIndexes[column];
+        return index < 0 ? null : page.value(index);
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        int index = pageIndexes[column];
+        return index < 0 || page.isNull(index);
+    }
+
+    @Override
+    public long longValue(int column) {
+        int index = pageIndexes[column];
+        return index < 0 ? 0 : page.longValue(index);
+    }
+
+    @Override
+    public double doubleValue(int column) {
+        int index = pageIndexes[column];
+        return index < 0 ? 0 : page.doubleValue(index);
+    }
+
+    @Override
+    public void setFetchSize(int rows) {
+        // 0 leaves the page size to the proxy, as with the initial request
+        fetchSize = rows;
+    }
+
+    @Override
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (cursor == null) {
+            return;
+        }
+        String json = "{\"cursor\": " + JsonEncoder.quote(cursor) + ", \"close\": true}";
+        cursor = null;
+        try (ProxyResponse ignored = request(json)) {
+            // Nothing to read from the answer, but its body holds pooled chunks until closed
+        } catch (IOException e) {
+            throw new SQLException("Failed to close the response to closing the cursor", e);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A prepared statement's SQL, scanned once: JDBC {@code ?} placeholders are rewritten to PostgreSQL's
+ * {@code $1, $2, ...}, and the request up to its parameter list is encoded ahead of time, so each
+ * execution only serializes the parameters.
+ * <p>
+ * With {@code serverPrepare}, requests also name the statement by a content hash of its SQL, so the proxy can
+ * register it once and be sent {@code {"statement": id, "params": [...]}} without the text afterwards.
+ * <p>
+ * Question marks inside string literals, quoted identifiers, comments and dollar-quoted bodies are left
+ * alone, and {@code ??} stands for a literal {@code ?} operator (e.g. jsonb's), as in the PostgreSQL driver.
+ */
+final class ParsedSql {
+
+    /**
+     * Distinct statements kept by {@link #get(String)}; applications seldom prepare more than a few hundred.
+     */
+    static final int CACHE_SIZE = 512;
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    private static final Map<String, ParsedSql> CACHE = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ParsedSql> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private static final Pattern WORD = Pattern.compile("[A-Za-z_][A-Za-z_0-9]*");
+    private static final Set<String> READING_STATEMENTS = Set.of("select", "with", "values", "table", "show");
+    // Inside a reading statement these write (a data-modifying CTE, SELECT INTO), lock rows or advance a sequence
+    private static final Set<String> WRITING_WORDS = Set.of("insert", "update", "delete", "merge", "into", "share", "nextval", "setval");
+
+    private final String sql;
+    private final int parameterCount;
+    private final String requestPrefix;
+    private final boolean readOnly;
+
+    // Only needed with serverPrepare, so built on first use; racing threads build equal strings
+    private String statementId;
+    private String registeringPrefix;
+    private String handlePrefix;
+
+    private ParsedSql(String sql, int parameterCount) {
+        this.sql = sql;
+        this.parameterCount = parameterCount;
+        this.requestPrefix = "{\"query\": " + JsonEncoder.quote(sql) + ", \"params\": [";
+        this.readOnly = isReadOnly(sql);
+    }
+
+    /**
+     * Whether {@code sql} looks like it only reads, so its result may be cached: it starts with {@code SELECT},
+     * {@code WITH}, {@code VALUES}, {@code TABLE} or {@code SHOW} and none of its words writes, locks rows or
+     * calls a sequence function. Errs towards {@code false}; the words are also matched inside literals.
+     */
+    static boolean isReadOnly(String sql) {
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c) || c == '(') {
+                i++;
+            } else if (sql.startsWith("--", i)) {
+                i = skipLineComment(sql, i);
+            } else if (sql.startsWith("/*", i)) {
+                i = skipBlockComment(sql, i);
+            } else {
+                break;
+            }
+        }
+        Matcher words = WORD.matcher(sql);
+        if (!words.find(i) || words.start() != i || !READING_STATEMENTS.contains(words.group().toLowerCase(Locale.ROOT))) {
+            return false;
+        }
+        while (words.find()) {
+            if (WRITING_WORDS.contains(words.group().toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the first 128 bits of the SQL's SHA-256, base64url encoded; short, and the same on every client
+     */
+    private static String contentHash(String sql) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sql.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required of every JVM", e);
+        }
+    }
+
+    /**
+     * @return the parsed form of {@code sql}, from the driver-wide cache if it has been seen recently
+     */
+    static ParsedSql get(String sql) {
+        LOCK.lock();
+        try {
+            ParsedSql parsed = CACHE.get(sql);
+            if (parsed != null) {
+                return parsed;
+            }
+        } finally {
+            LOCK.unlock();
+        }
+        // Parsed outside the lock; two threads racing on the same new SQL just do the work twice
+        ParsedSql parsed = parse(sql);
+        LOCK.lock();
+        try {
+            CACHE.put(sql, parsed);
+        } finally {
+            LOCK.unlock();
+        }
+        return parsed;
+    }
+
+    /**
+     * Parses {@code sql} without caching it, for one-off text such as rewritten multi-row inserts.
+     */
+    static ParsedSql parse(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length() + 16);
+        int parameters = 0;
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            int end;
+            switch (c) {
+                case '\'':
+                    end = skipQuoted(sql, i, '\'', isEscapeString(sql, i));
+                    break;
+                case '"':
+                    end = skipQuoted(sql, i, '"', false);
+                    break;
+                case '-':
+                    end = i + 1 < length && sql.charAt(i + 1) == '-' ? skipLineComment(sql, i) : i + 1;
+                    break;
+                case '/':
+                    end = i + 1 < length && sql.charAt(i + 1) == '*' ? skipBlockComment(sql, i) : i + 1;
+                    break;
+                case '$':
+                    end = skipDollarQuoted(sql, i);
+                    break;
+                case '?':
+                    if (i + 1 < length && sql.charAt(i + 1) == '?') {
+                        sb.append('?');
+                        i += 2;
+                    } else {
+                        sb.append('$').append(++parameters);
+                        i++;
+                    }
+                    continue;
+                default:
+                    end = i + 1;
+            }
+            sb.append(sql, i, end);
+            i = end;
+        }
+        return new ParsedSql(sb.toString(), parameters);
+    }
+
+    /**
+     * @return whether the quote at {@code quote} opens an {@code E'...'} string, where backslash escapes
+     */
+    private static boolean isEscapeString(String sql, int quote) {
+        if (quote == 0 || Character.toUpperCase(sql.charAt(quote - 1)) != 'E') {
+            return false;
+        }
+        return quote == 1 || !isIdentifierPart(sql.charAt(quote - 2));
+    }
+
+    /**
+     * @return the index after the quoted text starting at {@code start}; a doubled quote continues it
+     */
+    private static int skipQuoted(String sql, int start, char quote, boolean backslashEscapes) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (backslashEscapes && c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return sql.length();
+    }
+
+    private static int skipLineComment(String sql, int start) {
+        int newline = sql.indexOf('\n', start);
+        return newline < 0 ? sql.length() : newline + 1;
+    }
+
+    /**
+     * @return the index after the block comment starting at {@code start}; PostgreSQL lets these nest
+     */
+    private static int skipBlockComment(String sql, int start) {
+        int depth = 0;
+        int i = start;
+        while (i + 1 < sql.length()) {
+            if (sql.charAt(i) == '/' && sql.charAt(i + 1) == '*') {
+                depth++;
+                i += 2;
+            } else if (sql.charAt(i) == '*' && sql.charAt(i + 1) == '/') {
+                i += 2;
+                if (--depth == 0) {
+                    return i;
+                }
+            } else {
+                i++;
+            }
+        }
+        return sql.length();
+    }
+
+    /**
+     * @return the index after the {@code $tag$ ... $tag$} body starting at {@code start}, or just past the
+     *         {@code $} if it doesn't open one (e.g. a positional {@code $1} or part of an identifier)
+     */
+    private static int skipDollarQuoted(String sql, int start) {
+        if (start > 0 && isIdentifierPart(sql.charAt(start - 1))) {
+            return start + 1;
+        }
+        int tagEnd = start + 1;
+        while (tagEnd < sql.length() && sql.charAt(tagEnd) != '$') {
+            char c = sql.charAt(tagEnd);
+            boolean valid = tagEnd == start + 1 ? Character.isLetter(c) || c == '_' : isIdentifierPart(c);
+            if (!valid) {
+                return start + 1;
+            }
+            tagEnd++;
+        }
+        if (tagEnd >= sql.length()) {
+            return start + 1;
+        }
+        String tag = sql.substring(start, tagEnd + 1);
+        int close = sql.indexOf(tag, tagEnd + 1);
+        return close < 0 ? sql.length() : close + tag.length();
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    /**
+     * @return the SQL with {@code $n} placeholders, as sent to the proxy
+     */
+    String getSql() {
+        return sql;
+    }
+
+    int getParameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * @see #isReadOnly(String)
+     */
+    boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * @return the content hash naming this statement on the proxy
+     */
+    String getStatementId() {
+        String id = statementId;
+        if (id == null) {
+            id = contentHash(sql);
+            statementId = id;
+        }
+        return id;
+    }
+
+    /**
+     * @return {@code {"query": "...", "params": [}
+     */
+    String getRequestPrefix() {
+        return requestPrefix;
+    }
+
+    /**
+     * @return {@code {"statement": id, "query": "...", "params": [}, which also registers the statement
+     */
+    String getRegisteringPrefix() {
+        String prefix = registeringPrefix;
+        if (prefix == null) {
+            prefix = "{\"statement\": \"" + getStatementId() + "\", " + requestPrefix.substring(1);
+            registeringPrefix = prefix;
+        }
+        return prefix;
+    }
+
+    /**
+     * @return {@code {"statement": id, "params": [}, for a statement the proxy has already registered
+     */
+    String getHandlePrefix() {
+        String prefix = handlePrefix;
+        if (prefix == null) {
+            prefix = "{\"statement\": \"" + getStatementId() + "\", \"params\": [";
+            handlePrefix = prefix;
+        }
+        return prefix;
+    }
+}
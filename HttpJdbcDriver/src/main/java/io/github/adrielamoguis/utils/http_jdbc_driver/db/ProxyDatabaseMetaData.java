@@ -2634,7 +2634,7 @@ public class ProxyDatabaseMetaData implements DatabaseMetaData {
      */
     @Override
     public boolean supportsBatchUpdates() throws SQLException {
-        return false;
+        return true;
     }
 
     /**
@@ -1,25 +1,43 @@
 package io.github.adrielamoguis.utils.http_jdbc_driver.db;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ProxyTransport;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.StreamingBody;
+
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public class ProxyPreparedStatement implements PreparedStatement, HttpJdbcPreparedStatement {
+
+    /**
+     * Left in place of a stream parameter once it has been streamed: the stream is used up, so running the
+     * statement again needs the parameter set again.
+     */
+    private static final Object SENT_STREAM = new Object();
 
-public class ProxyPreparedStatement implements PreparedStatement {
     private final Connection connection;
-    private final HttpClient httpClient;
-    private final String endpoint;
-    private final String sql;
+    private final ProxyTransport transport;
+    private final ParsedSql sql;
     private boolean closed = false;
     private final List<Object> params = new ArrayList<>();
+    private ResultSet resultSet;
+    private int fetchSize;
+    private final StatementBatch batch = new StatementBatch();
+    // Set when rewriteBatchedInserts is on and the SQL is a simple single-row insert
+    private final InsertRewriter insertRewriter;
+    private final List<List<Object>> batchRows = new ArrayList<>();
+    private final boolean serverPrepare;
+    private final JsonEncoder encoder = new JsonEncoder();
 
-    public ProxyPreparedStatement(Connection connection, HttpClient httpClient, String endpoint, String sql) {
+    public ProxyPreparedStatement(Connection connection, ProxyTransport transport, String sql) {
         this.connection = connection;
-        this.httpClient = httpClient;
-        this.endpoint = endpoint;
-        this.sql = sql;
+        this.transport = transport;
+        this.sql = ParsedSql.get(sql);
+        this.insertRewriter = transport.getProperties().isRewriteBatchedInserts() ? InsertRewriter.parse(sql) : null;
+        this.serverPrepare = transport.getProperties().isServerPrepare();
     }
 
     private void checkClosed() throws SQLException {
@@ -31,100 +49,259 @@ public class ProxyPreparedStatement implements PreparedStatement {
     @Override
     public ResultSet executeQuery() throws SQLException {
         checkClosed();
+        materializeStreams();
         try {
-            String json = buildJson();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(endpoint))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(json))
-                    .build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() < 200 || response.statusCode() >= 300) {
-                throw new SQLException("HTTP error: status code " + response.statusCode() + ", body: " + response.body());
-            }
-            return new ProxyResultSet(response.body());
+            return replaceResultSet(executePrepared(true, json -> ProxyStatement.query(transport, json, fetchSize, sql.isReadOnly())));
         } catch (Exception e) {
-            throw new SQLException("HTTP error: " + e.getMessage(), e);
+            throw ProxyStatement.httpError(e);
         }
     }
 
     @Override
     public int executeUpdate() throws SQLException {
         checkClosed();
+        checkStreamsUnsent();
         try {
-            String json = buildJson();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(endpoint))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(json))
-                    .build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() < 200 || response.statusCode() >= 300) {
-                throw new SQLException("HTTP error: status code " + response.statusCode() + ", body: " + response.body());
-            }
-            String body = response.body();
-            int idx = body.indexOf("updateCount");
-            if (idx >= 0) {
-                int start = body.indexOf(":", idx) + 1;
-                int end = body.indexOf("}", start);
-                return Integer.parseInt(body.substring(start, end).trim());
+            boolean sendsNow = !ProxyStatement.isDeferred(connection);
+            if (sendsNow && hasStreams()) {
+                try {
+                    int count = ProxyStatement.parseUpdateCount(transport.send(buildStreamingBody()));
+                    markPrepared();
+                    return count;
+                } finally {
+                    transport.invalidateResults();
+                }
             }
-            return 0;
+            materializeStreams();
+            return executePrepared(sendsNow, json -> ProxyStatement.update(connection, transport, json));
         } catch (Exception e) {
-            throw new SQLException("HTTP error: " + e.getMessage(), e);
+            throw ProxyStatement.httpError(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<ResultSet> executeQueryAsync() throws SQLException {
+        checkClosed();
+        materializeStreams();
+        return executePreparedAsync(true, json -> ProxyStatement.queryAsync(transport, json, fetchSize, sql.isReadOnly()));
+    }
+
+    @Override
+    public CompletableFuture<Integer> executeUpdateAsync() throws SQLException {
+        checkClosed();
+        checkStreamsUnsent();
+        boolean sendsNow = !ProxyStatement.isDeferred(connection);
+        if (sendsNow && hasStreams()) {
+            return transport.sendAsync(buildStreamingBody()).whenComplete((response, error) -> transport.invalidateResults()).thenApply(response -> {
+                try {
+                    int count = ProxyStatement.parseUpdateCount(response);
+                    markPrepared();
+                    return count;
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            });
         }
+        materializeStreams();
+        return executePreparedAsync(sendsNow, json -> ProxyStatement.updateAsync(connection, transport, json));
     }
 
+    /**
+     * Runs the statement as a query, bypassing the result cache, since it may just as well be a write.
+     */
     @Override
     public boolean execute() throws SQLException {
         checkClosed();
-        executeQuery();
+        materializeStreams();
+        try {
+            replaceResultSet(executePrepared(true, json -> ProxyStatement.query(transport, json, fetchSize, false)));
+        } catch (Exception e) {
+            throw ProxyStatement.httpError(e);
+        } finally {
+            if (!sql.isReadOnly()) {
+                transport.invalidateResults();
+            }
+        }
         return true;
     }
 
-    private String buildJson() {
-        String formattedSql = formatSqlWithPostgresParams(sql, params.size());
-        StringBuilder sb = new StringBuilder();
-        sb.append("{\"query\": ");
-        sb.append(escapeJson(formattedSql));
-        sb.append(", \"params\": [");
+    /**
+     * Sends the statement by handle alone once the proxy has registered it, resending the text if the proxy
+     * has since dropped the handle. Only requests sent right away use the handle: a deferred or pipelined
+     * request that failed this way couldn't be replayed, so those always carry the text.
+     */
+    private <T> T executePrepared(boolean sendsNow, PreparedCall<T> call) throws Exception {
+        String json = buildJson();
+        if (!serverPrepare || !sendsNow) {
+            return call.run(json);
+        }
+        String id = sql.getStatementId();
+        if (canSendHandle(id)) {
+            try {
+                return call.run(buildJson(sql.getHandlePrefix(), params));
+            } catch (SQLException e) {
+                if (!ProxyTransport.isUnknownStatement(e)) {
+                    throw e;
+                }
+                transport.forgetStatement(id);
+            }
+        }
+        T result = call.run(json);
+        transport.markStatementPrepared(id);
+        return result;
+    }
+
+    /**
+     * Non-blocking variant of {@link #executePrepared}. Both bodies are built here, so later setXxx calls
+     * don't affect the request in flight.
+     */
+    private <T> CompletableFuture<T> executePreparedAsync(boolean sendsNow, AsyncPreparedCall<T> call) throws SQLException {
+        String json = buildJson();
+        if (!serverPrepare || !sendsNow) {
+            return call.run(json);
+        }
+        String id = sql.getStatementId();
+        if (!canSendHandle(id)) {
+            return call.run(json).thenApply(result -> {
+                transport.markStatementPrepared(id);
+                return result;
+            });
+        }
+        return call.run(buildJson(sql.getHandlePrefix(), params)).exceptionallyCompose(error -> {
+            if (!ProxyTransport.isUnknownStatement(error)) {
+                return CompletableFuture.failedFuture(error);
+            }
+            transport.forgetStatement(id);
+            try {
+                return call.run(json).thenApply(result -> {
+                    transport.markStatementPrepared(id);
+                    return result;
+                });
+            } catch (SQLException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    private boolean canSendHandle(String statementId) {
+        // Deferred writes ride along with the next request and would be lost if it had to be resent
+        return transport.isStatementPrepared(statementId) && transport.getDeferredCount() == 0;
+    }
+
+    @FunctionalInterface
+    private interface PreparedCall<T> {
+        T run(String json) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface AsyncPreparedCall<T> {
+        CompletableFuture<T> run(String json) throws SQLException;
+    }
+
+    /**
+     * A statement whose stream parameters are sent while they are read, so they are never held in memory.
+     * It always carries its text: the streams can't be read a second time to resend it after a failed handle.
+     * For the same reason each stream parameter is marked as sent, see {@link #SENT_STREAM}.
+     */
+    private StreamingBody buildStreamingBody() {
+        StreamingBody body = null;
+        StreamParameter pending = null;
+        encoder.reset().raw(serverPrepare ? sql.getRegisteringPrefix() : sql.getRequestPrefix());
         for (int i = 0; i < params.size(); i++) {
+            if (i > 0) encoder.raw(", ");
             Object param = params.get(i);
-            if (i > 0) sb.append(", ");
-            sb.append(paramToJson(param));
+            if (!(param instanceof StreamParameter)) {
+                encoder.value(param);
+                continue;
+            }
+            String text = encoder.raw("{\"bytea\": \"").toJson();
+            body = body == null ? new StreamingBody(text) : body.addBase64(pending.stream(), pending.length(), text);
+            pending = (StreamParameter) param;
+            params.set(i, SENT_STREAM);
+            encoder.reset().raw("\"}");
+        }
+        String tail = encoder.raw("]}").toJson();
+        return body.addBase64(pending.stream(), pending.length(), tail);
+    }
+
+    private void markPrepared() {
+        if (serverPrepare) {
+            transport.markStatementPrepared(sql.getStatementId());
+        }
+    }
+
+    private boolean hasStreams() {
+        for (Object param : params) {
+            if (param instanceof StreamParameter) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads stream parameters into byte arrays, for requests that have to be held as text: queries, whose
+     * body is also the result cache key, batches and deferred writes.
+     */
+    private void materializeStreams() throws SQLException {
+        checkStreamsUnsent();
+        for (int i = 0; i < params.size(); i++) {
+            if (params.get(i) instanceof StreamParameter) {
+                params.set(i, ((StreamParameter) params.get(i)).readAll());
+            }
+        }
+    }
+
+    private void checkStreamsUnsent() throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            if (params.get(i) == SENT_STREAM) {
+                throw new SQLException("Stream parameter " + (i + 1) + " was already sent and can't be read again; set it again before executing");
+            }
         }
-        sb.append("]}");
-        return sb.toString();
+    }
+
+    private void setStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        if (length < -1) {
+            throw new SQLException("Invalid stream length: " + length);
+        }
+        setObject(parameterIndex, x == null ? null : new StreamParameter(x, length));
     }
 
     /**
-     * Replace each '?' in the SQL with $1, $2, ... up to paramCount.
+     * @param length bytes to send from {@code stream}, or -1 for all of it
      */
-    private String formatSqlWithPostgresParams(String sql, int paramCount) {
-        StringBuilder sb = new StringBuilder();
-        int paramIndex = 1;
-        int last = 0;
-        for (int i = 0; i < sql.length(); i++) {
-            char c = sql.charAt(i);
-            if (c == '?') {
-                sb.append(sql, last, i);
-                sb.append('$').append(paramIndex++);
-                last = i + 1;
+    private record StreamParameter(InputStream stream, long length) {
+
+        byte[] readAll() throws SQLException {
+            try {
+                if (length < 0) {
+                    return stream.readAllBytes();
+                }
+                if (length > Integer.MAX_VALUE - 8) {
+                    throw new SQLException("A " + length + " byte stream is too large to buffer; send it with executeUpdate()");
+                }
+                byte[] bytes = stream.readNBytes((int) length);
+                if (bytes.length < length) {
+                    throw new SQLException("Stream ended after " + bytes.length + " of " + length + " bytes");
+                }
+                return bytes;
+            } catch (IOException e) {
+                throw new SQLException("Failed to read stream parameter: " + e.getMessage(), e);
             }
         }
-        sb.append(sql.substring(last));
-        return sb.toString();
     }
 
-    private String escapeJson(String s) {
-        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    private String buildJson() {
+        return buildJson(serverPrepare ? sql.getRegisteringPrefix() : sql.getRequestPrefix(), params);
     }
 
-    private String paramToJson(Object param) {
-        if (param == null) return "null";
-        if (param instanceof String) return escapeJson((String) param);
-        if (param instanceof Number || param instanceof Boolean) return param.toString();
-        return escapeJson(param.toString());
+    private String buildJson(String prefix, List<Object> params) {
+        encoder.reset().raw(prefix);
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0) encoder.raw(", ");
+            encoder.value(params.get(i));
+        }
+        return encoder.raw("]}").toJson();
     }
 
     @Override
@@ -171,7 +348,19 @@ public class ProxyPreparedStatement implements PreparedStatement {
 
     @Override
     public void close() throws SQLException {
+        if (closed) return;
         closed = true;
+        batch.clear();
+        batchRows.clear();
+        replaceResultSet(null);
+    }
+
+    private ResultSet replaceResultSet(ResultSet next) throws SQLException {
+        if (resultSet != null) {
+            resultSet.close();
+        }
+        resultSet = next;
+        return next;
     }
 
     @Override
@@ -188,22 +377,87 @@ public class ProxyPreparedStatement implements PreparedStatement {
     @Override public void setFloat(int parameterIndex, float x) throws SQLException { setObject(parameterIndex, x); }
     @Override public void setDouble(int parameterIndex, double x) throws SQLException { setObject(parameterIndex, x); }
     @Override public void setBigDecimal(int parameterIndex, java.math.BigDecimal x) throws SQLException { setObject(parameterIndex, x); }
-    @Override public void setBytes(int parameterIndex, byte[] x) throws SQLException { setObject(parameterIndex, Arrays.toString(x)); }
-    @Override public void setDate(int parameterIndex, java.sql.Date x) throws SQLException { setObject(parameterIndex, x != null ? x.toString() : null); }
-    @Override public void setTime(int parameterIndex, java.sql.Time x) throws SQLException { setObject(parameterIndex, x != null ? x.toString() : null); }
-    @Override public void setTimestamp(int parameterIndex, java.sql.Timestamp x) throws SQLException { setObject(parameterIndex, x != null ? x.toString() : null); }
+    @Override public void setBytes(int parameterIndex, byte[] x) throws SQLException { setObject(parameterIndex, x); }
+    @Override public void setDate(int parameterIndex, java.sql.Date x) throws SQLException { setObject(parameterIndex, x != null ? x.toLocalDate() : null); }
+    @Override public void setTime(int parameterIndex, java.sql.Time x) throws SQLException { setObject(parameterIndex, x != null ? x.toLocalTime() : null); }
+    @Override public void setTimestamp(int parameterIndex, java.sql.Timestamp x) throws SQLException { setObject(parameterIndex, x != null ? x.toLocalDateTime() : null); }
     @Override public void setAsciiStream(int parameterIndex, java.io.InputStream x, int length) throws SQLException { throw new SQLFeatureNotSupportedException(); }
     @Override public void setUnicodeStream(int parameterIndex, java.io.InputStream x, int length) throws SQLException { throw new SQLFeatureNotSupportedException(); }
-    @Override public void setBinaryStream(int parameterIndex, java.io.InputStream x, int length) throws SQLException { throw new SQLFeatureNotSupportedException(); }
-    @Override public void addBatch() throws SQLException { throw new SQLFeatureNotSupportedException(); }
-    @Override public void clearBatch() throws SQLException { throw new SQLFeatureNotSupportedException(); }
-    @Override public int[] executeBatch() throws SQLException { throw new SQLFeatureNotSupportedException(); }
+    @Override public void setBinaryStream(int parameterIndex, java.io.InputStream x, int length) throws SQLException { setStream(parameterIndex, x, length); }
+    @Override
+    public void addBatch() throws SQLException {
+        checkClosed();
+        materializeStreams();
+        if (insertRewriter == null) {
+            batch.add(buildJson());
+            return;
+        }
+        if (params.size() != insertRewriter.getParameterCount()) {
+            throw new SQLException("Expected " + insertRewriter.getParameterCount() + " parameters, got " + params.size());
+        }
+        batchRows.add(new ArrayList<>(params));
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        checkClosed();
+        batch.clear();
+        batchRows.clear();
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        checkClosed();
+        try {
+            return insertRewriter == null ? batch.execute(transport, ProxyStatement.isBuffered(connection)) : executeRewrittenBatch();
+        } finally {
+            transport.invalidateResults();
+        }
+    }
+
+    /**
+     * Sends the collected rows as multi-row inserts and maps each statement's count back to its rows.
+     */
+    private int[] executeRewrittenBatch() throws SQLException {
+        int rowsPerStatement = insertRewriter.rowsPerStatement();
+        StatementBatch rewritten = new StatementBatch();
+        for (int start = 0; start < batchRows.size(); start += rowsPerStatement) {
+            List<List<Object>> rows = batchRows.subList(start, Math.min(start + rowsPerStatement, batchRows.size()));
+            List<Object> flattened = new ArrayList<>(rows.size() * insertRewriter.getParameterCount());
+            rows.forEach(flattened::addAll);
+            rewritten.add(buildJson(ParsedSql.parse(insertRewriter.rewrite(rows.size())).getRequestPrefix(), flattened));
+        }
+        int rowCount = batchRows.size();
+        batchRows.clear();
+
+        int[] statementCounts;
+        try {
+            statementCounts = rewritten.execute(transport, ProxyStatement.isBuffered(connection));
+        } catch (BatchUpdateException e) {
+            int[] completed = e.getUpdateCounts();
+            int[] counts = new int[Math.min(rowCount, completed.length * rowsPerStatement)];
+            for (int i = 0; i < completed.length; i++) {
+                InsertRewriter.fillCounts(counts, i * rowsPerStatement, rowsPerStatement, completed[i]);
+            }
+            throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), counts, e.getCause());
+        }
+        int[] counts = new int[rowCount];
+        for (int i = 0; i < statementCounts.length; i++) {
+            int from = i * rowsPerStatement;
+            InsertRewriter.fillCounts(counts, from, Math.min(rowsPerStatement, rowCount - from), statementCounts[i]);
+        }
+        return counts;
+    }
     @Override public void setCharacterStream(int parameterIndex, java.io.Reader reader, int length) throws SQLException { throw new SQLFeatureNotSupportedException(); }
     @Override public void setRef(int parameterIndex, Ref x) throws SQLException { throw new SQLFeatureNotSupportedException(); }
-    @Override public void setBlob(int parameterIndex, Blob x) throws SQLException { throw new SQLFeatureNotSupportedException(); }
+    @Override public void setBlob(int parameterIndex, Blob x) throws SQLException { if (x == null) setNull(parameterIndex, Types.BLOB); else setStream(parameterIndex, x.getBinaryStream(), x.length()); }
     @Override public void setClob(int parameterIndex, Clob x) throws SQLException { throw new SQLFeatureNotSupportedException(); }
     @Override public void setArray(int parameterIndex, Array x) throws SQLException { throw new SQLFeatureNotSupportedException(); }
-    @Override public ResultSetMetaData getMetaData() throws SQLException { throw new SQLFeatureNotSupportedException(); }
+    /**
+     * Metadata is only known once the proxy has answered, so this describes the current result set, if any, and
+     * is {@code null} before the statement has been executed, as JDBC allows.
+     */
+    @Override public ResultSetMetaData getMetaData() throws SQLException { ResultSet rs = getResultSet(); return rs == null || rs.isClosed() ? null : rs.getMetaData(); }
     @Override public void setDate(int parameterIndex, java.sql.Date x, Calendar cal) throws SQLException { setDate(parameterIndex, x); }
     @Override public void setTime(int parameterIndex, java.sql.Time x, Calendar cal) throws SQLException { setTime(parameterIndex, x); }
     @Override public void setTimestamp(int parameterIndex, java.sql.Timestamp x, Calendar cal) throws SQLException { setTimestamp(parameterIndex, x); }
@@ -218,16 +472,16 @@ public class ProxyPreparedStatement implements PreparedStatement {
     @Override public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException { setObject(parameterIndex, x); }
     @Override public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException { setObject(parameterIndex, x); }
     @Override public void setAsciiStream(int parameterIndex, java.io.InputStream x, long length) throws SQLException { throw new SQLFeatureNotSupportedException(); }
-    @Override public void setBinaryStream(int parameterIndex, java.io.InputStream x, long length) throws SQLException { throw new SQLFeatureNotSupportedException(); }
+    @Override public void setBinaryStream(int parameterIndex, java.io.InputStream x, long length) throws SQLException { setStream(parameterIndex, x, length); }
     @Override public void setCharacterStream(int parameterIndex, java.io.Reader reader, long length) throws SQLException { throw new SQLFeatureNotSupportedException(); }
     @Override public void setAsciiStream(int parameterIndex, java.io.InputStream x) throws SQLException { throw new SQLFeatureNotSupportedException(); }
-    @Override public void setBinaryStream(int parameterIndex, java.io.InputStream x) throws SQLException { throw new SQLFeatureNotSupportedException(); }
+    @Override public void setBinaryStream(int parameterIndex, java.io.InputStream x) throws SQLException { setStream(parameterIndex, x, -1); }
     @Override public void setCharacterStream(int parameterIndex, java.io.Reader reader) throws SQLException { throw new SQLFeatureNotSupportedException(); }
     @Override public void setNCharacterStream(int parameterIndex, java.io.Reader value) throws SQLException { throw new SQLFeatureNotSupportedException(); }
     @Override public void setClob(int parameterIndex, java.io.Reader reader, long length) throws SQLException { throw new SQLFeatureNotSupportedException(); }
     @Override public void setClob(int parameterIndex, java.io.Reader reader) throws SQLException { throw new SQLFeatureNotSupportedException(); }
-    @Override public void setBlob(int parameterIndex, java.io.InputStream inputStream, long length) throws SQLException { throw new SQLFeatureNotSupportedException(); }
-    @Override public void setBlob(int parameterIndex, java.io.InputStream inputStream) throws SQLException { throw new SQLFeatureNotSupportedException(); }
+    @Override public void setBlob(int parameterIndex, java.io.InputStream inputStream, long length) throws SQLException { setStream(parameterIndex, inputStream, length); }
+    @Override public void setBlob(int parameterIndex, java.io.InputStream inputStream) throws SQLException { setStream(parameterIndex, inputStream, -1); }
     @Override public void setNClob(int parameterIndex, java.io.Reader reader, long length) throws SQLException { throw new SQLFeatureNotSupportedException(); }
     @Override public void setNClob(int parameterIndex, java.io.Reader reader) throws SQLException { throw new SQLFeatureNotSupportedException(); }
     @Override public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException { throw new SQLFeatureNotSupportedException(); }
@@ -282,16 +536,16 @@ public class ProxyPreparedStatement implements PreparedStatement {
         return false;
     }
 
-    @Override public ResultSet getResultSet() throws SQLException { return null; }
+    @Override public ResultSet getResultSet() throws SQLException { return resultSet; }
     @Override public int getUpdateCount() throws SQLException { return -1; }
     @Override public boolean getMoreResults() throws SQLException { return false; }
     @Override public void setFetchDirection(int direction) throws SQLException {}
     @Override public int getFetchDirection() throws SQLException { return ResultSet.FETCH_FORWARD; }
-    @Override public void setFetchSize(int rows) throws SQLException {}
-    @Override public int getFetchSize() throws SQLException { return 0; }
+    @Override public void setFetchSize(int rows) throws SQLException { checkClosed(); if (rows < 0) throw new SQLException("Fetch size must not be negative: " + rows); fetchSize = rows; }
+    @Override public int getFetchSize() throws SQLException { checkClosed(); return fetchSize; }
     @Override public int getResultSetConcurrency() throws SQLException { return ResultSet.CONCUR_READ_ONLY; }
     @Override public int getResultSetType() throws SQLException { return ResultSet.TYPE_FORWARD_ONLY; }
-    @Override public void addBatch(String sql) throws SQLException { throw new SQLFeatureNotSupportedException(); }
+    @Override public void addBatch(String sql) throws SQLException { throw new SQLException("addBatch(String) cannot be called on a PreparedStatement"); }
     @Override public Connection getConnection() throws SQLException { return connection; }
     @Override public boolean getMoreResults(int current) throws SQLException { return false; }
     @Override public ResultSet getGeneratedKeys() throws SQLException { throw new SQLFeatureNotSupportedException(); }
@@ -304,6 +558,6 @@ public class ProxyPreparedStatement implements PreparedStatement {
     @Override public void setPoolable(boolean poolable) throws SQLException {}
     @Override public void closeOnCompletion() throws SQLException {}
     @Override public boolean isCloseOnCompletion() throws SQLException { return false; }
-    @Override public <T> T unwrap(Class<T> iface) throws SQLException { throw new SQLException("Not a wrapper"); }
-    @Override public boolean isWrapperFor(Class<?> iface) throws SQLException { return false; }
+    @Override public <T> T unwrap(Class<T> iface) throws SQLException { if (iface.isInstance(this)) return iface.cast(this); throw new SQLException("Not a wrapper for " + iface); }
+    @Override public boolean isWrapperFor(Class<?> iface) throws SQLException { return iface.isInstance(this); }
 }
\ No newline at end of file
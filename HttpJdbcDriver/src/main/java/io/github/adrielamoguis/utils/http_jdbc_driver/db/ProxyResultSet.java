@@ -1,53 +1,95 @@
 package io.github.adrielamoguis.utils.http_jdbc_driver.db;
 
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ProxyResponse;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ProxyTransport;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ResponseEncoding;
+
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.net.URL;
 import java.sql.*;
 import java.sql.Date;
 import java.util.*;
-import com.fasterxml.jackson.databind.*;
 
 public class ProxyResultSet implements ResultSet {
-    private final List<Map<String, Object>> rows;
-    private final List<String> columns;
-    private int cursor = -1;
+
+    /**
+     * SQLState of the error raised for a column label the result doesn't have, ODBC's {@code Column not found}.
+     */
+    public static final String UNKNOWN_COLUMN_STATE = "42S22";
+
+    private final RowCursor rows;
+    private boolean closed = false;
+    private boolean wasNull;
+    private ColumnIndex labels;
 
     public ProxyResultSet(String json) {
-        List<Map<String, Object>> parsedRows = new ArrayList<>();
-        Set<String> columnSet = new LinkedHashSet<>();
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(json);
-            if (!root.isArray()) {
-                throw new RuntimeException("Expected a JSON array for ResultSet");
-            }
-            for (JsonNode rowNode : root) {
-                Map<String, Object> row = new HashMap<>();
-                Iterator<String> fieldNames = rowNode.fieldNames();
-                while (fieldNames.hasNext()) {
-                    String col = fieldNames.next();
-                    columnSet.add(col);
-                    JsonNode val = rowNode.get(col);
-                    row.put(col, val != null && !val.isNull() ? mapper.treeToValue(val, Object.class) : null);
-                }
-                parsedRows.add(row);
-            }
+            this.rows = MaterializedRows.read(JsonRowReader.of(json));
         } catch (Exception e) {
             throw new RuntimeException("Failed to parse JSON for ResultSet", e);
         }
-        this.columns = new ArrayList<>(columnSet);
-        this.rows = parsedRows;
+    }
+
+    ProxyResultSet(RowCursor rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Creates a result set holding every row of a buffered response, in whichever encoding it was sent.
+     */
+    static ProxyResultSet buffered(ProxyResponse response) throws SQLException {
+        try {
+            return new ProxyResultSet(MaterializedRows.read(JsonRowReader.of(response.createParser())));
+        } catch (IOException e) {
+            throw new SQLException("Failed to parse " + response.getEncoding() + " for ResultSet", e);
+        }
+    }
+
+    /**
+     * Creates a result set over the first page of a query sent with a fetch size. If the proxy kept a
+     * cursor open for the remaining rows, the next pages are fetched as {@link #next()} reaches them and
+     * the cursor is released by {@link #close()}.
+     */
+    static ProxyResultSet paged(ProxyTransport transport, ProxyResponse response, int fetchSize) throws SQLException {
+        MaterializedRows firstPage = PagedRows.readPage(response);
+        if (response.getCursor() == null) {
+            return new ProxyResultSet(firstPage);
+        }
+        return new ProxyResultSet(new PagedRows(transport, firstPage, response.getCursor(), fetchSize));
+    }
+
+    /**
+     * Creates a forward-only result set that reads rows from {@code body} as {@link #next()} advances,
+     * keeping only the current row in memory. Closing the result set closes the stream.
+     */
+    public static ProxyResultSet streaming(InputStream body) throws SQLException {
+        return streaming(new ProxyResponse(ResponseEncoding.JSON, body));
+    }
+
+    /**
+     * Streaming variant of {@link #buffered(ProxyResponse)}; closing the result set closes the response.
+     */
+    static ProxyResultSet streaming(ProxyResponse response) throws SQLException {
+        try {
+            return new ProxyResultSet(new StreamingRows(JsonRowReader.of(response.createParser())));
+        } catch (IOException e) {
+            try {
+                response.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new SQLException("Failed to parse " + response.getEncoding() + " for ResultSet", e);
+        }
     }
 
     @Override
     public boolean next() throws SQLException {
-        if (cursor + 1 < rows.size()) {
-            cursor++;
-            return true;
-        }
-        return false;
+        checkClosed();
+        return rows.next();
     }
 
     /**
@@ -78,7 +120,11 @@ public class ProxyResultSet implements ResultSet {
      */
     @Override
     public void close() throws SQLException {
-
+        if (closed) {
+            return;
+        }
+        closed = true;
+        rows.close();
     }
 
     @Override
@@ -93,27 +139,22 @@ public class ProxyResultSet implements ResultSet {
 
     @Override
     public int getInt(int columnIndex) throws SQLException {
-        Object val = getObject(columnIndex);
-        return val == null ? 0 : Integer.parseInt(val.toString());
+        return (int) longValue(column(columnIndex));
     }
 
     @Override
     public int getInt(String columnLabel) throws SQLException {
-        Object val = getObject(columnLabel);
-        return val == null ? 0 : Integer.parseInt(val.toString());
+        return (int) longValue(column(columnLabel));
     }
 
     @Override
     public Object getObject(int columnIndex) throws SQLException {
-        checkCursor();
-        String col = columns.get(columnIndex - 1);
-        return rows.get(cursor).get(col);
+        return value(column(columnIndex));
     }
 
     @Override
     public Object getObject(String columnLabel) throws SQLException {
-        checkCursor();
-        return rows.get(cursor).get(columnLabel);
+        return value(column(columnLabel));
     }
 
     /**
@@ -128,7 +169,10 @@ public class ProxyResultSet implements ResultSet {
      */
     @Override
     public int findColumn(String columnLabel) throws SQLException {
-        return 0;
+        checkClosed();
+        int index = labels().indexOf(columnLabel);
+        if (index < 0) throw new SQLException("Invalid column label: " + columnLabel, UNKNOWN_COLUMN_STATE);
+        return index + 1;
     }
 
     /**
@@ -185,7 +229,7 @@ public class ProxyResultSet implements ResultSet {
      */
     @Override
     public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
-        return null;
+        return toBigDecimal(value(column(columnIndex)));
     }
 
     /**
@@ -204,7 +248,7 @@ public class ProxyResultSet implements ResultSet {
      */
     @Override
     public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
-        return null;
+        return toBigDecimal(value(column(columnLabel)));
     }
 
     /**
@@ -550,7 +594,9 @@ public class ProxyResultSet implements ResultSet {
      */
     @Override
     public void setFetchSize(int rows) throws SQLException {
-
+        checkClosed();
+        if (rows < 0) throw new SQLException("Fetch size must not be negative: " + rows);
+        this.rows.setFetchSize(rows);
     }
 
     /**
@@ -565,7 +611,8 @@ public class ProxyResultSet implements ResultSet {
      */
     @Override
     public int getFetchSize() throws SQLException {
-        return 0;
+        checkClosed();
+        return rows.getFetchSize();
     }
 
     /**
@@ -582,7 +629,7 @@ public class ProxyResultSet implements ResultSet {
      */
     @Override
     public int getType() throws SQLException {
-        return 0;
+        return ResultSet.TYPE_FORWARD_ONLY;
     }
 
     /**
@@ -2086,23 +2133,97 @@ public class ProxyResultSet implements ResultSet {
         return null;
     }
 
-    private void checkCursor() throws SQLException {
-        if (cursor < 0 || cursor >= rows.size()) throw new SQLException("Invalid cursor position");
+    /**
+     * @return the position of the 1-based {@code columnIndex} in the current row
+     */
+    private int column(int columnIndex) throws SQLException {
+        checkRow();
+        if (columnIndex < 1 || columnIndex > rows.columns().size()) throw new SQLException("Invalid column index: " + columnIndex);
+        return columnIndex - 1;
+    }
+
+    /**
+     * @return the position of {@code columnLabel} in the current row, or -1 if there is no such column, which reads
+     *         as NULL since a streamed array of objects may name a column in later rows only
+     */
+    /**
+     * @return the position of {@code columnLabel}, or -1 for one a growing result hasn't shown yet, which reads as NULL
+     */
+    private int column(String columnLabel) throws SQLException {
+        checkRow();
+        int index = labels().indexOf(columnLabel);
+        if (index < 0 && !rows.columnsMayGrow()) {
+            throw new SQLException("Invalid column label: " + columnLabel, UNKNOWN_COLUMN_STATE);
+        }
+        return index;
+    }
+
+    /**
+     * @return the label table for the current columns, rebuilt only when a stream or new page adds columns
+     */
+    private ColumnIndex labels() {
+        List<String> columns = rows.columns();
+        if (labels == null || labels.size() != columns.size()) {
+            labels = new ColumnIndex(columns);
+        }
+        return labels;
+    }
+
+    private Object value(int column) {
+        Object value = column < 0 ? null : rows.value(column);
+        wasNull = value == null;
+        return value;
+    }
+
+    private static BigDecimal toBigDecimal(Object value) throws SQLException {
+        if (value == null || value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        }
+        if (value instanceof Long || value instanceof Integer) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        try {
+            return new BigDecimal(value.toString());
+        } catch (NumberFormatException e) {
+            throw new SQLException("Cannot convert '" + value + "' to BigDecimal", "22018", e);
+        }
+    }
+
+    private long longValue(int column) {
+        wasNull = column < 0 || rows.isNull(column);
+        return wasNull ? 0 : rows.longValue(column);
+    }
+
+    private double doubleValue(int column) {
+        wasNull = column < 0 || rows.isNull(column);
+        return wasNull ? 0 : rows.doubleValue(column);
+    }
+
+    private void checkRow() throws SQLException {
+        checkClosed();
+        if (!rows.hasRow()) throw new SQLException("Invalid cursor position");
+    }
+
+    private void checkClosed() throws SQLException {
+        if (closed) throw new SQLException("ResultSet is closed");
     }
 
     // ...stub or throw for all other ResultSet methods...
-    @Override public boolean wasNull() throws SQLException { return false; }
+    @Override public boolean wasNull() throws SQLException { return wasNull; }
     @Override public boolean getBoolean(int columnIndex) throws SQLException { Object v = getObject(columnIndex); return v != null && Boolean.parseBoolean(v.toString()); }
     @Override public boolean getBoolean(String columnLabel) throws SQLException { Object v = getObject(columnLabel); return v != null && Boolean.parseBoolean(v.toString()); }
-    @Override public byte getByte(int columnIndex) throws SQLException { Object v = getObject(columnIndex); return v == null ? 0 : Byte.parseByte(v.toString()); }
-    @Override public byte getByte(String columnLabel) throws SQLException { Object v = getObject(columnLabel); return v == null ? 0 : Byte.parseByte(v.toString()); }
-    @Override public short getShort(int columnIndex) throws SQLException { Object v = getObject(columnIndex); return v == null ? 0 : Short.parseShort(v.toString()); }
-    @Override public short getShort(String columnLabel) throws SQLException { Object v = getObject(columnLabel); return v == null ? 0 : Short.parseShort(v.toString()); }
-    @Override public long getLong(int columnIndex) throws SQLException { Object v = getObject(columnIndex); return v == null ? 0 : Long.parseLong(v.toString()); }
-    @Override public long getLong(String columnLabel) throws SQLException { Object v = getObject(columnLabel); return v == null ? 0 : Long.parseLong(v.toString()); }
-    @Override public float getFloat(int columnIndex) throws SQLException { Object v = getObject(columnIndex); return v == null ? 0 : Float.parseFloat(v.toString()); }
-    @Override public float getFloat(String columnLabel) throws SQLException { Object v = getObject(columnLabel); return v == null ? 0 : Float.parseFloat(v.toString()); }
-    @Override public double getDouble(int columnIndex) throws SQLException { Object v = getObject(columnIndex); return v == null ? 0 : Double.parseDouble(v.toString()); }
+    @Override public byte getByte(int columnIndex) throws SQLException { return (byte) longValue(column(columnIndex)); }
+    @Override public byte getByte(String columnLabel) throws SQLException { return (byte) longValue(column(columnLabel)); }
+    @Override public short getShort(int columnIndex) throws SQLException { return (short) longValue(column(columnIndex)); }
+    @Override public short getShort(String columnLabel) throws SQLException { return (short) longValue(column(columnLabel)); }
+    @Override public long getLong(int columnIndex) throws SQLException { return longValue(column(columnIndex)); }
+    @Override public long getLong(String columnLabel) throws SQLException { return longValue(column(columnLabel)); }
+    @Override public float getFloat(int columnIndex) throws SQLException { return (float) doubleValue(column(columnIndex)); }
+    @Override public float getFloat(String columnLabel) throws SQLException { return (float) doubleValue(column(columnLabel)); }
+    @Override public double getDouble(int columnIndex) throws SQLException { return doubleValue(column(columnIndex)); }
 
     /**
      * Retrieves the value of the designated column in the current row
@@ -2290,7 +2411,7 @@ public class ProxyResultSet implements ResultSet {
         return null;
     }
 
-    @Override public double getDouble(String columnLabel) throws SQLException { Object v = getObject(columnLabel); return v == null ? 0 : Double.parseDouble(v.toString()); }
+    @Override public double getDouble(String columnLabel) throws SQLException { return doubleValue(column(columnLabel)); }
 
     /**
      * Retrieves the value of the designated column in the current row
@@ -2556,7 +2677,8 @@ public class ProxyResultSet implements ResultSet {
      */
     @Override
     public ResultSetMetaData getMetaData() throws SQLException {
-        return null;
+        checkClosed();
+        return new ProxyResultSetMetaData(rows);
     }
 
     /**
@@ -2884,7 +3006,7 @@ public class ProxyResultSet implements ResultSet {
      */
     @Override
     public boolean isClosed() throws SQLException {
-        return false;
+        return closed;
     }
 
     /**
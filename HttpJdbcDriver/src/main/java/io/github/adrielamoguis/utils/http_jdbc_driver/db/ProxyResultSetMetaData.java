@@ -0,0 +1,62 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ColumnInfo;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Column metadata of a {@link ProxyResultSet}, taken from the names and the optional {@code types},
+ * {@code precision}, {@code scale} and {@code nullable} arrays of a columnar envelope. Columns the proxy
+ * declared nothing about report {@link java.sql.Types#OTHER} with unknown nullability. Every column is
+ * read-only: the proxy doesn't say which table, if any, a column came from.
+ */
+class ProxyResultSetMetaData implements ResultSetMetaData {
+
+    private final List<String> columns;
+    private final ColumnInfo[] infos;
+
+    ProxyResultSetMetaData(RowCursor rows) {
+        this.columns = List.copyOf(rows.columns());
+        this.infos = new ColumnInfo[columns.size()];
+        for (int i = 0; i < infos.length; i++) {
+            infos[i] = rows.columnInfo(i);
+        }
+    }
+
+    private ColumnInfo info(int column) throws SQLException {
+        if (column < 1 || column > infos.length) throw new SQLException("Invalid column index: " + column);
+        return infos[column - 1];
+    }
+
+    @Override public int getColumnCount() { return infos.length; }
+    @Override public String getColumnLabel(int column) throws SQLException { info(column); return columns.get(column - 1); }
+    @Override public String getColumnName(int column) throws SQLException { return getColumnLabel(column); }
+    @Override public int getColumnType(int column) throws SQLException { return info(column).type().getJdbcType(); }
+    @Override public String getColumnClassName(int column) throws SQLException { return info(column).type().getClassName(); }
+
+    @Override
+    public String getColumnTypeName(int column) throws SQLException {
+        String typeName = info(column).typeName();
+        return typeName == null ? "" : typeName;
+    }
+
+    @Override public int getPrecision(int column) throws SQLException { return info(column).precision(); }
+    @Override public int getScale(int column) throws SQLException { return info(column).scale(); }
+    @Override public int isNullable(int column) throws SQLException { return info(column).nullable(); }
+    @Override public boolean isSigned(int column) throws SQLException { return info(column).type().isNumeric(); }
+    @Override public boolean isCaseSensitive(int column) throws SQLException { return !info(column).type().isNumeric(); }
+    @Override public int getColumnDisplaySize(int column) throws SQLException { return info(column).precision(); }
+    @Override public boolean isAutoIncrement(int column) throws SQLException { info(column); return false; }
+    @Override public boolean isSearchable(int column) throws SQLException { info(column); return true; }
+    @Override public boolean isCurrency(int column) throws SQLException { info(column); return false; }
+    @Override public String getSchemaName(int column) throws SQLException { info(column); return ""; }
+    @Override public String getTableName(int column) throws SQLException { info(column); return ""; }
+    @Override public String getCatalogName(int column) throws SQLException { info(column); return ""; }
+    @Override public boolean isReadOnly(int column) throws SQLException { info(column); return true; }
+    @Override public boolean isWritable(int column) throws SQLException { info(column); return false; }
+    @Override public boolean isDefinitelyWritable(int column) throws SQLException { info(column); return false; }
+    @Override public <T> T unwrap(Class<T> iface) throws SQLException { if (iface.isInstance(this)) return iface.cast(this); throw new SQLException("Not a wrapper for " + iface); }
+    @Override public boolean isWrapperFor(Class<?> iface) throws SQLException { return iface.isInstance(this); }
+}
@@ -1,40 +1,44 @@
 package io.github.adrielamoguis.utils.http_jdbc_driver.db;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.github.adrielamoguis.utils.http_jdbc_driver.ConnectionProperties;
+import io.github.adrielamoguis.utils.http_jdbc_driver.HttpJdbcConnection;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.CachedResult;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ProxyResponse;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ProxyTransport;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ResultCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
 import java.sql.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public class ProxyStatement implements Statement, HttpJdbcStatement {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProxyStatement.class);
 
-public class ProxyStatement implements Statement {
     private final Connection connection;
-    private final HttpClient httpClient;
-    private final String endpoint;
+    private final ProxyTransport transport;
     private boolean closed = false;
+    private ResultSet resultSet;
+    private int fetchSize;
+    private final StatementBatch batch = new StatementBatch();
 
-    public ProxyStatement(Connection connection, HttpClient httpClient, String endpoint) {
+    public ProxyStatement(Connection connection, ProxyTransport transport) {
         this.connection = connection;
-        this.httpClient = httpClient;
-        this.endpoint = endpoint;
+        this.transport = transport;
     }
 
     @Override
     public ResultSet executeQuery(String sql) throws SQLException {
         checkClosed();
         try {
-            String json = "{\"query\": " + escapeJson(sql) + ", \"params\": []}";
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(endpoint))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(json))
-                    .build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() < 200 || response.statusCode() >= 300) {
-                throw new SQLException("HTTP error: status code " + response.statusCode() + ", body: " + response.body());
-            }
-            return new ProxyResultSet(response.body());
+            String json = JsonEncoder.query(sql);
+            return replaceResultSet(query(transport, json, fetchSize, ParsedSql.isReadOnly(sql)));
         } catch (Exception e) {
-            throw new SQLException("HTTP error: " + e.getMessage(), e);
+            throw httpError(e);
         }
     }
 
@@ -42,41 +46,233 @@ public class ProxyStatement implements Statement {
     public int executeUpdate(String sql) throws SQLException {
         checkClosed();
         try {
-            String json = "{\"query\": " + escapeJson(sql) + ", \"params\": []}";
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(endpoint))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(json))
-                    .build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() < 200 || response.statusCode() >= 300) {
-                throw new SQLException("HTTP error: status code " + response.statusCode() + ", body: " + response.body());
+            String json = JsonEncoder.query(sql);
+            return update(connection, transport, json);
+        } catch (Exception e) {
+            throw httpError(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<ResultSet> executeQueryAsync(String sql) throws SQLException {
+        checkClosed();
+        String json = JsonEncoder.query(sql);
+        return queryAsync(transport, json, fetchSize, ParsedSql.isReadOnly(sql));
+    }
+
+    @Override
+    public CompletableFuture<Integer> executeUpdateAsync(String sql) throws SQLException {
+        checkClosed();
+        String json = JsonEncoder.query(sql);
+        return updateAsync(connection, transport, json);
+    }
+
+    /**
+     * Runs a query. With a fetch size the proxy is asked for a cursor and the rows are paged in;
+     * otherwise they are served from the result cache when the connection enabled it and the statement
+     * is {@code cacheable}, streamed when {@code streamResults} is enabled and materialized if not.
+     *
+     * @param cacheable whether the statement only reads; anything else always goes to the proxy
+     */
+    static ProxyResultSet query(ProxyTransport transport, String json, int fetchSize, boolean cacheable) throws Exception {
+        if (fetchSize > 0) {
+            return ProxyResultSet.paged(transport, transport.send(withFetchSize(json, fetchSize)), fetchSize);
+        }
+        if (cacheable && transport.isResultCacheable()) {
+            ResultCache.Key key = transport.resultCacheKey(json);
+            CachedRows cached = lookup(transport, key, json);
+            if (cached == null) {
+                long generation = transport.getResultCache().generation(key.client());
+                cached = CachedRows.capture(transport.send(json));
+                store(transport, key, cached, generation);
+            }
+            return new ProxyResultSet(cached.open());
+        }
+        if (transport.getProperties().isStreamResults()) {
+            return ProxyResultSet.streaming(transport.openStream(json));
+        }
+        return ProxyResultSet.buffered(transport.send(json));
+    }
+
+    static CompletableFuture<ResultSet> queryAsync(ProxyTransport transport, String json, int fetchSize, boolean cacheable) {
+        if (fetchSize == 0 && cacheable && transport.isResultCacheable()) {
+            ResultCache.Key key = transport.resultCacheKey(json);
+            CachedRows cached = lookup(transport, key, json);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(new ProxyResultSet(cached.open()));
             }
-            // For simplicity, assume the response contains {"updateCount": N}
-            String body = response.body();
-            int idx = body.indexOf("updateCount");
-            if (idx >= 0) {
-                int start = body.indexOf(":", idx) + 1;
-                int end = body.indexOf("}", start);
-                return Integer.parseInt(body.substring(start, end).trim());
+            long generation = transport.getResultCache().generation(key.client());
+            return transport.sendAsync(json).thenApply(response -> {
+                try {
+                    CachedRows result = CachedRows.capture(response);
+                    store(transport, key, result, generation);
+                    return new ProxyResultSet(result.open());
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        }
+        // The transport hands the body over on a pool thread, so decoding stays off the caller thread
+        return transport.sendAsync(fetchSize > 0 ? withFetchSize(json, fetchSize) : json).thenApply(response -> {
+            try {
+                return fetchSize > 0 ? ProxyResultSet.paged(transport, response, fetchSize) : ProxyResultSet.buffered(response);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * @return the cached result for {@code key}, or {@code null} on a miss; a result past its TTL is still
+     *         returned within the stale window, and the first caller to see it starts a background refresh
+     */
+    private static CachedRows lookup(ProxyTransport transport, ResultCache.Key key, String json) {
+        ResultCache cache = transport.getResultCache();
+        ResultCache.Hit hit = cache.get(key);
+        // Only this class fills the cache, always with CachedRows
+        if (hit == null || !(hit.result() instanceof CachedRows cached)) {
+            return null;
+        }
+        if (hit.revalidate()) {
+            long generation = cache.generation(key.client());
+            transport.refreshAsync(json).whenComplete((response, error) -> {
+                try {
+                    if (error == null) {
+                        store(transport, key, CachedRows.capture(response), generation);
+                        return;
+                    }
+                } catch (SQLException e) {
+                    error = e;
+                }
+                LOGGER.debug("Failed to refresh cached result; serving the stale copy until it expires", error);
+                cache.refreshFailed(key);
+            });
+        }
+        return cached;
+    }
+
+    /**
+     * @param generation the client's invalidation generation read before the query was sent; the result is
+     *                   dropped if a write invalidated the client's results since
+     */
+    private static void store(ProxyTransport transport, ResultCache.Key key, CachedResult result, long generation) {
+        ConnectionProperties properties = transport.getProperties();
+        transport.getResultCache().put(key, result, properties.getResultCacheTtl(), properties.getResultCacheStale(), generation);
+    }
+
+    static boolean isDeferred(Connection connection) throws SQLException {
+        return connection instanceof HttpJdbcConnection && ((HttpJdbcConnection) connection).isDeferringWrites();
+    }
+
+    /**
+     * @return whether a batch should be held with the transaction's other writes instead of sent now
+     */
+    static boolean isBuffered(Connection connection) throws SQLException {
+        return isDeferred(connection) && ((HttpJdbcConnection) connection).isBufferedTransactions();
+    }
+
+    /**
+     * Wraps a failure to run a statement, keeping the SQLState when it was an SQLException, e.g. an aborted
+     * transaction.
+     */
+    static SQLException httpError(Exception e) {
+        return new SQLException("HTTP error: " + e.getMessage(), e instanceof SQLException ? ((SQLException) e).getSQLState() : null, e);
+    }
+
+    /**
+     * Adds {@code "fetchSize": n} to a request object, asking the proxy to keep a cursor and send the first page only.
+     */
+    private static String withFetchSize(String json, int fetchSize) {
+        return json.substring(0, json.lastIndexOf('}')) + ", \"fetchSize\": " + fetchSize + "}";
+    }
+
+    /**
+     * Runs an update, or queues it on the transport if the connection defers writes; a deferred
+     * update reports {@link Statement#SUCCESS_NO_INFO} and any failure surfaces at the next sync point.
+     */
+    static int update(Connection connection, ProxyTransport transport, String json) throws Exception {
+        if (isDeferred(connection)) {
+            transport.defer(json);
+            return SUCCESS_NO_INFO;
+        }
+        try {
+            return parseUpdateCount(transport.send(json));
+        } finally {
+            transport.invalidateResults();
+        }
+    }
+
+    static CompletableFuture<Integer> updateAsync(Connection connection, ProxyTransport transport, String json) throws SQLException {
+        if (isDeferred(connection)) {
+            transport.defer(json);
+            return CompletableFuture.completedFuture(SUCCESS_NO_INFO);
+        }
+        return transport.sendAsync(json).whenComplete((response, error) -> transport.invalidateResults()).thenApply(response -> {
+            try {
+                return parseUpdateCount(response);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Reads {"updateCount": N} from the response, or 0 if the proxy didn't send one
+     */
+    static int parseUpdateCount(ProxyResponse response) throws SQLException {
+        try (JsonParser parser = response.createParser()) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return 0;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (field.equals("updateCount")) {
+                    return parser.getValueAsInt();
+                }
+                parser.skipChildren();
             }
             return 0;
-        } catch (Exception e) {
-            throw new SQLException("HTTP error: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new SQLException("Failed to parse " + response.getEncoding() + " update count", e);
         }
     }
 
+    /**
+     * Runs any statement as a query, bypassing the result cache, since it may just as well be a write.
+     */
     @Override
     public boolean execute(String sql) throws SQLException {
         checkClosed();
-        // For simplicity, treat as query
-        executeQuery(sql);
+        try {
+            replaceResultSet(query(transport, JsonEncoder.query(sql), fetchSize, false));
+        } catch (Exception e) {
+            throw httpError(e);
+        } finally {
+            if (!ParsedSql.isReadOnly(sql)) {
+                transport.invalidateResults();
+            }
+        }
         return true;
     }
 
     @Override
     public void close() throws SQLException {
+        if (closed) return;
         closed = true;
+        batch.clear();
+        replaceResultSet(null);
+    }
+
+    /**
+     * Closes the previous result, which also releases its response stream when results are streamed.
+     */
+    private ResultSet replaceResultSet(ResultSet next) throws SQLException {
+        if (resultSet != null) {
+            resultSet.close();
+        }
+        resultSet = next;
+        return next;
     }
 
     @Override
@@ -90,10 +286,6 @@ public class ProxyStatement implements Statement {
         if (closed) throw new SQLException("Statement is closed");
     }
 
-    private String escapeJson(String sql) {
-        return "\"" + sql.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
-    }
-
     // ...implement or stub other Statement methods as needed...
     @Override public int getMaxFieldSize() throws SQLException { return 0; }
     @Override public void setMaxFieldSize(int max) throws SQLException {}
@@ -106,18 +298,18 @@ public class ProxyStatement implements Statement {
     @Override public SQLWarning getWarnings() throws SQLException { return null; }
     @Override public void clearWarnings() throws SQLException {}
     @Override public void setCursorName(String name) throws SQLException {}
-    @Override public ResultSet getResultSet() throws SQLException { return null; }
+    @Override public ResultSet getResultSet() throws SQLException { return resultSet; }
     @Override public int getUpdateCount() throws SQLException { return -1; }
     @Override public boolean getMoreResults() throws SQLException { return false; }
     @Override public void setFetchDirection(int direction) throws SQLException {}
     @Override public int getFetchDirection() throws SQLException { return ResultSet.FETCH_FORWARD; }
-    @Override public void setFetchSize(int rows) throws SQLException {}
-    @Override public int getFetchSize() throws SQLException { return 0; }
+    @Override public void setFetchSize(int rows) throws SQLException { checkClosed(); if (rows < 0) throw new SQLException("Fetch size must not be negative: " + rows); fetchSize = rows; }
+    @Override public int getFetchSize() throws SQLException { checkClosed(); return fetchSize; }
     @Override public int getResultSetConcurrency() throws SQLException { return ResultSet.CONCUR_READ_ONLY; }
     @Override public int getResultSetType() throws SQLException { return ResultSet.TYPE_FORWARD_ONLY; }
-    @Override public void addBatch(String sql) throws SQLException { throw new SQLFeatureNotSupportedException(); }
-    @Override public void clearBatch() throws SQLException { throw new SQLFeatureNotSupportedException(); }
-    @Override public int[] executeBatch() throws SQLException { throw new SQLFeatureNotSupportedException(); }
+    @Override public void addBatch(String sql) throws SQLException { checkClosed(); batch.add(JsonEncoder.query(sql)); }
+    @Override public void clearBatch() throws SQLException { checkClosed(); batch.clear(); }
+    @Override public int[] executeBatch() throws SQLException { checkClosed(); try { return batch.execute(transport, isBuffered(connection)); } finally { transport.invalidateResults(); } }
     @Override public Connection getConnection() throws SQLException { return connection; }
     @Override public boolean getMoreResults(int current) throws SQLException { return false; }
     @Override public ResultSet getGeneratedKeys() throws SQLException { throw new SQLFeatureNotSupportedException(); }
@@ -132,6 +324,6 @@ public class ProxyStatement implements Statement {
     @Override public void setPoolable(boolean poolable) throws SQLException {}
     @Override public void closeOnCompletion() throws SQLException {}
     @Override public boolean isCloseOnCompletion() throws SQLException { return false; }
-    @Override public <T> T unwrap(Class<T> iface) throws SQLException { throw new SQLException("Not a wrapper"); }
-    @Override public boolean isWrapperFor(Class<?> iface) throws SQLException { return false; }
+    @Override public <T> T unwrap(Class<T> iface) throws SQLException { if (iface.isInstance(this)) return iface.cast(this); throw new SQLException("Not a wrapper for " + iface); }
+    @Override public boolean isWrapperFor(Class<?> iface) throws SQLException { return iface.isInstance(this); }
 }
\ No newline at end of file
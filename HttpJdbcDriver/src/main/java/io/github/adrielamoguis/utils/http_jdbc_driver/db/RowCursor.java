@@ -0,0 +1,87 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ColumnInfo;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Source of rows behind a {@link ProxyResultSet}: a fully materialized result, a forward-only
+ * stream that only ever holds the current row, or pages fetched from a server-side cursor.
+ */
+interface RowCursor {
+
+    /**
+     * @return column names in the order they were first seen; may grow while a stream is read
+     */
+    List<String> columns();
+
+    /**
+     * @return whether rows still to come may add columns, as objects read from a stream or later pages can; a
+     *         label not seen yet then reads as SQL NULL rather than failing
+     */
+    default boolean columnsMayGrow() {
+        return false;
+    }
+
+    /**
+     * Moves to the next row.
+     *
+     * @return {@code false} once there are no more rows
+     */
+    boolean next() throws SQLException;
+
+    /**
+     * @return the current row, or {@code null} before the first or after the last row
+     */
+    Map<String, Object> current();
+
+    /**
+     * @return whether the cursor is on a row
+     */
+    default boolean hasRow() {
+        return current() != null;
+    }
+
+    /**
+     * The accessors below read the current row by column position; cursors that store values unboxed
+     * override them so typed getters skip boxing and parsing.
+     */
+    default Object value(int column) {
+        return current().get(columns().get(column));
+    }
+
+    default boolean isNull(int column) {
+        return value(column) == null;
+    }
+
+    default long longValue(int column) {
+        Object value = value(column);
+        return value == null ? 0 : value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+    }
+
+    default double doubleValue(int column) {
+        Object value = value(column);
+        return value == null ? 0 : value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+    }
+
+    /**
+     * @return what the proxy declared about the column at {@code column}, {@link ColumnInfo#UNKNOWN} if nothing
+     */
+    default ColumnInfo columnInfo(int column) {
+        return ColumnInfo.UNKNOWN;
+    }
+
+    /**
+     * Hints how many rows to fetch per round trip; only meaningful for paged cursors.
+     */
+    default void setFetchSize(int rows) {
+    }
+
+    default int getFetchSize() {
+        return 0;
+    }
+
+    void close() throws SQLException;
+}
@@ -0,0 +1,129 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ProxyResponse;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ProxyTransport;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Statement requests collected by {@code addBatch} and sent as {@code {"batch": [request, ...]}},
+ * each entry being the same object a single {@code executeUpdate} would send. The proxy answers with
+ * {@code {"updateCounts": [n, ...]}}. Batches larger than {@code batchMaxBytes} go out in several requests.
+ */
+class StatementBatch {
+
+    private final List<String> requests = new ArrayList<>();
+    private final List<Integer> sizes = new ArrayList<>();
+
+    void add(String json) {
+        requests.add(json);
+        sizes.add(json.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    void clear() {
+        requests.clear();
+        sizes.clear();
+    }
+
+    /**
+     * Sends every collected request and clears the batch.
+     *
+     * @param defer hold the requests on the transport with the rest of a buffered transaction instead;
+     *              every count is then {@link Statement#SUCCESS_NO_INFO}
+     * @throws BatchUpdateException carrying the counts of the chunks that succeeded before the failure
+     */
+    int[] execute(ProxyTransport transport, boolean defer) throws SQLException {
+        if (defer) {
+            requests.forEach(transport::defer);
+            int[] counts = new int[requests.size()];
+            Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+            clear();
+            return counts;
+        }
+        int maxBytes = transport.getProperties().getBatchMaxBytes();
+        int[] counts = new int[requests.size()];
+        int done = 0;
+        try {
+            while (done < requests.size()) {
+                int end = chunkEnd(done, maxBytes);
+                int[] chunk = send(transport, requests.subList(done, end));
+                System.arraycopy(chunk, 0, counts, done, chunk.length);
+                done = end;
+            }
+            return counts;
+        } catch (SQLException e) {
+            throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), Arrays.copyOf(counts, done), e);
+        } finally {
+            clear();
+        }
+    }
+
+    /**
+     * @return the exclusive end of the chunk starting at {@code start}; always holds at least one request
+     */
+    private int chunkEnd(int start, int maxBytes) {
+        // {"batch": [ ... ]} plus one comma per entry
+        long bytes = 13 + sizes.get(start);
+        int end = start + 1;
+        while (end < requests.size() && bytes + 1 + sizes.get(end) <= maxBytes) {
+            bytes += 1 + sizes.get(end);
+            end++;
+        }
+        return end;
+    }
+
+    private static int[] send(ProxyTransport transport, List<String> chunk) throws SQLException {
+        String json = "{\"batch\": [" + String.join(",", chunk) + "]}";
+        try {
+            return parseUpdateCounts(transport.send(json), chunk.size());
+        } catch (SQLException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while executing batch", e);
+        } catch (Exception e) {
+            throw new SQLException("HTTP error: " + e.getMessage(), e);
+        }
+    }
+
+    private static int[] parseUpdateCounts(ProxyResponse response, int expected) throws SQLException {
+        try (JsonParser parser = response.createParser()) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if (field.equals("updateCounts") && value == JsonToken.START_ARRAY) {
+                        int[] counts = new int[expected];
+                        int i = 0;
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            if (i == expected) {
+                                throw new SQLException("Proxy returned more than " + expected + " update counts");
+                            }
+                            counts[i++] = parser.getValueAsInt(Statement.SUCCESS_NO_INFO);
+                        }
+                        if (i != expected) {
+                            throw new SQLException("Proxy returned " + i + " update counts for " + expected + " statements");
+                        }
+                        return counts;
+                    }
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to parse " + response.getEncoding() + " update counts", e);
+        }
+        // The statements ran, but the proxy didn't say how many rows each touched
+        int[] counts = new int[expected];
+        Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+        return counts;
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ColumnInfo;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Forward-only rows pulled from the HTTP response as the cursor advances. Only the current row
+ * is held in memory, so heap use doesn't depend on the size of the result.
+ */
+class StreamingRows implements RowCursor {
+
+    private final JsonRowReader reader;
+    private Map<String, Object> current;
+    private boolean exhausted;
+
+    StreamingRows(JsonRowReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public List<String> columns() {
+        return reader.columns();
+    }
+
+    @Override
+    public boolean columnsMayGrow() {
+        return !exhausted && !reader.isColumnar();
+    }
+
+    @Override
+    public ColumnInfo columnInfo(int column) {
+        return reader.columnInfo(column);
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        if (exhausted) {
+            return false;
+        }
+        try {
+            current = reader.nextRow();
+        } catch (IOException e) {
+            close();
+            throw new SQLException("Failed to read the next row from the response", e);
+        }
+        if (current == null) {
+            exhausted = true;
+            // Hand the HTTP connection back as soon as the last row has been read
+            close();
+        }
+        return current != null;
+    }
+
+    @Override
+    public Map<String, Object> current() {
+        return current;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new SQLException("Failed to close the response stream", e);
+        }
+    }
+}
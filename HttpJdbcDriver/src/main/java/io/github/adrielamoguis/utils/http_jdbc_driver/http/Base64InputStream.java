@@ -0,0 +1,85 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Reads {@code source} as standard base64 text, encoding one block at a time as it is consumed, so a large
+ * binary parameter never sits in the heap whole. Reads at most {@code limit} bytes of the source when a
+ * limit is given, as JDBC's length arguments require. Closing it leaves {@code source} open: the
+ * application that handed the stream to the driver still owns it.
+ */
+final class Base64InputStream extends InputStream {
+
+    // A multiple of 3, so only the last block is padded
+    private static final int BLOCK = 3 * 1024;
+
+    private final InputStream source;
+    private final byte[] raw = new byte[BLOCK];
+    private final byte[] encoded = new byte[BLOCK / 3 * 4];
+    private long remaining;
+    private int position;
+    private int length;
+    private boolean eof;
+
+    /**
+     * @param limit bytes of {@code source} to encode, or -1 to encode it to its end
+     */
+    Base64InputStream(InputStream source, long limit) {
+        this.source = source;
+        this.remaining = limit < 0 ? Long.MAX_VALUE : limit;
+    }
+
+    /**
+     * @return the encoded length of {@code bytes} source bytes
+     */
+    static long encodedLength(long bytes) {
+        return (bytes + 2) / 3 * 4;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return encoded[position++];
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int count = Math.min(len, length - position);
+        System.arraycopy(encoded, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    private boolean fill() throws IOException {
+        if (position < length) {
+            return true;
+        }
+        if (eof) {
+            return false;
+        }
+        int read = source.readNBytes(raw, 0, (int) Math.min(BLOCK, remaining));
+        remaining -= read;
+        if (read < BLOCK || remaining == 0) {
+            eof = true;
+        }
+        if (read == 0) {
+            return false;
+        }
+        length = read == BLOCK
+                ? Base64.getEncoder().encode(raw, encoded)
+                : Base64.getEncoder().encode(Arrays.copyOf(raw, read), encoded);
+        position = 0;
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size byte chunks reused across requests for request bodies and buffered responses, so a query
+ * doesn't leave its body behind as garbage. Taking and returning a chunk allocates nothing. A chunk that is
+ * never returned, e.g. on an error path, is simply collected; at most {@link #MAX_POOLED} idle chunks are
+ * kept, so a burst of large responses doesn't pin its memory afterwards.
+ */
+public class BufferPool {
+
+    /**
+     * Matches the JDK HTTP client's own buffer size, so a chunk takes one read from the network.
+     */
+    public static final int CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * Idle chunks kept for reuse, 4 MiB in total.
+     */
+    public static final int MAX_POOLED = 256;
+
+    private final ArrayBlockingQueue<byte[]> free = new ArrayBlockingQueue<>(MAX_POOLED);
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder allocated = new LongAdder();
+
+    /**
+     * @return a chunk of {@link #CHUNK_SIZE} bytes with arbitrary content
+     */
+    byte[] acquire() {
+        byte[] chunk = free.poll();
+        if (chunk == null) {
+            allocated.increment();
+            return new byte[CHUNK_SIZE];
+        }
+        reused.increment();
+        return chunk;
+    }
+
+    /**
+     * Hands {@code chunk} back; it must not be read or written by the caller afterwards.
+     */
+    void release(byte[] chunk) {
+        if (chunk.length == CHUNK_SIZE) {
+            free.offer(chunk);
+        }
+    }
+
+    /**
+     * @return chunks handed out from the pool rather than allocated
+     */
+    public long getReused() {
+        return reused.sum();
+    }
+
+    /**
+     * @return chunks allocated because the pool was empty
+     */
+    public long getAllocated() {
+        return allocated.sum();
+    }
+
+    /**
+     * @return idle chunks currently held
+     */
+    public int size() {
+        return free.size();
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+/**
+ * A query result held by the {@link ResultCache}. Implementations are immutable once stored, so any number of
+ * result sets may read the same one at the same time.
+ */
+public interface CachedResult {
+
+    /**
+     * @return an estimate of the heap this result occupies, counted against the cache's byte budget
+     */
+    long getBytes();
+}
@@ -0,0 +1,18 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import java.sql.ResultSetMetaData;
+
+/**
+ * What the proxy declared about one column next to its name: the database type name, precision, scale and
+ * nullability, each optional.
+ *
+ * @param typeName database type name as sent, or {@code null} if none was
+ * @param type JDBC view of {@code typeName}
+ * @param precision declared precision or length, 0 if unknown
+ * @param scale declared scale, 0 if unknown
+ * @param nullable one of the {@link ResultSetMetaData} {@code columnNullable} constants
+ */
+public record ColumnInfo(String typeName, ColumnType type, int precision, int scale, int nullable) {
+
+    public static final ColumnInfo UNKNOWN = new ColumnInfo(null, ColumnType.OTHER, 0, 0, ResultSetMetaData.columnNullableUnknown);
+}
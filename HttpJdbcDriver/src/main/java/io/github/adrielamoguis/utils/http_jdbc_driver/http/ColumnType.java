@@ -0,0 +1,103 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * JDBC view of a database type name sent in a columnar envelope's {@code types}, e.g. {@code int4} or
+ * {@code timestamptz}. Each type also names the decoder its column is read with, chosen once per column
+ * rather than per value; anything not listed reads as {@link #OTHER} and is decoded from whatever token arrives.
+ */
+public enum ColumnType {
+
+    SMALLINT(Types.SMALLINT, Integer.class, Decoder.LONG, "int2", "smallint", "smallserial"),
+    INTEGER(Types.INTEGER, Integer.class, Decoder.LONG, "int4", "int", "integer", "serial"),
+    BIGINT(Types.BIGINT, Long.class, Decoder.LONG, "int8", "bigint", "bigserial", "oid"),
+    REAL(Types.REAL, Float.class, Decoder.DOUBLE, "float4", "real"),
+    DOUBLE(Types.DOUBLE, Double.class, Decoder.DOUBLE, "float8", "float", "double precision"),
+    NUMERIC(Types.NUMERIC, BigDecimal.class, Decoder.DECIMAL, "numeric", "decimal"),
+    BOOLEAN(Types.BOOLEAN, Boolean.class, Decoder.AUTO, "bool", "boolean"),
+    CHAR(Types.CHAR, String.class, Decoder.AUTO, "bpchar", "char", "character"),
+    VARCHAR(Types.VARCHAR, String.class, Decoder.AUTO, "text", "varchar", "character varying", "name", "citext"),
+    DATE(Types.DATE, String.class, Decoder.AUTO, "date"),
+    TIME(Types.TIME, String.class, Decoder.AUTO, "time", "time without time zone"),
+    TIME_WITH_TIMEZONE(Types.TIME_WITH_TIMEZONE, String.class, Decoder.AUTO, "timetz", "time with time zone"),
+    TIMESTAMP(Types.TIMESTAMP, String.class, Decoder.AUTO, "timestamp", "timestamp without time zone"),
+    TIMESTAMP_WITH_TIMEZONE(Types.TIMESTAMP_WITH_TIMEZONE, String.class, Decoder.AUTO, "timestamptz", "timestamp with time zone"),
+    BINARY(Types.BINARY, byte[].class, Decoder.AUTO, "bytea"),
+    OTHER(Types.OTHER, Object.class, Decoder.AUTO);
+
+    /**
+     * How values of a column are taken off the token stream.
+     */
+    public enum Decoder {
+        /** Whatever the token is: strings, Integer or Long, Double, booleans, nested JSON. */
+        AUTO,
+        /** Unboxed longs, also from numeric strings, e.g. int8 sent as text to survive JavaScript proxies. */
+        LONG,
+        /**
+         * Unboxed doubles, also from integer tokens and from the strings {@code NaN} and {@code Infinity}; real
+         * columns round them to float and box them as Float.
+         */
+        DOUBLE,
+        /** Exact BigDecimal from the number's own digits, never rounded through a double. */
+        DECIMAL
+    }
+
+    private static final Map<String, ColumnType> BY_NAME = new HashMap<>();
+
+    static {
+        for (ColumnType type : values()) {
+            for (String name : type.names) {
+                BY_NAME.put(name, type);
+            }
+        }
+    }
+
+    private final int jdbcType;
+    private final String className;
+    private final Decoder decoder;
+    private final String[] names;
+
+    ColumnType(int jdbcType, Class<?> javaClass, Decoder decoder, String... names) {
+        this.jdbcType = jdbcType;
+        this.className = javaClass.getName();
+        this.decoder = decoder;
+        this.names = names;
+    }
+
+    /**
+     * @return the type called {@code name}, ignoring case, or {@link #OTHER} for unknown or missing names
+     */
+    public static ColumnType forName(String name) {
+        if (name == null) {
+            return OTHER;
+        }
+        return BY_NAME.getOrDefault(name.toLowerCase(Locale.ROOT), OTHER);
+    }
+
+    /**
+     * @return the {@link Types} constant reported by {@code ResultSetMetaData.getColumnType}
+     */
+    public int getJdbcType() {
+        return jdbcType;
+    }
+
+    /**
+     * @return the class {@code getObject} returns for a non-null value of this type
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    public Decoder getDecoder() {
+        return decoder;
+    }
+
+    public boolean isNumeric() {
+        return decoder != Decoder.AUTO;
+    }
+}
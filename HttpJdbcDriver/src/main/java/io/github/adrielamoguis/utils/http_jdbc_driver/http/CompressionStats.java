@@ -0,0 +1,93 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compression counters for a shared client, meant for tuning {@code compressionThreshold} per deployment.
+ * Only bodies that were actually compressed are counted, so the ratios describe what compression achieved.
+ */
+public class CompressionStats {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final AtomicLong compressedRequests = new AtomicLong();
+    private final AtomicLong requestBytesRaw = new AtomicLong();
+    private final AtomicLong requestBytesCompressed = new AtomicLong();
+    private final AtomicLong compressCpuNanos = new AtomicLong();
+    private final AtomicLong compressedResponses = new AtomicLong();
+    private final AtomicLong responseBytesCompressed = new AtomicLong();
+    private final AtomicLong responseBytesDecoded = new AtomicLong();
+    private final AtomicLong decompressCpuNanos = new AtomicLong();
+
+    /**
+     * CPU time of the current thread where the JVM supports it (not for virtual threads), wall time otherwise.
+     */
+    static long cpuTime() {
+        try {
+            if (THREADS.isCurrentThreadCpuTimeSupported()) {
+                long time = THREADS.getCurrentThreadCpuTime();
+                if (time >= 0) {
+                    return time;
+                }
+            }
+        } catch (UnsupportedOperationException e) {
+            // Fall through to wall time
+        }
+        return System.nanoTime();
+    }
+
+    void requestCompressed(long rawBytes, long compressedBytes, long cpuNanos) {
+        compressedRequests.incrementAndGet();
+        requestBytesRaw.addAndGet(rawBytes);
+        requestBytesCompressed.addAndGet(compressedBytes);
+        compressCpuNanos.addAndGet(cpuNanos);
+    }
+
+    void responseDecompressed(long wireBytes, long decodedBytes, long cpuNanos) {
+        compressedResponses.incrementAndGet();
+        responseBytesCompressed.addAndGet(wireBytes);
+        responseBytesDecoded.addAndGet(decodedBytes);
+        decompressCpuNanos.addAndGet(cpuNanos);
+    }
+
+    public long getCompressedRequests() {
+        return compressedRequests.get();
+    }
+
+    /**
+     * @return compressed size over raw size for compressed request bodies, or 1.0 if none were compressed
+     */
+    public double getRequestCompressionRatio() {
+        long raw = requestBytesRaw.get();
+        return raw == 0 ? 1.0 : (double) requestBytesCompressed.get() / raw;
+    }
+
+    public long getCompressCpuNanos() {
+        return compressCpuNanos.get();
+    }
+
+    public long getCompressedResponses() {
+        return compressedResponses.get();
+    }
+
+    /**
+     * @return bytes on the wire over decoded size for compressed responses, or 1.0 if none were compressed
+     */
+    public double getResponseCompressionRatio() {
+        long decoded = responseBytesDecoded.get();
+        return decoded == 0 ? 1.0 : (double) responseBytesCompressed.get() / decoded;
+    }
+
+    public long getDecompressCpuNanos() {
+        return decompressCpuNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionStats[requests=" + getCompressedRequests() + ", requestRatio=" + getRequestCompressionRatio()
+                + ", compressCpuNanos=" + getCompressCpuNanos() + ", responses=" + getCompressedResponses()
+                + ", responseRatio=" + getResponseCompressionRatio() + ", decompressCpuNanos=" + getDecompressCpuNanos() + "]";
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import java.net.http.HttpClient;
+
+/**
+ * Chooses the executor shared HTTP clients run their asynchronous work on.
+ * <p>
+ * This is the baseline implementation, which keeps the JDK's default cached thread pool.
+ * The driver ships as a multi-release JAR; on JDK 21 and later the class under
+ * {@code META-INF/versions/21} replaces this one and switches to virtual threads.
+ */
+public final class HttpClientExecutors {
+
+    private HttpClientExecutors() {
+    }
+
+    public static void configure(HttpClient.Builder builder) {
+        // Keep the JDK default executor
+    }
+
+    /**
+     * @return whether clients built by this driver run on virtual threads
+     */
+    public static boolean usesVirtualThreads() {
+        return false;
+    }
+}
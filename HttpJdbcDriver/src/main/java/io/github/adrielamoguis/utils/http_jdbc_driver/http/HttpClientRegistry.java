@@ -0,0 +1,137 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.http.HttpClient;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Driver-level registry of {@link HttpClient} instances.
+ * <p>
+ * Every connection that targets the same endpoint with the same credentials and SSL mode
+ * shares a single client, and therefore a single keep-alive pool, selector thread and executor.
+ * Clients are reference counted: each {@link #acquire} must be paired with exactly one
+ * {@link SharedHttpClient#release()}, and the client is dropped from the registry once the
+ * last connection using it has been closed.
+ */
+public class HttpClientRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientRegistry.class);
+
+    /**
+     * Upper bound on idle keep-alive connections held by the JDK HTTP client pool.
+     * The JDK default is unbounded.
+     */
+    public static final String DEFAULT_CONNECTION_POOL_SIZE = "64";
+
+    /**
+     * Seconds an idle keep-alive connection is kept open. The JDK default is 20 minutes,
+     * which is far longer than most load balancers in front of the proxy will tolerate.
+     */
+    public static final String DEFAULT_KEEP_ALIVE_TIMEOUT = "60";
+
+    /**
+     * System property that, set to {@code false}, stops the driver from setting the pool properties at all.
+     */
+    public static final String CONFIGURE_POOL_PROPERTY = "httpJdbc.configureConnectionPool";
+
+    private final ConcurrentMap<ClientKey, SharedHttpClient> clients = new ConcurrentHashMap<>();
+    private final ResultCache results = new ResultCache();
+    private final BufferPool buffers = new BufferPool();
+
+    /**
+     * Bounds the JDK HTTP client keep-alive pool unless the application has already configured it.
+     * The JDK reads these properties once, when the first {@link HttpClient} is built, so this has to
+     * run before any client is created. They are JVM-wide and so also apply to every other client the
+     * application builds; a property the application has set is never overwritten, and setting
+     * {@value #CONFIGURE_POOL_PROPERTY} to {@code false} leaves both untouched.
+     */
+    public static void configureConnectionPool() {
+        if ("false".equalsIgnoreCase(System.getProperty(CONFIGURE_POOL_PROPERTY))) {
+            LOGGER.debug("Leaving the JDK HTTP client pool settings alone, as {} is false", CONFIGURE_POOL_PROPERTY);
+            return;
+        }
+        setIfAbsent("jdk.httpclient.connectionPoolSize", DEFAULT_CONNECTION_POOL_SIZE);
+        setIfAbsent("jdk.httpclient.keepalive.timeout", DEFAULT_KEEP_ALIVE_TIMEOUT);
+    }
+
+    private static void setIfAbsent(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+            LOGGER.info("Set JVM-wide system property {}={} for the JDK HTTP client pool; set {}=false to opt out",
+                    property, value, CONFIGURE_POOL_PROPERTY);
+        }
+    }
+
+    /**
+     * Returns the shared client for the given key, building it with {@code factory} if no connection
+     * currently holds one. The returned handle must be released when the caller is done with it.
+     */
+    public SharedHttpClient acquire(ClientKey key, Supplier<HttpClient> factory) {
+        return clients.compute(key, (k, existing) -> {
+            if (existing != null) {
+                existing.retain();
+                return existing;
+            }
+            LOGGER.debug("Creating shared HTTP client for {}", k);
+            return new SharedHttpClient(this, k, factory.get());
+        });
+    }
+
+    void release(SharedHttpClient client) {
+        clients.computeIfPresent(client.getKey(), (k, existing) -> {
+            if (existing != client) {
+                return existing;
+            }
+            if (existing.releaseReference() > 0) {
+                return existing;
+            }
+            LOGGER.debug("Discarding shared HTTP client for {}", k);
+            return null;
+        });
+    }
+
+    /**
+     * @return query results cached for connections that enabled {@code resultCacheTtlSeconds}; entries outlive
+     *         the clients they were fetched through, so they survive connections being closed and reopened
+     */
+    public ResultCache getResultCache() {
+        return results;
+    }
+
+    /**
+     * @return chunks reused for request and response bodies by every client of this registry
+     */
+    public BufferPool getBufferPool() {
+        return buffers;
+    }
+
+    /**
+     * @return the number of distinct clients currently held by open connections
+     */
+    public int size() {
+        return clients.size();
+    }
+
+    /**
+     * Identifies which connections may share a client: same endpoint, same credentials, same SSL mode
+     * and same protocol.
+     */
+    public record ClientKey(String endpoint, String user, String password, boolean disableSSL, Protocol protocol) {
+
+        public ClientKey {
+            Objects.requireNonNull(endpoint, "endpoint");
+            Objects.requireNonNull(protocol, "protocol");
+        }
+
+        @Override
+        public String toString() {
+            // Never log the password
+            return "ClientKey[endpoint=" + endpoint + ", user=" + user + ", disableSSL=" + disableSSL + ", protocol=" + protocol + "]";
+        }
+    }
+}
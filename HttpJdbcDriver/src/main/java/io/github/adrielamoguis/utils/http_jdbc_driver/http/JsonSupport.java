@@ -0,0 +1,36 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+/**
+ * The driver's single Jackson setup, shared by every connection, statement and result set. Factories, readers and
+ * writers are immutable and thread-safe once built, and sharing them keeps their symbol tables, buffer recyclers
+ * and serializer caches warm instead of paying for a cold mapper per query.
+ */
+public final class JsonSupport {
+
+    /**
+     * Parser and generator factory for JSON bodies. Field names are still canonicalized per factory, but not
+     * interned: proxies send arbitrary column names, which shouldn't pile up in the JVM-wide string table.
+     */
+    public static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(JsonFactory.Feature.INTERN_FIELD_NAMES)
+            .build();
+
+    public static final ObjectMapper MAPPER = JsonMapper.builder(JSON_FACTORY).build();
+
+    /**
+     * Reads nested values, e.g. a {@code jsonb} column, into maps, lists and scalars. Works on parsers of any
+     * {@link ResponseEncoding}, not only JSON ones.
+     */
+    public static final ObjectReader VALUE_READER = MAPPER.readerFor(Object.class);
+
+    public static final ObjectWriter WRITER = MAPPER.writer();
+
+    private JsonSupport() {
+    }
+}
@@ -0,0 +1,204 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A request body encoded into pooled chunks and published straight from them, without copying it. As in a
+ * {@link PooledInputStream}, every chunk is full but the last, so a body of any size takes as many chunks as
+ * it needs. The client may still be publishing the body after the response headers have arrived, e.g. when
+ * the proxy answers early, and may publish it again to answer an authentication challenge or follow a
+ * redirect. So the chunks only go back to the pool once the exchange is over, see {@link #exchangeDone()},
+ * and every subscription to the body has completed, failed or been cancelled.
+ */
+final class PooledBodyPublisher implements HttpRequest.BodyPublisher {
+
+    private final BufferPool pool;
+    private final List<byte[]> chunks;
+    private final long length;
+    // One for the exchange itself, plus one per subscription still publishing
+    private final AtomicInteger users = new AtomicInteger(1);
+
+    private PooledBodyPublisher(BufferPool pool, List<byte[]> chunks, long length) {
+        this.pool = pool;
+        this.chunks = chunks;
+        this.length = length;
+    }
+
+    /**
+     * Encodes {@code json} as UTF-8 into chunks taken from {@code pool}, the same bytes as
+     * {@code json.getBytes(UTF_8)}. A character may be split across two chunks.
+     */
+    static PooledBodyPublisher encode(BufferPool pool, String json) {
+        Chunks out = new Chunks(pool);
+        int length = json.length();
+        for (int i = 0; i < length; i++) {
+            char c = json.charAt(i);
+            if (c < 0x80) {
+                out.put(c);
+            } else if (c < 0x800) {
+                out.put(0xC0 | c >> 6);
+                out.put(0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(json.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, json.charAt(++i));
+                out.put(0xF0 | codePoint >> 18);
+                out.put(0x80 | codePoint >> 12 & 0x3F);
+                out.put(0x80 | codePoint >> 6 & 0x3F);
+                out.put(0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired, replaced as String.getBytes does
+                out.put('?');
+            } else {
+                out.put(0xE0 | c >> 12);
+                out.put(0x80 | c >> 6 & 0x3F);
+                out.put(0x80 | c & 0x3F);
+            }
+        }
+        return new PooledBodyPublisher(pool, out.chunks, out.length());
+    }
+
+    /**
+     * Releases the chunk held by {@code request}'s body, if it has one, once nothing publishes it any more.
+     * Called when the client has returned the response or failed, after which it never subscribes again.
+     */
+    static void exchangeDone(HttpRequest request) {
+        request.bodyPublisher()
+                .filter(PooledBodyPublisher.class::isInstance)
+                .ifPresent(publisher -> ((PooledBodyPublisher) publisher).exchangeDone());
+    }
+
+    void exchangeDone() {
+        unused();
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    /**
+     * Writes the body to {@code out}, e.g. to compress it; the chunks stay held until {@link #exchangeDone()}.
+     */
+    void writeTo(OutputStream out) throws IOException {
+        for (int i = 0; i < chunks.size(); i++) {
+            out.write(chunks.get(i), 0, chunkLength(i));
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        users.incrementAndGet();
+        HttpRequest.BodyPublisher body;
+        if (chunks.size() == 1) {
+            body = HttpRequest.BodyPublishers.ofByteArray(chunks.get(0), 0, chunkLength(0));
+        } else {
+            HttpRequest.BodyPublisher[] parts = new HttpRequest.BodyPublisher[chunks.size()];
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = HttpRequest.BodyPublishers.ofByteArray(chunks.get(i), 0, chunkLength(i));
+            }
+            body = HttpRequest.BodyPublishers.concat(parts);
+        }
+        body.subscribe(new Releasing(subscriber));
+    }
+
+    private int chunkLength(int index) {
+        return index < chunks.size() - 1 ? BufferPool.CHUNK_SIZE : (int) (length - (long) index * BufferPool.CHUNK_SIZE);
+    }
+
+    private void unused() {
+        if (users.decrementAndGet() == 0) {
+            for (byte[] chunk : chunks) {
+                pool.release(chunk);
+            }
+        }
+    }
+
+    /**
+     * Pooled chunks filled one byte at a time, taking the next chunk when the current one is full.
+     */
+    private static final class Chunks {
+
+        private final BufferPool pool;
+        private final List<byte[]> chunks = new ArrayList<>(2);
+        private byte[] chunk;
+        private int position;
+
+        Chunks(BufferPool pool) {
+            this.pool = pool;
+            this.chunk = pool.acquire();
+            chunks.add(chunk);
+        }
+
+        void put(int b) {
+            if (position == chunk.length) {
+                chunk = pool.acquire();
+                chunks.add(chunk);
+                position = 0;
+            }
+            chunk[position++] = (byte) b;
+        }
+
+        long length() {
+            return (long) (chunks.size() - 1) * BufferPool.CHUNK_SIZE + position;
+        }
+    }
+
+    /**
+     * Passes one subscription through, giving up its hold on the chunk when it ends, however it ends.
+     */
+    private final class Releasing implements Flow.Subscriber<ByteBuffer> {
+
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        Releasing(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        private void end() {
+            if (ended.compareAndSet(false, true)) {
+                unused();
+            }
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel() {
+                    subscription.cancel();
+                    end();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            subscriber.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            end();
+            subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            end();
+            subscriber.onComplete();
+        }
+    }
+}
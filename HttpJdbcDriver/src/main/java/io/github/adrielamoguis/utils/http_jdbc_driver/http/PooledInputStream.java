@@ -0,0 +1,105 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A fully read response body held in chunks from a {@link BufferPool}, read back in place without being
+ * copied into one array. Closing the stream returns the chunks, which Jackson does as soon as it reaches the
+ * end of the body or its parser is closed.
+ */
+final class PooledInputStream extends InputStream {
+
+    private final BufferPool pool;
+    private List<byte[]> chunks;
+    private final long length;
+    private long position;
+
+    private PooledInputStream(BufferPool pool, List<byte[]> chunks, long length) {
+        this.pool = pool;
+        this.chunks = chunks;
+        this.length = length;
+    }
+
+    /**
+     * Reads {@code in} to its end and closes it.
+     */
+    static PooledInputStream readFully(InputStream in, BufferPool pool) throws IOException {
+        List<byte[]> chunks = new ArrayList<>(4);
+        long length = 0;
+        try (in) {
+            while (true) {
+                byte[] chunk = pool.acquire();
+                int read = in.readNBytes(chunk, 0, chunk.length);
+                if (read == 0) {
+                    pool.release(chunk);
+                    break;
+                }
+                chunks.add(chunk);
+                length += read;
+                if (read < chunk.length) {
+                    break;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (byte[] chunk : chunks) {
+                pool.release(chunk);
+            }
+            throw e;
+        }
+        return new PooledInputStream(pool, chunks, length);
+    }
+
+    long length() {
+        return length;
+    }
+
+    @Override
+    public int read() {
+        if (position >= length) {
+            return -1;
+        }
+        int value = chunks.get((int) (position / BufferPool.CHUNK_SIZE))[(int) (position % BufferPool.CHUNK_SIZE)] & 0xFF;
+        position++;
+        return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= length) {
+            return -1;
+        }
+        int chunk = (int) (position / BufferPool.CHUNK_SIZE);
+        int offset = (int) (position % BufferPool.CHUNK_SIZE);
+        // One chunk per call keeps this simple; callers loop anyway
+        int count = (int) Math.min(Math.min(len, BufferPool.CHUNK_SIZE - offset), length - position);
+        System.arraycopy(chunks.get(chunk), offset, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, length - position);
+    }
+
+    /**
+     * Returns the chunks to the pool; the stream reads as ended from then on.
+     */
+    @Override
+    public void close() {
+        if (chunks == null) {
+            return;
+        }
+        for (byte[] chunk : chunks) {
+            pool.release(chunk);
+        }
+        chunks = null;
+        position = length;
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import java.net.http.HttpClient;
+
+/**
+ * Wire protocol used to reach the proxy, selected with the {@code protocol} connection property.
+ */
+public enum Protocol {
+
+    /**
+     * HTTP/2 over TLS. Negotiated through ALPN; the JDK client falls back to HTTP/1.1
+     * when the proxy does not offer h2.
+     */
+    H2("h2", HttpClient.Version.HTTP_2),
+
+    /**
+     * Cleartext HTTP/2. The first request carries an {@code Upgrade: h2c} header and the
+     * client keeps using HTTP/1.1 if the proxy declines the upgrade.
+     */
+    H2C("h2c", HttpClient.Version.HTTP_2),
+
+    /**
+     * Plain HTTP/1.1; every in-flight statement needs its own TCP connection.
+     */
+    HTTP_1_1("http1.1", HttpClient.Version.HTTP_1_1);
+
+    private final String propertyValue;
+    private final HttpClient.Version version;
+
+    Protocol(String propertyValue, HttpClient.Version version) {
+        this.propertyValue = propertyValue;
+        this.version = version;
+    }
+
+    public String getPropertyValue() {
+        return propertyValue;
+    }
+
+    public HttpClient.Version getVersion() {
+        return version;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code value} is not one of {@code h2}, {@code h2c} or {@code http1.1}
+     */
+    public static Protocol fromProperty(String value) {
+        for (Protocol protocol : values()) {
+            if (protocol.propertyValue.equalsIgnoreCase(value.trim())) {
+                return protocol;
+            }
+        }
+        throw new IllegalArgumentException("Unknown protocol '" + value + "', expected one of h2, h2c, http1.1");
+    }
+}
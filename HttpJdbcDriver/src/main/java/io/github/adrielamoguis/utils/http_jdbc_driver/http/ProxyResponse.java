@@ -0,0 +1,63 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Successful, already decompressed response body together with the encoding it was sent in.
+ * Bodies returned by {@link ProxyTransport#send} are fully buffered in chunks of the driver's
+ * {@link BufferPool}, which closing the response, or the parser over it, hands back; the one returned by
+ * {@link ProxyTransport#openStream} is read from the network as it is consumed, and must be closed.
+ */
+public class ProxyResponse implements Closeable {
+
+    /**
+     * Response header naming the server-side cursor that holds the rest of a paged result.
+     * Absent once the last page has been sent.
+     */
+    public static final String CURSOR_HEADER = "X-Http-Jdbc-Cursor";
+
+    private final ResponseEncoding encoding;
+    private final InputStream body;
+    private final String cursor;
+
+    public ProxyResponse(ResponseEncoding encoding, InputStream body) {
+        this(encoding, body, null);
+    }
+
+    ProxyResponse(ResponseEncoding encoding, InputStream body, String cursor) {
+        this.encoding = encoding;
+        this.body = body;
+        this.cursor = cursor;
+    }
+
+    public ResponseEncoding getEncoding() {
+        return encoding;
+    }
+
+    public InputStream getBody() {
+        return body;
+    }
+
+    /**
+     * @return the id of the server-side cursor holding more rows, or {@code null} if the result is complete
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @return a parser over the body for its encoding; closing the parser closes the body
+     */
+    public JsonParser createParser() throws IOException {
+        return encoding.getFactory().createParser(body);
+    }
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+}
@@ -0,0 +1,961 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.github.adrielamoguis.utils.http_jdbc_driver.ConnectionProperties;
+import io.github.adrielamoguis.utils.http_jdbc_driver.dto.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Sends statement requests for one JDBC connection over its leased {@link SharedHttpClient}.
+ * <p>
+ * Counters are kept both for this connection and for the shared client, so the number of
+ * HTTP/2 streams in flight can be read per JDBC connection and per physical client.
+ * <p>
+ * Responses are requested with {@code Accept-Encoding: gzip, deflate} and inflated as they stream in.
+ * Request bodies at or above {@code compressionThreshold} bytes are gzipped; if the proxy answers such a
+ * request with {@code 415 Unsupported Media Type}, it is resent uncompressed and request compression is
+ * switched off for every connection sharing the client.
+ * <p>
+ * With {@code encoding=cbor} or {@code encoding=smile} the binary media type is listed first in
+ * {@code Accept}; the response {@code Content-Type} decides how the body is parsed.
+ * <p>
+ * Writes {@linkplain #defer deferred} by a pipelining transaction ride along with the next request as a
+ * leading {@code "pipeline": [request, ...]} array, which the proxy runs in order before the request itself.
+ * If one of them fails, the request carrying them fails too. In {@link TransactionMode#BUFFERED} mode the
+ * array is named {@code "transaction"} instead, and the proxy runs it and the request in a single transaction.
+ * <p>
+ * In {@link TransactionMode#SESSION} mode, the first request after {@link #beginTransaction} carries
+ * {@code X-Http-Jdbc-Transaction: begin} and the proxy answers with the handle of the transaction it opened,
+ * which every later request sends back until {@link #commitTransaction} or {@link #rollbackTransaction}.
+ * Only one request carries {@code begin} at a time: requests issued concurrently meanwhile wait for its answer
+ * and join the session it opened, rather than each opening, and leaking, a session of their own.
+ * A {@code 410 Gone} answer means the proxy rolled the session back after its lease ran out. The transaction
+ * is then aborted: every statement and {@link #commitTransaction} fails with SQLState
+ * {@value #TRANSACTION_ABORTED_STATE} until {@link #rollbackTransaction} or {@link #endTransactions}, so later
+ * writes never commit without the ones the proxy threw away.
+ */
+public class ProxyTransport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProxyTransport.class);
+
+    private static final String PROBE_REQUEST;
+
+    /**
+     * Request/response header carrying the transaction session handle, or {@code begin} to open one.
+     */
+    public static final String TRANSACTION_HEADER = "X-Http-Jdbc-Transaction";
+
+    /**
+     * Sent with {@code begin}: seconds the proxy keeps the session open without any request.
+     */
+    public static final String TRANSACTION_LEASE_HEADER = "X-Http-Jdbc-Transaction-Lease";
+
+    /**
+     * Sent with {@code begin}: isolation level as SQL, e.g. {@code READ COMMITTED}.
+     */
+    public static final String ISOLATION_HEADER = "X-Http-Jdbc-Isolation";
+
+    /**
+     * Response header the proxy sets to {@code unknown}, with status 404, when a request names a prepared
+     * statement handle it doesn't hold (never registered, evicted, or registered on another proxy instance).
+     */
+    public static final String STATEMENT_HEADER = "X-Http-Jdbc-Statement";
+
+    /**
+     * SQLState of the error raised for an unknown statement handle, PostgreSQL's {@code invalid_sql_statement_name}.
+     */
+    public static final String UNKNOWN_STATEMENT_STATE = "26000";
+
+    /**
+     * SQLState of the error raised while a transaction is aborted after its session expired, PostgreSQL's
+     * {@code transaction_rollback}.
+     */
+    public static final String TRANSACTION_ABORTED_STATE = "40000";
+
+    private static final String STREAM_RESENT_MESSAGE = "The proxy asked for a request with streamed parameters a "
+            + "second time, e.g. in an authentication challenge, but the streams were already sent; set the "
+            + "parameters with setBytes for a request that can be sent again";
+
+    static {
+        try {
+            PROBE_REQUEST = JsonSupport.WRITER.writeValueAsString(new Request("SELECT 1", List.of()));
+        } catch (JsonProcessingException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final SharedHttpClient sharedClient;
+    private final URI endpoint;
+    private final ConnectionProperties properties;
+    private final TransportStats stats = new TransportStats();
+    private final String acceptHeader;
+    private final Queue<String> deferred = new ConcurrentLinkedQueue<>();
+    private final boolean bufferedTransactions;
+
+    // Armed by beginTransaction(); the handle is filled in from the proxy's answer to the next request
+    private volatile boolean transactionRequested;
+    private volatile String transactionIsolation;
+    private volatile String transactionId;
+    // Set when the proxy answered 410 for the open session; cleared by a rollback or leaving transactions
+    private volatile boolean transactionAborted;
+    // Set while the request carrying "begin" is in flight; completes when it has been answered
+    private final ReentrantLock sessionLock = new ReentrantLock();
+    private CompletableFuture<Void> sessionOpening;
+    // Set when the connection closes; no background refreshes are started after that
+    private volatile boolean closed;
+
+    public ProxyTransport(SharedHttpClient sharedClient, String endpoint, ConnectionProperties properties) {
+        this.sharedClient = sharedClient;
+        this.endpoint = URI.create(endpoint);
+        this.properties = properties;
+        String layouts = properties.getResultFormat().getAcceptHeader();
+        ResponseEncoding encoding = properties.getEncoding();
+        this.acceptHeader = encoding == ResponseEncoding.JSON ? layouts : encoding.getMediaType() + ", " + layouts;
+        this.bufferedTransactions = properties.getTransactionMode() == TransactionMode.BUFFERED;
+        if (!properties.getResultCacheTtl().isZero()) {
+            sharedClient.getResultCache().ensureCapacity(properties.getResultCacheMaxBytes());
+        }
+    }
+
+    /**
+     * POSTs a JSON statement request and returns the fully read, decoded response body.
+     *
+     * @throws SQLException if the proxy answers with a non-2xx status
+     */
+    public ProxyResponse send(String json) throws IOException, InterruptedException, SQLException {
+        HttpResponse<InputStream> response = exchange(withDeferred(json), true);
+        return toProxyResponse(response, readBody(response));
+    }
+
+    /**
+     * Non-blocking variant of {@link #send(String)} built on {@link HttpClient#sendAsync}.
+     * The body is read and decoded on a pool thread. The future completes exceptionally with an
+     * {@link SQLException} on transport or HTTP errors.
+     */
+    public CompletableFuture<ProxyResponse> sendAsync(String json) {
+        return exchangeAsync(withDeferred(json), true).thenApplyAsync(response -> {
+            try {
+                return toProxyResponse(response, readBody(response));
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } catch (IOException e) {
+                throw new CompletionException(new SQLException("HTTP error: " + e.getMessage(), e));
+            }
+        });
+    }
+
+    /**
+     * Re-runs a cached read-only query in the background for the result cache. Unlike {@link #sendAsync(String)}
+     * the request goes out on its own: it carries none of the deferred writes and no transaction session header,
+     * and doesn't wait for a session to open, so whatever the connection is doing meanwhile is left alone.
+     * None is sent once the connection has been closed; the future fails instead.
+     */
+    public CompletableFuture<ProxyResponse> refreshAsync(String json) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new SQLException("Connection is closed"));
+        }
+        return refreshAsync(json, true).thenApplyAsync(response -> {
+            try {
+                return toProxyResponse(response, readBody(response));
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } catch (IOException e) {
+                throw new CompletionException(new SQLException("HTTP error: " + e.getMessage(), e));
+            }
+        });
+    }
+
+    private CompletableFuture<HttpResponse<InputStream>> refreshAsync(String json, boolean allowCompression) {
+        HttpRequest request = newRequestBuilder(json, allowCompression, sharedClient.getBufferPool()).build();
+        return sendAsync(request)
+                .whenComplete((response, error) -> PooledBodyPublisher.exchangeDone(request))
+                .thenCompose(response -> isCompressionRejected(request, response)
+                        ? refreshAsync(json, false)
+                        : CompletableFuture.completedFuture(response));
+    }
+
+    /**
+     * Marks the transport closed along with its connection. Requests already in flight finish normally.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Like {@link #send(String)}, for a body whose binary parameters are streamed while it is sent. The body is
+     * sent uncompressed, as it can't be read a second time. For the same reason the client's credentials have
+     * to go with it up front rather than in answer to an authentication challenge, see {@link #primeCredentials}.
+     *
+     * @throws SQLException if the proxy asked for the body a second time anyway
+     */
+    public ProxyResponse send(StreamingBody body) throws IOException, InterruptedException, SQLException {
+        primeCredentials();
+        body.setHead(withDeferred(body.getHead()));
+        boolean opensSession = awaitTurnToSend();
+        HttpResponse<InputStream> response;
+        try {
+            response = send(newStreamingRequest(body, opensSession));
+            trackTransaction(response);
+        } catch (IOException e) {
+            if (body.isResent()) {
+                throw new SQLException(STREAM_RESENT_MESSAGE, e);
+            }
+            throw e;
+        } finally {
+            if (opensSession) {
+                sessionAnswered();
+            }
+        }
+        return toProxyResponse(response, readBody(response));
+    }
+
+    /**
+     * Non-blocking variant of {@link #send(StreamingBody)}; the streams are read on the HTTP client's threads.
+     */
+    public CompletableFuture<ProxyResponse> sendAsync(StreamingBody body) {
+        body.setHead(withDeferred(body.getHead()));
+        return primeCredentialsAsync().thenCompose(primed -> turnToSend())
+                .thenCompose(opensSession -> whenAnswered(opensSession, () ->
+                sendAsync(newStreamingRequest(body, opensSession)).handle((response, error) -> {
+                    if (error != null) {
+                        throw body.isResent() ? new CompletionException(new SQLException(STREAM_RESENT_MESSAGE, error))
+                                : error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+                    }
+                    trackTransaction(response);
+                    return response;
+                })
+        )).thenApplyAsync(response -> {
+            try {
+                return toProxyResponse(response, readBody(response));
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } catch (IOException e) {
+                throw new CompletionException(new SQLException("HTTP error: " + e.getMessage(), e));
+            }
+        });
+    }
+
+    /**
+     * Sends a probe through a client with an authenticator that has never been answered, so any authentication
+     * challenge is taken by a request that can be sent twice. The JDK client then sends the credentials
+     * with every later request to the endpoint, streamed bodies included.
+     */
+    private void primeCredentials() throws SQLException {
+        if (needsCredentials()) {
+            verify(Duration.ZERO, Duration.ZERO);
+        }
+    }
+
+    private CompletableFuture<Void> primeCredentialsAsync() {
+        if (!needsCredentials()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        LOGGER.debug("Probing HTTP endpoint: {}", endpoint);
+        return sendAsync(newRequestBuilder(PROBE_REQUEST, false, null).build()).thenAccept(response -> {
+            try {
+                readBody(response).close();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } catch (IOException e) {
+                throw new CompletionException(new SQLException("Failed to reach the proxy at " + endpoint, e));
+            }
+        });
+    }
+
+    private boolean needsCredentials() {
+        return getClient().authenticator().isPresent() && !sharedClient.isVerified();
+    }
+
+    /**
+     * Makes sure the proxy is reachable, sending a {@code SELECT 1} probe only if no connection sharing
+     * this client got a successful response within {@code ttl}.
+     *
+     * @param timeout probe timeout, or {@link Duration#ZERO} to wait indefinitely
+     * @throws SQLException if the probe fails
+     */
+    public void verify(Duration ttl, Duration timeout) throws SQLException {
+        if (sharedClient.isVerifiedWithin(ttl)) {
+            return;
+        }
+        LOGGER.debug("Probing HTTP endpoint: {}", endpoint);
+        HttpRequest.Builder builder = newRequestBuilder(PROBE_REQUEST, false, null);
+        if (!timeout.isZero()) {
+            builder.timeout(timeout);
+        }
+        try {
+            readBody(send(builder.build())).close();
+        } catch (IOException e) {
+            throw new SQLException("Failed to reach the proxy at " + endpoint, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while probing the proxy at " + endpoint, e);
+        }
+    }
+
+    /**
+     * Queues a statement request to be sent with the next request instead of on its own.
+     */
+    public void defer(String json) {
+        deferred.add(json);
+    }
+
+    /**
+     * @return the number of deferred requests not sent yet
+     */
+    public int getDeferredCount() {
+        return deferred.size();
+    }
+
+    /**
+     * Sends the deferred requests now, as a {@code {"batch": [...]}} of their own, or as an atomic
+     * {@code {"transaction": [...]}} script in {@link TransactionMode#BUFFERED} mode.
+     *
+     * @throws SQLException if the proxy rejects any of them
+     */
+    public void flushDeferred() throws SQLException {
+        List<String> pending = drainDeferred();
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            String envelope = bufferedTransactions ? "transaction" : "batch";
+            invalidateResults();
+            HttpResponse<InputStream> response = exchange("{\"" + envelope + "\": [" + String.join(",", pending) + "]}", true);
+            readBody(response).close();
+        } catch (IOException e) {
+            throw new SQLException("HTTP error while flushing " + pending.size() + " deferred statements: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while flushing " + pending.size() + " deferred statements", e);
+        } catch (SQLException e) {
+            throw new SQLException("Deferred statement failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Drops the deferred requests without sending them.
+     *
+     * @return how many were dropped
+     */
+    public int discardDeferred() {
+        return drainDeferred().size();
+    }
+
+    private List<String> drainDeferred() {
+        List<String> pending = new ArrayList<>();
+        String next;
+        while ((next = deferred.poll()) != null) {
+            pending.add(next);
+        }
+        return pending;
+    }
+
+    private String withDeferred(String json) {
+        List<String> pending = drainDeferred();
+        if (pending.isEmpty()) {
+            return json;
+        }
+        LOGGER.debug("Sending {} deferred statements ahead of the next request", pending.size());
+        invalidateResults();
+        String key = bufferedTransactions ? "transaction" : "pipeline";
+        return "{\"" + key + "\": [" + String.join(",", pending) + "], " + json.substring(json.indexOf('{') + 1);
+    }
+
+    /**
+     * Makes the next request open a transaction session on the proxy; no round trip happens here.
+     *
+     * @param isolation isolation level as SQL, or {@code null} for the proxy's default
+     */
+    public void beginTransaction(String isolation) {
+        transactionIsolation = isolation;
+        transactionRequested = true;
+    }
+
+    /**
+     * Commits the current transaction session, sending any deferred writes with the commit. Later
+     * requests open a new session until {@link #endTransactions()}.
+     */
+    public void commitTransaction() throws SQLException {
+        if (transactionAborted) {
+            throw transactionAbortedError();
+        }
+        if (transactionId == null && deferred.isEmpty()) {
+            // Nothing has reached the proxy since the last commit
+            return;
+        }
+        finishTransaction("{\"commit\": true}", "commit");
+    }
+
+    /**
+     * Rolls back the current transaction session; deferred writes are dropped without being sent.
+     */
+    public void rollbackTransaction() throws SQLException {
+        discardDeferred();
+        transactionAborted = false;
+        if (transactionId == null) {
+            return;
+        }
+        finishTransaction("{\"rollback\": true}", "rollback");
+    }
+
+    private void finishTransaction(String json, String action) throws SQLException {
+        try {
+            send(json).close();
+            invalidateResults();
+        } catch (IOException e) {
+            throw new SQLException("HTTP error during " + action + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted during " + action, e);
+        } finally {
+            transactionId = null;
+        }
+    }
+
+    /**
+     * Stops opening transaction sessions; requests go back to auto-committing on the proxy.
+     */
+    public void endTransactions() {
+        transactionRequested = false;
+        transactionId = null;
+        transactionAborted = false;
+    }
+
+    /**
+     * @return whether the proxy rolled back the transaction because its session expired, and the application
+     *         has yet to acknowledge it with a rollback
+     */
+    public boolean isTransactionAborted() {
+        return transactionAborted;
+    }
+
+    private SQLException transactionAbortedError() {
+        return new SQLException("The transaction session expired on the proxy at " + endpoint + " and was rolled back; "
+                + "call rollback() before running more statements", TRANSACTION_ABORTED_STATE);
+    }
+
+    /**
+     * @return whether a transaction session is open on the proxy
+     */
+    public boolean isInTransaction() {
+        return transactionId != null;
+    }
+
+    /**
+     * Decides when a statement request may go: right away, unless another request is opening the transaction
+     * session, in which case it waits for that request's answer and then joins the session or, if opening it
+     * failed, opens it itself.
+     *
+     * @return a future completing with whether this request opens the session; if so, the caller must call
+     *         {@link #sessionAnswered()} once its response has been {@linkplain #trackTransaction tracked}. It fails
+     *         with an {@link SQLException} while the transaction is aborted.
+     */
+    private CompletableFuture<Boolean> turnToSend() {
+        CompletableFuture<Void> opening;
+        sessionLock.lock();
+        try {
+            if (transactionAborted) {
+                return CompletableFuture.failedFuture(transactionAbortedError());
+            }
+            if (!transactionRequested || transactionId != null) {
+                return CompletableFuture.completedFuture(false);
+            }
+            if (sessionOpening == null) {
+                sessionOpening = new CompletableFuture<>();
+                return CompletableFuture.completedFuture(true);
+            }
+            opening = sessionOpening;
+        } finally {
+            sessionLock.unlock();
+        }
+        return opening.thenCompose(answered -> turnToSend());
+    }
+
+    private boolean awaitTurnToSend() throws InterruptedException, SQLException {
+        try {
+            return turnToSend().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Failed waiting for the transaction session to open", e.getCause());
+        }
+    }
+
+    /**
+     * Lets requests waiting on the one that carried {@code begin} go.
+     */
+    private void sessionAnswered() {
+        CompletableFuture<Void> opening;
+        sessionLock.lock();
+        try {
+            opening = sessionOpening;
+            sessionOpening = null;
+        } finally {
+            sessionLock.unlock();
+        }
+        if (opening != null) {
+            opening.complete(null);
+        }
+    }
+
+    /**
+     * Runs {@code request}, calling {@link #sessionAnswered()} once it completes if it opens the session.
+     */
+    private <T> CompletableFuture<T> whenAnswered(boolean opensSession, Supplier<CompletableFuture<T>> request) {
+        if (!opensSession) {
+            return request.get();
+        }
+        CompletableFuture<T> response;
+        try {
+            response = request.get();
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response.whenComplete((result, error) -> sessionAnswered());
+    }
+
+    private void addTransactionHeaders(HttpRequest.Builder builder, boolean opensSession) {
+        String id = transactionId;
+        if (id != null) {
+            builder.header(TRANSACTION_HEADER, id);
+        } else if (opensSession) {
+            builder.header(TRANSACTION_HEADER, "begin");
+            builder.header(TRANSACTION_LEASE_HEADER, String.valueOf(properties.getTransactionLease().toSeconds()));
+            String isolation = transactionIsolation;
+            if (isolation != null) {
+                builder.header(ISOLATION_HEADER, isolation);
+            }
+        }
+    }
+
+    private void trackTransaction(HttpResponse<?> response) {
+        if (!transactionRequested) {
+            return;
+        }
+        if (response.statusCode() == 410 && transactionId != null) {
+            LOGGER.warn("Transaction session {} expired on the proxy at {}; the transaction is aborted", transactionId, endpoint);
+            transactionAborted = true;
+            transactionId = null;
+        } else if (response.statusCode() >= 200 && response.statusCode() < 300 && transactionId == null) {
+            response.headers().firstValue(TRANSACTION_HEADER).ifPresent(id -> transactionId = id);
+        }
+    }
+
+    private HttpRequest newStatementRequest(String json, boolean allowCompression, boolean opensSession) {
+        HttpRequest.Builder builder = newRequestBuilder(json, allowCompression, sharedClient.getBufferPool());
+        addTransactionHeaders(builder, opensSession);
+        return builder.build();
+    }
+
+    private HttpRequest newStreamingRequest(StreamingBody body, boolean opensSession) {
+        HttpRequest.Builder builder = newRequestBuilder().POST(body.publisher());
+        addTransactionHeaders(builder, opensSession);
+        return builder.build();
+    }
+
+    /**
+     * Sends a statement request. The body is encoded into pooled chunks, which go back to the pool once the
+     * exchange is over and the client has finished publishing the body, see {@link PooledBodyPublisher}.
+     */
+    private HttpResponse<InputStream> exchange(String json, boolean allowCompression)
+            throws IOException, InterruptedException, SQLException {
+        boolean opensSession = awaitTurnToSend();
+        try {
+            return exchange(json, allowCompression, opensSession);
+        } finally {
+            if (opensSession) {
+                sessionAnswered();
+            }
+        }
+    }
+
+    private HttpResponse<InputStream> exchange(String json, boolean allowCompression, boolean opensSession)
+            throws IOException, InterruptedException {
+        HttpRequest request = newStatementRequest(json, allowCompression, opensSession);
+        HttpResponse<InputStream> response;
+        try {
+            response = send(request);
+        } finally {
+            PooledBodyPublisher.exchangeDone(request);
+        }
+        if (isCompressionRejected(request, response)) {
+            return exchange(json, false, opensSession);
+        }
+        trackTransaction(response);
+        return response;
+    }
+
+    private CompletableFuture<HttpResponse<InputStream>> exchangeAsync(String json, boolean allowCompression) {
+        return turnToSend().thenCompose(opensSession ->
+                whenAnswered(opensSession, () -> exchangeAsync(json, allowCompression, opensSession)));
+    }
+
+    private CompletableFuture<HttpResponse<InputStream>> exchangeAsync(String json, boolean allowCompression, boolean opensSession) {
+        HttpRequest request = newStatementRequest(json, allowCompression, opensSession);
+        return sendAsync(request)
+                .whenComplete((response, error) -> PooledBodyPublisher.exchangeDone(request))
+                .thenCompose(response -> {
+                    if (isCompressionRejected(request, response)) {
+                        return exchangeAsync(json, false, opensSession);
+                    }
+                    trackTransaction(response);
+                    return CompletableFuture.completedFuture(response);
+                });
+    }
+
+    private HttpResponse<InputStream> send(HttpRequest request) throws IOException, InterruptedException {
+        TransportStats shared = sharedClient.getStats();
+        stats.requestStarted();
+        shared.requestStarted();
+        try {
+            HttpResponse<InputStream> response = getClient().send(request, HttpResponse.BodyHandlers.ofInputStream());
+            stats.requestCompleted(response.version());
+            shared.requestCompleted(response.version());
+            return response;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            stats.requestFailed();
+            shared.requestFailed();
+            throw e;
+        }
+    }
+
+    private CompletableFuture<HttpResponse<InputStream>> sendAsync(HttpRequest request) {
+        TransportStats shared = sharedClient.getStats();
+        stats.requestStarted();
+        shared.requestStarted();
+        return getClient().sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        stats.requestFailed();
+                        shared.requestFailed();
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        throw new CompletionException(new SQLException("HTTP error: " + cause.getMessage(), cause));
+                    }
+                    stats.requestCompleted(response.version());
+                    shared.requestCompleted(response.version());
+                    return response;
+                });
+    }
+
+    private boolean isCompressionRejected(HttpRequest request, HttpResponse<InputStream> response) {
+        if (response.statusCode() != 415 || request.headers().firstValue("Content-Encoding").isEmpty()) {
+            return false;
+        }
+        try {
+            response.body().close();
+        } catch (IOException e) {
+            // Nothing to salvage from a rejected response
+        }
+        if (!sharedClient.isRequestCompressionRejected()) {
+            LOGGER.info("Proxy at {} does not accept gzip request bodies; sending them uncompressed", endpoint);
+            sharedClient.rejectRequestCompression();
+        }
+        return true;
+    }
+
+    /**
+     * @param pool pool to encode the body into; {@code null} for a small body sent as is, uncompressed. Chunks
+     *             still held by the body must be handed back with {@link PooledBodyPublisher#exchangeDone}
+     */
+    private HttpRequest.Builder newRequestBuilder(String json, boolean allowCompression, BufferPool pool) {
+        HttpRequest.Builder builder = newRequestBuilder();
+        if (pool == null) {
+            return builder.POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8));
+        }
+        PooledBodyPublisher body = PooledBodyPublisher.encode(pool, json);
+        int threshold = properties.getCompressionThreshold();
+        if (allowCompression && threshold >= 0 && body.contentLength() >= threshold && !sharedClient.isRequestCompressionRejected()) {
+            byte[] compressed = gzip(body);
+            // The compressed copy is what gets sent, so the chunks are free right away
+            body.exchangeDone();
+            return builder.header("Content-Encoding", "gzip").POST(HttpRequest.BodyPublishers.ofByteArray(compressed));
+        }
+        return builder.POST(body);
+    }
+
+    private HttpRequest.Builder newRequestBuilder() {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(endpoint)
+                .header("Content-Type", "application/json")
+                .header("Accept", acceptHeader);
+        if (properties.isCompression()) {
+            builder.header("Accept-Encoding", "gzip, deflate");
+        }
+        return builder;
+    }
+
+    private byte[] gzip(PooledBodyPublisher body) {
+        long start = CompressionStats.cpuTime();
+        long length = body.contentLength();
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(Math.max(64, length / 4), Integer.MAX_VALUE - 8));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            body.writeTo(gzip);
+        } catch (IOException e) {
+            // In-memory streams don't throw
+            throw new IllegalStateException(e);
+        }
+        byte[] compressed = out.toByteArray();
+        sharedClient.getCompressionStats().requestCompressed(length, compressed.length, CompressionStats.cpuTime() - start);
+        return compressed;
+    }
+
+    /**
+     * POSTs a JSON statement request and returns the decoded response body as a stream, so large
+     * results can be consumed without holding the whole body in memory. Closing the stream releases
+     * the underlying HTTP connection.
+     *
+     * @throws SQLException if the proxy answers with a non-2xx status
+     */
+    public ProxyResponse openStream(String json) throws IOException, InterruptedException, SQLException {
+        HttpResponse<InputStream> response = exchange(withDeferred(json), true);
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            readBody(response);
+        }
+        sharedClient.markVerified();
+        return toProxyResponse(response, decodeBody(response));
+    }
+
+    /**
+     * Reads the whole (decompressed) body into pooled chunks, failing on non-2xx statuses. The chunks go back
+     * to the pool when the returned stream is closed, which a parser over it does at the end of the body.
+     */
+    private InputStream readBody(HttpResponse<InputStream> response) throws IOException, SQLException {
+        PooledInputStream body = PooledInputStream.readFully(decodeBody(response), sharedClient.getBufferPool());
+        if (response.statusCode() == 404 && "unknown".equals(response.headers().firstValue(STATEMENT_HEADER).orElse(null))) {
+            body.close();
+            throw new SQLException("Proxy does not hold the prepared statement handle", UNKNOWN_STATEMENT_STATE);
+        }
+        if (response.statusCode() == 410 && transactionAborted) {
+            body.close();
+            throw transactionAbortedError();
+        }
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            String text;
+            try (body) {
+                text = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            throw new SQLException("HTTP error: status code " + response.statusCode() + ", body: " + text);
+        }
+        sharedClient.markVerified();
+        return body;
+    }
+
+    private static ProxyResponse toProxyResponse(HttpResponse<?> response, InputStream body) {
+        ResponseEncoding encoding = ResponseEncoding.fromContentType(response.headers().firstValue("Content-Type").orElse(null));
+        return new ProxyResponse(encoding, body, response.headers().firstValue(ProxyResponse.CURSOR_HEADER).orElse(null));
+    }
+
+    private InputStream decodeBody(HttpResponse<InputStream> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("identity").trim().toLowerCase();
+        if (encoding.equals("identity")) {
+            return response.body();
+        }
+        CountingInputStream wire = new CountingInputStream(response.body());
+        return new DecodedInputStream(decode(encoding, wire), wire, sharedClient.getCompressionStats());
+    }
+
+    private static InputStream decode(String encoding, InputStream in) throws IOException {
+        switch (encoding) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(in);
+            case "deflate":
+                return new InflaterInputStream(in);
+            default:
+                in.close();
+                throw new IOException("Unsupported Content-Encoding: " + encoding);
+        }
+    }
+
+    public HttpClient getClient() {
+        return sharedClient.getClient();
+    }
+
+    public URI getEndpoint() {
+        return endpoint;
+    }
+
+    public ConnectionProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * @return counters for requests sent through this connection only
+     */
+    public TransportStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return the driver-wide result cache this connection's queries may be served from
+     */
+    public ResultCache getResultCache() {
+        return sharedClient.getResultCache();
+    }
+
+    /**
+     * @return the driver-wide chunks this connection's request and response bodies are held in
+     */
+    public BufferPool getBufferPool() {
+        return sharedClient.getBufferPool();
+    }
+
+    /**
+     * @return whether a query may be answered from the result cache right now: the connection enabled it,
+     *         and no transaction or deferred write could make the cached rows miss this connection's changes
+     */
+    public boolean isResultCacheable() {
+        return !properties.getResultCacheTtl().isZero() && deferred.isEmpty() && !transactionRequested && transactionId == null;
+    }
+
+    /**
+     * Drops cached results fetched through this connection's client, after a write that may have changed them.
+     * Called for every write, including those of connections that don't cache, since others sharing the client may.
+     */
+    public void invalidateResults() {
+        sharedClient.getResultCache().invalidate(sharedClient.getKey());
+    }
+
+    /**
+     * @return whether {@code error}, or any of its causes, reports a statement handle the proxy doesn't hold
+     */
+    public static boolean isUnknownStatement(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof SQLException && UNKNOWN_STATEMENT_STATE.equals(((SQLException) t).getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the proxy has registered the statement with this content hash for any connection
+     *         sharing the client
+     */
+    public boolean isStatementPrepared(String statementId) {
+        return sharedClient.isStatementPrepared(statementId);
+    }
+
+    public void markStatementPrepared(String statementId) {
+        sharedClient.markStatementPrepared(statementId);
+    }
+
+    public void forgetStatement(String statementId) {
+        sharedClient.forgetStatement(statementId);
+    }
+
+    public ResultCache.Key resultCacheKey(String json) {
+        return new ResultCache.Key(sharedClient.getKey(), json);
+    }
+
+    /**
+     * @return counters for every connection sharing the same client
+     */
+    public TransportStats getSharedStats() {
+        return sharedClient.getStats();
+    }
+
+    /**
+     * @return compression counters for every connection sharing the same client
+     */
+    public CompressionStats getCompressionStats() {
+        return sharedClient.getCompressionStats();
+    }
+
+    /**
+     * Inflating stream that reports sizes and the CPU time spent inside its reads when closed.
+     */
+    private static class DecodedInputStream extends FilterInputStream {
+
+        private final CountingInputStream wire;
+        private final CompressionStats stats;
+        private long decoded;
+        private long cpuNanos;
+        private boolean reported;
+
+        DecodedInputStream(InputStream decoder, CountingInputStream wire, CompressionStats stats) {
+            super(decoder);
+            this.wire = wire;
+            this.stats = stats;
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = CompressionStats.cpuTime();
+            int b = super.read();
+            cpuNanos += CompressionStats.cpuTime() - start;
+            if (b >= 0) decoded++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long start = CompressionStats.cpuTime();
+            int n = super.read(b, off, len);
+            cpuNanos += CompressionStats.cpuTime() - start;
+            if (n > 0) decoded += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!reported) {
+                    reported = true;
+                    stats.responseDecompressed(wire.count, decoded, cpuNanos);
+                }
+            }
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
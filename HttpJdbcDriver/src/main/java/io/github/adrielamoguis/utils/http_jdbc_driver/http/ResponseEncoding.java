@@ -0,0 +1,76 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Body encoding of proxy responses. The preferred one is advertised with the {@code encoding}
+ * connection property; the one actually used is read back from the response {@code Content-Type},
+ * so a proxy that only speaks JSON keeps working.
+ * <p>
+ * The binary encodings carry the same documents as JSON, but numbers arrive as native integers and
+ * floats instead of text that has to be parsed again.
+ */
+public enum ResponseEncoding {
+
+    JSON("json", "application/json", JsonSupport.JSON_FACTORY),
+
+    CBOR("cbor", "application/cbor", CBORFactory.builder().disable(JsonFactory.Feature.INTERN_FIELD_NAMES).build()),
+
+    SMILE("smile", "application/x-jackson-smile", SmileFactory.builder().disable(JsonFactory.Feature.INTERN_FIELD_NAMES).build());
+
+    private final String propertyValue;
+    private final String mediaType;
+    private final JsonFactory factory;
+
+    ResponseEncoding(String propertyValue, String mediaType, JsonFactory factory) {
+        this.propertyValue = propertyValue;
+        this.mediaType = mediaType;
+        this.factory = factory;
+    }
+
+    public String getPropertyValue() {
+        return propertyValue;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return the Jackson parser factory for this encoding; thread-safe and shared
+     */
+    public JsonFactory getFactory() {
+        return factory;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code value} is not one of {@code json}, {@code cbor} or {@code smile}
+     */
+    public static ResponseEncoding fromProperty(String value) {
+        for (ResponseEncoding encoding : values()) {
+            if (encoding.propertyValue.equalsIgnoreCase(value.trim())) {
+                return encoding;
+            }
+        }
+        throw new IllegalArgumentException("Unknown encoding '" + value + "', expected one of json, cbor, smile");
+    }
+
+    /**
+     * @return the encoding for a response {@code Content-Type} header, {@link #JSON} if absent or unrecognized
+     */
+    public static ResponseEncoding fromContentType(String contentType) {
+        if (contentType == null) {
+            return JSON;
+        }
+        int parameters = contentType.indexOf(';');
+        String mediaType = (parameters >= 0 ? contentType.substring(0, parameters) : contentType).trim();
+        for (ResponseEncoding encoding : values()) {
+            if (encoding.mediaType.equalsIgnoreCase(mediaType)) {
+                return encoding;
+            }
+        }
+        return JSON;
+    }
+}
@@ -0,0 +1,267 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Driver-wide cache of query results, keyed by the client a query was sent through and its request body,
+ * so connections with different endpoints or credentials never see each other's rows.
+ * <p>
+ * Entries expire after the TTL of the connection that stored them. Within the stale window after that, a
+ * lookup still returns the entry and asks the first caller to refresh it in the background. The least
+ * recently used entries are evicted once the estimated size of all entries exceeds the byte budget.
+ * <p>
+ * Each client also has an invalidation generation, bumped whenever its results are invalidated. A query reads
+ * it before it is sent and hands it to {@link #put}, which drops the result if a write invalidated the client's
+ * results in the meantime: the rows may predate that write.
+ */
+public class ResultCache {
+
+    // Rough cost of the map entry, key and bookkeeping around each result
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<HttpClientRegistry.ClientKey, Long> generations = new HashMap<>();
+    private long maxBytes;
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Identifies a cached result: the shared client it was fetched through and the exact request body.
+     */
+    public record Key(HttpClientRegistry.ClientKey client, String request) {
+    }
+
+    /**
+     * A cached result, and whether the caller should refresh it because it is past its TTL.
+     */
+    public record Hit(CachedResult result, boolean revalidate) {
+    }
+
+    private static final class Entry {
+        final CachedResult result;
+        final long bytes;
+        final long expiresAt;
+        final long staleUntil;
+        boolean refreshing;
+
+        Entry(CachedResult result, long bytes, long expiresAt, long staleUntil) {
+            this.result = result;
+            this.bytes = bytes;
+            this.expiresAt = expiresAt;
+            this.staleUntil = staleUntil;
+        }
+    }
+
+    /**
+     * Raises the byte budget to at least {@code maxBytes}. Connections may ask for different budgets;
+     * the largest one applies to the whole driver.
+     */
+    public void ensureCapacity(long maxBytes) {
+        lock.lock();
+        try {
+            this.maxBytes = Math.max(this.maxBytes, maxBytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the entry for {@code key}, or {@code null} if there is none or it is past its stale window
+     */
+    public Hit get(Key key) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.expiresAt < 0) {
+                    hits.incrementAndGet();
+                    return new Hit(entry.result, false);
+                }
+                if (now - entry.staleUntil < 0) {
+                    staleHits.incrementAndGet();
+                    // Only the first caller past the TTL refreshes; the rest keep reading the stale copy
+                    boolean revalidate = !entry.refreshing;
+                    entry.refreshing = true;
+                    return new Hit(entry.result, revalidate);
+                }
+                remove(key, entry);
+            }
+            misses.incrementAndGet();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the invalidation generation of {@code client}'s results, to read before sending a query whose
+     *         result is to be {@linkplain #put stored}
+     */
+    public long generation(HttpClientRegistry.ClientKey client) {
+        lock.lock();
+        try {
+            return generations.computeIfAbsent(client, k -> 0L);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores {@code result}, replacing any previous entry for {@code key}, then evicts least recently used
+     * entries until the cache fits its budget. Results larger than the whole budget are not stored, and neither
+     * are results fetched before the client's results were last invalidated.
+     *
+     * @param generation what {@link #generation} returned for the key's client before the query was sent
+     */
+    public void put(Key key, CachedResult result, Duration ttl, Duration stale, long generation) {
+        long size = result.getBytes() + ENTRY_OVERHEAD + 2L * key.request().length();
+        long now = System.nanoTime();
+        long expiresAt = now + ttl.toNanos();
+        Entry entry = new Entry(result, size, expiresAt, expiresAt + stale.toNanos());
+        lock.lock();
+        try {
+            if (generations.getOrDefault(key.client(), 0L) != generation) {
+                return;
+            }
+            Entry previous = entries.remove(key);
+            if (previous != null) {
+                bytes -= previous.bytes;
+            }
+            if (size > maxBytes) {
+                return;
+            }
+            entries.put(key, entry);
+            bytes += size;
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().getValue().bytes;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lets the next stale lookup of {@code key} try to refresh it again after a failed refresh.
+     */
+    public void refreshFailed(Key key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                entry.refreshing = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every cached result, e.g. after the application changed data the cached queries read.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+            bytes = 0;
+            generations.replaceAll((client, generation) -> generation + 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the results fetched through {@code client}, after a write through it may have changed them, and
+     * makes sure results of queries still in flight aren't stored either.
+     */
+    public void invalidate(HttpClientRegistry.ClientKey client) {
+        lock.lock();
+        try {
+            generations.merge(client, 1L, Long::sum);
+            Iterator<Map.Entry<Key, Entry>> all = entries.entrySet().iterator();
+            while (all.hasNext()) {
+                Map.Entry<Key, Entry> next = all.next();
+                if (next.getKey().client().equals(client)) {
+                    bytes -= next.getValue().bytes;
+                    all.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        bytes -= entry.bytes;
+    }
+
+    /**
+     * @return lookups answered by an entry within its TTL
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return lookups answered by an entry past its TTL but within its stale window
+     */
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+    /**
+     * @return lookups that had to go to the proxy
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return entries dropped to stay within the byte budget
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the estimated size of every result currently held
+     */
+    public long getBytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCache[entries=" + size() + ", bytes=" + getBytes() + ", hits=" + getHits()
+                + ", staleHits=" + getStaleHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "]";
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+/**
+ * Result body layout asked of the proxy through the {@code Accept} header, selected with the
+ * {@code resultFormat} connection property. The driver decodes whichever layout comes back, so a
+ * proxy that ignores the header keeps working.
+ */
+public enum ResultFormat {
+
+    /**
+     * {@code {"columns": [...], "types": [...], "rows": [[...], ...]}}: column names are sent once
+     * and each row is a positional array. Falls back to {@link #OBJECTS} on proxies that don't offer it.
+     */
+    COLUMNAR("columnar", "application/vnd.http-jdbc.columnar+json, application/json;q=0.9"),
+
+    /**
+     * {@code [{"column": value, ...}, ...]}: the original format, repeating every column name in every row.
+     */
+    OBJECTS("objects", "application/json");
+
+    public static final String COLUMNAR_MEDIA_TYPE = "application/vnd.http-jdbc.columnar+json";
+
+    private final String propertyValue;
+    private final String acceptHeader;
+
+    ResultFormat(String propertyValue, String acceptHeader) {
+        this.propertyValue = propertyValue;
+        this.acceptHeader = acceptHeader;
+    }
+
+    public String getPropertyValue() {
+        return propertyValue;
+    }
+
+    public String getAcceptHeader() {
+        return acceptHeader;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code value} is not one of {@code columnar} or {@code objects}
+     */
+    public static ResultFormat fromProperty(String value) {
+        for (ResultFormat format : values()) {
+            if (format.propertyValue.equalsIgnoreCase(value.trim())) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown resultFormat '" + value + "', expected one of columnar, objects");
+    }
+}
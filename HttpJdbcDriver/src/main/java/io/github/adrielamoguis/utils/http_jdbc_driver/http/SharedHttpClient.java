@@ -0,0 +1,133 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reference-counted handle to an {@link HttpClient} owned by a {@link HttpClientRegistry}.
+ * Connections hold one of these instead of building their own client.
+ */
+public class SharedHttpClient {
+
+    /**
+     * Statement handles remembered per client; statements prepared past this keep sending their text.
+     */
+    static final int MAX_PREPARED_STATEMENTS = 4096;
+
+    private final HttpClientRegistry registry;
+    private final HttpClientRegistry.ClientKey key;
+    private final HttpClient client;
+    private final TransportStats stats = new TransportStats();
+    private final CompressionStats compressionStats = new CompressionStats();
+
+    // Only mutated inside the registry's compute functions, which are atomic per key
+    private volatile int references = 1;
+
+    // System.nanoTime() of the last successful response from the proxy; 0 if none yet
+    private volatile long lastVerifiedNanos;
+
+    // Set once the proxy answers a gzip request body with 415 Unsupported Media Type
+    private volatile boolean requestCompressionRejected;
+
+    // Content hashes of statements the proxy has registered through this client
+    private final Set<String> preparedStatements = ConcurrentHashMap.newKeySet();
+
+    SharedHttpClient(HttpClientRegistry registry, HttpClientRegistry.ClientKey key, HttpClient client) {
+        this.registry = registry;
+        this.key = key;
+        this.client = client;
+    }
+
+    public HttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return request counters across every connection sharing this client
+     */
+    public TransportStats getStats() {
+        return stats;
+    }
+
+    public CompressionStats getCompressionStats() {
+        return compressionStats;
+    }
+
+    boolean isRequestCompressionRejected() {
+        return requestCompressionRejected;
+    }
+
+    void rejectRequestCompression() {
+        requestCompressionRejected = true;
+    }
+
+    boolean isStatementPrepared(String statementId) {
+        return preparedStatements.contains(statementId);
+    }
+
+    void markStatementPrepared(String statementId) {
+        if (preparedStatements.size() < MAX_PREPARED_STATEMENTS) {
+            preparedStatements.add(statementId);
+        }
+    }
+
+    void forgetStatement(String statementId) {
+        preparedStatements.remove(statementId);
+    }
+
+    /**
+     * Records that the proxy just answered a request successfully.
+     */
+    void markVerified() {
+        lastVerifiedNanos = System.nanoTime();
+    }
+
+    /**
+     * @return whether any connection sharing this client ever got a successful response
+     */
+    boolean isVerified() {
+        return lastVerifiedNanos != 0;
+    }
+
+    /**
+     * @return whether any connection sharing this client reached the proxy within {@code ttl}
+     */
+    boolean isVerifiedWithin(Duration ttl) {
+        long last = lastVerifiedNanos;
+        return last != 0 && System.nanoTime() - last < ttl.toNanos();
+    }
+
+    ResultCache getResultCache() {
+        return registry.getResultCache();
+    }
+
+    BufferPool getBufferPool() {
+        return registry.getBufferPool();
+    }
+
+    public HttpClientRegistry.ClientKey getKey() {
+        return key;
+    }
+
+    /**
+     * Gives this handle back to the registry. Sockets stay open for as long as any other
+     * connection still references the same client.
+     */
+    public void release() {
+        registry.release(this);
+    }
+
+    void retain() {
+        references++;
+    }
+
+    int releaseReference() {
+        return --references;
+    }
+
+    int getReferences() {
+        return references;
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A JSON request body with binary streams spliced into it: text, then a stream sent as base64, then text,
+ * and so on. The streams are read while the request is being sent, never buffered whole. Such a body can
+ * only be sent once, so it is never compressed and never retried. Should the client still try to publish it
+ * a second time, e.g. to answer an authentication challenge, that attempt fails instead of sending the
+ * already consumed streams, see {@link #isResent()}.
+ */
+public final class StreamingBody {
+
+    private final List<String> texts = new ArrayList<>();
+    private final List<InputStream> streams = new ArrayList<>();
+    private final List<Long> lengths = new ArrayList<>();
+    private volatile boolean resent;
+
+    /**
+     * @param head JSON up to the first stream, starting with the request object's opening brace
+     */
+    public StreamingBody(String head) {
+        texts.add(head);
+    }
+
+    /**
+     * Appends {@code stream} as the content of a JSON string, followed by more JSON text.
+     *
+     * @param length bytes of {@code stream} to send, or -1 to send it to its end
+     */
+    public StreamingBody addBase64(InputStream stream, long length, String next) {
+        streams.add(stream);
+        lengths.add(length);
+        texts.add(next);
+        return this;
+    }
+
+    String getHead() {
+        return texts.get(0);
+    }
+
+    /**
+     * Replaces the text before the first stream, e.g. to prepend deferred statements.
+     */
+    void setHead(String head) {
+        texts.set(0, head);
+    }
+
+    /**
+     * @return whether the client tried to publish the body a second time, which failed the request
+     */
+    boolean isResent() {
+        return resent;
+    }
+
+    /**
+     * @return a publisher of the whole body; its length is known only if every stream was given one
+     */
+    HttpRequest.BodyPublisher publisher() {
+        HttpRequest.BodyPublisher[] parts = new HttpRequest.BodyPublisher[texts.size() + streams.size()];
+        int part = 0;
+        for (int i = 0; i < streams.size(); i++) {
+            parts[part++] = HttpRequest.BodyPublishers.ofByteArray(texts.get(i).getBytes(StandardCharsets.UTF_8));
+            Base64InputStream encoded = new Base64InputStream(streams.get(i), lengths.get(i));
+            AtomicBoolean taken = new AtomicBoolean();
+            HttpRequest.BodyPublisher stream = HttpRequest.BodyPublishers.ofInputStream(() -> {
+                if (!taken.compareAndSet(false, true)) {
+                    resent = true;
+                    throw new IllegalStateException("A streamed parameter was already sent and can't be sent again");
+                }
+                return encoded;
+            });
+            long length = lengths.get(i);
+            parts[part++] = length < 0 ? stream : HttpRequest.BodyPublishers.fromPublisher(stream, Base64InputStream.encodedLength(length));
+        }
+        parts[part] = HttpRequest.BodyPublishers.ofByteArray(texts.get(texts.size() - 1).getBytes(StandardCharsets.UTF_8));
+        return HttpRequest.BodyPublishers.concat(parts);
+    }
+}
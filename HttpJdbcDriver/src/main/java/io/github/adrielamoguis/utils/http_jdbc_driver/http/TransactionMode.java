@@ -0,0 +1,41 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+/**
+ * What {@code setAutoCommit(false)}, {@code commit()} and {@code rollback()} mean, selected with the
+ * {@code transactionMode} connection property.
+ */
+public enum TransactionMode {
+
+    /**
+     * The proxy auto-commits every statement; {@code commit()} and {@code rollback()} only affect
+     * writes deferred by {@code pipelineWrites}.
+     */
+    NONE,
+
+    /**
+     * The first request after {@code setAutoCommit(false)} asks the proxy to begin a transaction, whose
+     * handle then travels in the {@value ProxyTransport#TRANSACTION_HEADER} header until {@code commit()}
+     * or {@code rollback()}. The proxy rolls back sessions left idle for longer than their lease.
+     */
+    SESSION,
+
+    /**
+     * Writes are held by the driver while auto-commit is off, and {@code commit()} sends them as one
+     * {@code {"transaction": [request, ...]}} script that the proxy runs between {@code BEGIN} and
+     * {@code COMMIT}. Nothing is held on the proxy between requests, so no sticky routing is needed.
+     * A query inside the transaction carries the writes held so far, which commit with it.
+     */
+    BUFFERED;
+
+    /**
+     * @throws IllegalArgumentException if {@code value} is not one of {@code none}, {@code session} or {@code buffered}
+     */
+    public static TransactionMode fromProperty(String value) {
+        for (TransactionMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value.trim())) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown transactionMode '" + value + "', expected one of none, session, buffered");
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request counters for a transport. Under HTTP/2 every in-flight request is a stream
+ * multiplexed over the shared connection, so {@link #getInFlight()} is the live stream count.
+ */
+public class TransportStats {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicLong http2Responses = new AtomicLong();
+    private final AtomicLong http1Responses = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    void requestStarted() {
+        int current = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(current, Math::max);
+    }
+
+    void requestCompleted(HttpClient.Version version) {
+        inFlight.decrementAndGet();
+        if (version == HttpClient.Version.HTTP_2) {
+            http2Responses.incrementAndGet();
+        } else {
+            http1Responses.incrementAndGet();
+        }
+    }
+
+    void requestFailed() {
+        inFlight.decrementAndGet();
+        failures.incrementAndGet();
+    }
+
+    /**
+     * @return requests (HTTP/2 streams) currently awaiting a response
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the highest number of concurrent requests seen so far
+     */
+    public int getPeakInFlight() {
+        return peakInFlight.get();
+    }
+
+    /**
+     * @return responses that arrived over HTTP/2
+     */
+    public long getHttp2Responses() {
+        return http2Responses.get();
+    }
+
+    /**
+     * @return responses that arrived over HTTP/1.1, including ones where h2 negotiation fell back
+     */
+    public long getHttp1Responses() {
+        return http1Responses.get();
+    }
+
+    /**
+     * @return requests that failed before a response was received
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public String toString() {
+        return "TransportStats[inFlight=" + getInFlight() + ", peakInFlight=" + getPeakInFlight()
+                + ", http2=" + getHttp2Responses() + ", http1=" + getHttp1Responses()
+                + ", failures=" + getFailures() + "]";
+    }
+}
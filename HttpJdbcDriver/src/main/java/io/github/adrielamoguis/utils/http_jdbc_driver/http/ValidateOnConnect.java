@@ -0,0 +1,37 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+/**
+ * When the driver checks that the proxy is reachable, selected with the {@code validateOnConnect} property.
+ */
+public enum ValidateOnConnect {
+
+    /**
+     * Don't probe on connect. {@code Connection.isValid} still probes at most once per validation TTL, as in
+     * every mode.
+     */
+    NONE,
+
+    /**
+     * Don't probe on connect. The first real statement surfaces any connect error, and
+     * {@code Connection.isValid} probes at most once per shared client per validation TTL.
+     */
+    LAZY,
+
+    /**
+     * Probe before {@code Driver.connect} returns, unless another connection sharing the
+     * client has already reached the proxy within the validation TTL.
+     */
+    EAGER;
+
+    /**
+     * @throws IllegalArgumentException if {@code value} is not one of {@code none}, {@code lazy} or {@code eager}
+     */
+    public static ValidateOnConnect fromProperty(String value) {
+        for (ValidateOnConnect mode : values()) {
+            if (mode.name().equalsIgnoreCase(value.trim())) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown validateOnConnect '" + value + "', expected one of none, lazy, eager");
+    }
+}
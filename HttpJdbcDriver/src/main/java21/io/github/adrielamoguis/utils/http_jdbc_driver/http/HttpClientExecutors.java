@@ -0,0 +1,27 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.Executors;
+
+/**
+ * JDK 21+ variant of the executor selection, packaged under {@code META-INF/versions/21}.
+ * <p>
+ * Shared clients run their asynchronous work on virtual threads, so a burst of concurrent
+ * statements never grows a platform thread pool to match.
+ */
+public final class HttpClientExecutors {
+
+    private HttpClientExecutors() {
+    }
+
+    public static void configure(HttpClient.Builder builder) {
+        builder.executor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * @return whether clients built by this driver run on virtual threads
+     */
+    public static boolean usesVirtualThreads() {
+        return true;
+    }
+}
@@ -0,0 +1,199 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.HttpClientRegistry;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.Protocol;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ResponseEncoding;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.SharedHttpClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Minimal in-process stand-in for the SQL proxy, answering every POST with the body produced by a handler.
+ */
+public class FakeProxyServer implements AutoCloseable {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpServer server;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<Map<String, List<String>>> requestHeaders = new CopyOnWriteArrayList<>();
+    private volatile Function<String, String> handler;
+    private volatile boolean gzipResponses;
+    private volatile boolean rejectCompressedRequests;
+    private volatile boolean binaryResponses;
+    private volatile Function<String, Map<String, String>> responseHeaders = body -> Map.of();
+    private volatile Function<String, Integer> responseStatus = body -> 200;
+    private volatile String authorization;
+
+    public FakeProxyServer(Function<String, String> handler) throws IOException {
+        this.handler = handler;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestHeaders.add(Map.copyOf(exchange.getRequestHeaders()));
+        if (authorization != null && !authorization.equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("WWW-Authenticate", "Basic realm=\"proxy\"");
+            exchange.sendResponseHeaders(401, -1);
+            exchange.close();
+            return;
+        }
+        boolean compressedRequest = "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+        if (compressedRequest && rejectCompressedRequests) {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(415, -1);
+            exchange.close();
+            return;
+        }
+        InputStream in = compressedRequest ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody();
+        String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        requests.add(body);
+        byte[] response;
+        int status = responseStatus.apply(body);
+        try {
+            response = handler.apply(body).getBytes(StandardCharsets.UTF_8);
+        } catch (RuntimeException e) {
+            status = 500;
+            response = String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8);
+        }
+        String contentType = "application/json";
+        ResponseEncoding binary = status == 200 && binaryResponses ? preferredBinaryEncoding(exchange) : null;
+        if (binary != null) {
+            // Re-encode the handler's JSON the way a proxy with Jackson dataformat modules would
+            response = new ObjectMapper(binary.getFactory()).writeValueAsBytes(JSON.readTree(response));
+            contentType = binary.getMediaType();
+        }
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        responseHeaders.apply(body).forEach(exchange.getResponseHeaders()::add);
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (gzipResponses && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(response);
+            }
+            response = compressed.toByteArray();
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    private static ResponseEncoding preferredBinaryEncoding(HttpExchange exchange) {
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        if (accept == null) {
+            return null;
+        }
+        for (String mediaType : accept.split(",")) {
+            ResponseEncoding encoding = ResponseEncoding.fromContentType(mediaType);
+            if (encoding != ResponseEncoding.JSON) {
+                return encoding;
+            }
+        }
+        return null;
+    }
+
+    public void setHandler(Function<String, String> handler) {
+        this.handler = handler;
+    }
+
+    public void setGzipResponses(boolean gzipResponses) {
+        this.gzipResponses = gzipResponses;
+    }
+
+    public void setRejectCompressedRequests(boolean rejectCompressedRequests) {
+        this.rejectCompressedRequests = rejectCompressedRequests;
+    }
+
+    /**
+     * Adds headers computed from the request body to every response, e.g. a cursor id.
+     */
+    public void setResponseHeaders(Function<String, Map<String, String>> responseHeaders) {
+        this.responseHeaders = responseHeaders;
+    }
+
+    /**
+     * Picks the status of each response from its request body; handler failures still answer 500.
+     */
+    public void setResponseStatus(Function<String, Integer> responseStatus) {
+        this.responseStatus = responseStatus;
+    }
+
+    /**
+     * Answers in CBOR or Smile when the request lists one of them in {@code Accept}.
+     */
+    public void setBinaryResponses(boolean binaryResponses) {
+        this.binaryResponses = binaryResponses;
+    }
+
+    /**
+     * Challenges every request that doesn't carry these Basic credentials; the challenged bodies aren't recorded.
+     */
+    public void setBasicAuth(String user, String password) {
+        this.authorization = "Basic " + Base64.getEncoder().encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public List<Map<String, List<String>>> getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    /**
+     * @return request bodies received, already decompressed
+     */
+    public List<String> getRequests() {
+        return requests;
+    }
+
+    public String getEndpoint() {
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Opens a plain-HTTP connection to this server without going through the driver's probe.
+     */
+    public HttpJdbcConnection connect() {
+        return connect(ConnectionProperties.defaults(true));
+    }
+
+    public HttpJdbcConnection connect(ConnectionProperties properties) {
+        return connect(properties, HttpClient::newHttpClient);
+    }
+
+    /**
+     * Like {@link #connect(ConnectionProperties)}, through a client of the test's making, e.g. with an authenticator.
+     */
+    public HttpJdbcConnection connect(ConnectionProperties properties, Supplier<HttpClient> clientFactory) {
+        SharedHttpClient client = new HttpClientRegistry().acquire(
+                new HttpClientRegistry.ClientKey(getEndpoint(), "user", "pass", true, Protocol.HTTP_1_1),
+                clientFactory);
+        return new HttpJdbcConnection(client, getEndpoint(), properties);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,187 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver;
+
+import io.github.adrielamoguis.utils.http_jdbc_driver.db.HttpJdbcStatement;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ProxyTransport;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpJdbcConnectionTransactionTest {
+
+    private static ConnectionProperties sessions() throws SQLException {
+        Properties info = new Properties();
+        info.setProperty("disableSSL", "true");
+        info.setProperty("transactionMode", "session");
+        info.setProperty("transactionLeaseSeconds", "15");
+        return ConnectionProperties.parse(info);
+    }
+
+    private static String header(FakeProxyServer server, int request, String name) {
+        List<String> values = server.getRequestHeaders().get(request).get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    private static FakeProxyServer sessionServer() throws Exception {
+        FakeProxyServer server = new FakeProxyServer(body -> "{\"updateCount\": 1}");
+        server.setResponseHeaders(body -> Map.of(ProxyTransport.TRANSACTION_HEADER, "tx-1"));
+        return server;
+    }
+
+    @Test
+    void testStatementsShareOneSessionUntilCommit() throws Exception {
+        try (FakeProxyServer server = sessionServer();
+             HttpJdbcConnection connection = server.connect(sessions());
+             Statement statement = connection.createStatement()) {
+            connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            connection.setAutoCommit(false);
+            statement.executeUpdate("UPDATE accounts SET balance = balance - 10 WHERE id = 1");
+            statement.executeUpdate("UPDATE accounts SET balance = balance + 10 WHERE id = 2");
+            connection.commit();
+            statement.executeUpdate("DELETE FROM sessions");
+
+            assertEquals("begin", header(server, 0, "X-http-jdbc-transaction"));
+            assertEquals("15", header(server, 0, "X-http-jdbc-transaction-lease"));
+            assertEquals("SERIALIZABLE", header(server, 0, "X-http-jdbc-isolation"));
+            assertEquals("tx-1", header(server, 1, "X-http-jdbc-transaction"));
+            assertEquals("tx-1", header(server, 2, "X-http-jdbc-transaction"));
+            assertEquals("{\"commit\": true}", server.getRequests().get(2));
+            // A new transaction starts after the commit
+            assertEquals("begin", header(server, 3, "X-http-jdbc-transaction"));
+        }
+    }
+
+    @Test
+    void testConcurrentFirstStatementsOpenOneSession() throws Exception {
+        try (FakeProxyServer server = sessionServer();
+             HttpJdbcConnection connection = server.connect(sessions())) {
+            server.setHandler(body -> {
+                try {
+                    // Keep the opening request in flight while the others are issued
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "{\"updateCount\": 1}";
+            });
+            connection.setAutoCommit(false);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<Integer>> updates = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    int id = i;
+                    updates.add(executor.submit(() -> connection.createStatement().executeUpdate("DELETE FROM users WHERE id = " + id)));
+                }
+                updates.add(executor.submit(() -> connection.createStatement().unwrap(HttpJdbcStatement.class)
+                        .executeUpdateAsync("DELETE FROM users WHERE id = 4").get()));
+                for (Future<Integer> update : updates) {
+                    assertEquals(1, update.get(10, TimeUnit.SECONDS));
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            long begins = server.getRequestHeaders().stream()
+                    .filter(headers -> List.of("begin").equals(headers.get("X-http-jdbc-transaction")))
+                    .count();
+            assertEquals(1, begins);
+            assertEquals(5, server.getRequests().size());
+        }
+    }
+
+    @Test
+    void testRollbackAndIsolationChangeInsideTransaction() throws Exception {
+        try (FakeProxyServer server = sessionServer();
+             HttpJdbcConnection connection = server.connect(sessions());
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.executeUpdate("DELETE FROM users");
+
+            assertThrows(SQLException.class, () -> connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE));
+            connection.rollback();
+
+            assertEquals("{\"rollback\": true}", server.getRequests().get(1));
+            assertEquals("tx-1", header(server, 1, "X-http-jdbc-transaction"));
+            assertFalse(connection.getTransport().isInTransaction());
+        }
+    }
+
+    @Test
+    void testAutoCommitModeSendsNoSessionHeaders() throws Exception {
+        try (FakeProxyServer server = sessionServer();
+             HttpJdbcConnection connection = server.connect(sessions())) {
+            connection.createStatement().executeUpdate("DELETE FROM users");
+
+            assertNull(header(server, 0, "X-http-jdbc-transaction"));
+        }
+    }
+
+    @Test
+    void testCloseRollsBackOpenSession() throws Exception {
+        try (FakeProxyServer server = sessionServer()) {
+            HttpJdbcConnection connection = server.connect(sessions());
+            connection.setAutoCommit(false);
+            connection.createStatement().executeUpdate("DELETE FROM users");
+            connection.close();
+
+            assertEquals("{\"rollback\": true}", server.getRequests().get(1));
+        }
+    }
+
+    @Test
+    void testExpiredSessionAbortsTheTransaction() throws Exception {
+        try (FakeProxyServer server = sessionServer();
+             HttpJdbcConnection connection = server.connect(sessions());
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.executeUpdate("UPDATE accounts SET balance = balance - 10 WHERE id = 1");
+            server.setResponseStatus(body -> 410);
+
+            SQLException expired = assertThrows(SQLException.class,
+                    () -> statement.executeUpdate("UPDATE accounts SET balance = balance + 10 WHERE id = 2"));
+            assertEquals(ProxyTransport.TRANSACTION_ABORTED_STATE, expired.getSQLState());
+            server.setResponseStatus(body -> 200);
+
+            // Neither later writes nor the commit go through a fresh session behind the caller's back
+            SQLException write = assertThrows(SQLException.class, () -> statement.executeUpdate("DELETE FROM sessions"));
+            assertEquals(ProxyTransport.TRANSACTION_ABORTED_STATE, write.getSQLState());
+            SQLException commit = assertThrows(SQLException.class, connection::commit);
+            assertEquals(ProxyTransport.TRANSACTION_ABORTED_STATE, commit.getSQLState());
+            assertEquals(2, server.getRequests().size());
+
+            connection.rollback();
+            statement.executeUpdate("DELETE FROM sessions");
+            assertEquals("begin", header(server, 2, "X-http-jdbc-transaction"));
+        }
+    }
+
+    @Test
+    void testAutoCommitLeavesAnAbortedTransaction() throws Exception {
+        try (FakeProxyServer server = sessionServer();
+             HttpJdbcConnection connection = server.connect(sessions());
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.executeUpdate("UPDATE accounts SET balance = balance - 10 WHERE id = 1");
+            server.setResponseStatus(body -> 410);
+            assertThrows(SQLException.class, () -> statement.executeUpdate("UPDATE accounts SET balance = 0"));
+            server.setResponseStatus(body -> 200);
+
+            SQLException e = assertThrows(SQLException.class, () -> connection.setAutoCommit(true));
+            assertEquals(ProxyTransport.TRANSACTION_ABORTED_STATE, e.getSQLState());
+            assertTrue(connection.getAutoCommit());
+            statement.executeUpdate("DELETE FROM sessions");
+            assertNull(header(server, 2, "X-http-jdbc-transaction"));
+        }
+    }
+}
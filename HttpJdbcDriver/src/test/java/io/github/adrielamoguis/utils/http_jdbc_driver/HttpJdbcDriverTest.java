@@ -0,0 +1,83 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpJdbcDriverTest {
+
+    private static Properties properties(String validateOnConnect) {
+        Properties info = new Properties();
+        info.setProperty("user", "user");
+        info.setProperty("password", "pass");
+        info.setProperty("disableSSL", "true");
+        info.setProperty("validateOnConnect", validateOnConnect);
+        return info;
+    }
+
+    @Test
+    void testLazyConnectSendsNoProbe() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> "[]")) {
+            List<Connection> connections = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                connections.add(new HttpJdbcDriver().connect("jdbc:http://" + server.getEndpoint(), properties("lazy")));
+            }
+            assertTrue(server.getRequests().isEmpty());
+
+            assertTrue(connections.get(0).isValid(5));
+            assertTrue(connections.get(1).isValid(5));
+            assertEquals(1, server.getRequests().size());
+
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    @Test
+    void testEagerConnectProbesOncePerSharedClient() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> "[]")) {
+            List<Connection> connections = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                connections.add(new HttpJdbcDriver().connect("jdbc:http://" + server.getEndpoint(), properties("eager")));
+            }
+            assertEquals(1, server.getRequests().size());
+            assertTrue(server.getRequests().get(0).contains("SELECT 1"));
+
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    @Test
+    void testEagerConnectFailsWhenProxyRejects() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> { throw new IllegalStateException("down"); })) {
+            assertThrows(SQLException.class,
+                    () -> new HttpJdbcDriver().connect("jdbc:http://" + server.getEndpoint(), properties("eager")));
+        }
+    }
+
+    @Test
+    void testNoneSkipsConnectProbeButIsValidStillChecks() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> { throw new IllegalStateException("down"); });
+             Connection connection = new HttpJdbcDriver().connect("jdbc:http://" + server.getEndpoint(), properties("none"))) {
+            assertTrue(server.getRequests().isEmpty());
+            // A dead proxy is not reported as valid just because connect() didn't probe it
+            assertFalse(connection.isValid(5));
+            assertEquals(1, server.getRequests().size());
+        }
+    }
+
+    @Test
+    void testInvalidModeRejected() {
+        assertThrows(SQLException.class,
+                () -> new HttpJdbcDriver().connect("jdbc:http://127.0.0.1:1", properties("sometimes")));
+    }
+}
@@ -0,0 +1,179 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver;
+
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.HttpClientExecutors;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.HttpClientRegistry;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.Protocol;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.SharedHttpClient;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Drives 10k concurrent blocking JDBC callers on virtual threads. The HTTP client is stubbed out to park
+ * for a simulated WAN round trip, so the test measures the driver's blocking path rather than sockets.
+ * <p>
+ * On JDK 21+ the {@code multi-release-jdk21} profile runs this class against the packaged jar rather than
+ * {@code target/classes}, since only a jar picks up the classes under {@code META-INF/versions/21}.
+ */
+class VirtualThreadStressTest {
+
+    private static final int CALLERS = 10_000;
+
+    @Test
+    void testDriverClientExecutorMatchesRuntime() throws Exception {
+        Properties info = new Properties();
+        info.setProperty("user", "user");
+        info.setProperty("password", "pass");
+        info.setProperty("disableSSL", "true");
+        try (FakeProxyServer server = new FakeProxyServer(body -> "[]");
+             Connection connection = new HttpJdbcDriver().connect("jdbc:http://" + server.getEndpoint(), info)) {
+            HttpClient client = connection.unwrap(HttpJdbcConnection.class).getTransport().getClient();
+            if (Runtime.version().feature() < 21) {
+                assertFalse(HttpClientExecutors.usesVirtualThreads());
+                assertTrue(client.executor().isEmpty());
+                return;
+            }
+            assertTrue(HttpClientExecutors.usesVirtualThreads(), "the JDK 21 classes of the multi-release jar were not loaded");
+            Executor executor = client.executor().orElseThrow();
+            CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+            executor.execute(() -> {
+                try {
+                    // Thread.isVirtual() via reflection so this compiles against JDK 17
+                    virtual.complete((Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()));
+                } catch (ReflectiveOperationException e) {
+                    virtual.completeExceptionally(e);
+                }
+            });
+            assertTrue(virtual.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testTenThousandCallersOnVirtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "Virtual threads require JDK 21+");
+
+        SharedHttpClient client = new HttpClientRegistry().acquire(
+                new HttpClientRegistry.ClientKey("stub", "user", "pass", true, Protocol.HTTP_1_1),
+                () -> new ParkingHttpClient(Duration.ofMillis(200)));
+        HttpJdbcConnection connection = new HttpJdbcConnection(client, "stub", true);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+
+        // Executors.newVirtualThreadPerTaskExecutor() via reflection so this compiles against JDK 17
+        ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        List<Future<Integer>> results = new ArrayList<>(CALLERS);
+        try {
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> {
+                    try (Statement statement = connection.createStatement();
+                         ResultSet rs = statement.executeQuery("SELECT 1 AS one")) {
+                        assertTrue(rs.next());
+                        return rs.getInt("one");
+                    }
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(1, result.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int peakInFlight = connection.getTransport().getStats().getPeakInFlight();
+        int peakPlatformThreads = threads.getPeakThreadCount();
+        // Callers really overlapped: a pinned carrier would cap this at roughly the number of cores
+        assertTrue(peakInFlight > CALLERS / 2, "peak in-flight was " + peakInFlight);
+        assertTrue(peakPlatformThreads < 500, "peak platform threads was " + peakPlatformThreads);
+        connection.close();
+    }
+
+    /**
+     * Answers every request with a one-row result after blocking the calling thread for {@code latency}.
+     */
+    private static class ParkingHttpClient extends HttpClient {
+
+        private final Duration latency;
+
+        ParkingHttpClient(Duration latency) {
+            this.latency = latency;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws InterruptedException {
+            Thread.sleep(latency.toMillis());
+            return (HttpResponse<T>) new StubResponse(request, "[{\"one\":1}]");
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return send(request, handler);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> handler,
+                                                                HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+            return sendAsync(request, handler);
+        }
+
+        @Override public Optional<CookieHandler> cookieHandler() { return Optional.empty(); }
+        @Override public Optional<Duration> connectTimeout() { return Optional.empty(); }
+        @Override public Redirect followRedirects() { return Redirect.NEVER; }
+        @Override public Optional<ProxySelector> proxy() { return Optional.empty(); }
+        @Override public SSLContext sslContext() { return null; }
+        @Override public SSLParameters sslParameters() { return null; }
+        @Override public Optional<Authenticator> authenticator() { return Optional.empty(); }
+        @Override public Version version() { return Version.HTTP_1_1; }
+        @Override public Optional<Executor> executor() { return Optional.empty(); }
+    }
+
+    private record StubResponse(HttpRequest request, String json) implements HttpResponse<InputStream> {
+        @Override public InputStream body() { return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)); }
+        @Override public int statusCode() { return 200; }
+        @Override public Optional<HttpResponse<InputStream>> previousResponse() { return Optional.empty(); }
+        @Override public HttpHeaders headers() { return HttpHeaders.of(Map.of(), (k, v) -> true); }
+        @Override public Optional<SSLSession> sslSession() { return Optional.empty(); }
+        @Override public URI uri() { return request.uri(); }
+        @Override public HttpClient.Version version() { return HttpClient.Version.HTTP_1_1; }
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InsertRewriterTest {
+
+    @Test
+    void testSimpleInsertIsRewritten() {
+        InsertRewriter rewriter = InsertRewriter.parse("insert into public.users(id, name) values (?, ?);");
+
+        assertNotNull(rewriter);
+        assertEquals(2, rewriter.getParameterCount());
+        assertEquals("insert into public.users(id, name) values (?, ?), (?, ?)", rewriter.rewrite(2));
+        assertEquals(InsertRewriter.MAX_PARAMETERS / 2, rewriter.rowsPerStatement());
+    }
+
+    @Test
+    void testOtherStatementsAreLeftAlone() {
+        assertNull(InsertRewriter.parse("UPDATE users SET name = ? WHERE id = ?"));
+        assertNull(InsertRewriter.parse("INSERT INTO users (id, name) VALUES (?, 'fixed')"));
+        assertNull(InsertRewriter.parse("INSERT INTO users (id) VALUES (?) ON CONFLICT DO NOTHING"));
+        assertNull(InsertRewriter.parse("INSERT INTO users (id) VALUES (?) RETURNING id"));
+        assertNull(InsertRewriter.parse("INSERT INTO users (id) SELECT id FROM staged WHERE id = ?"));
+    }
+
+    @Test
+    void testCountsAreSpreadOverRows() {
+        int[] counts = new int[5];
+        InsertRewriter.fillCounts(counts, 0, 3, 3);
+        InsertRewriter.fillCounts(counts, 3, 2, 1);
+
+        assertArrayEquals(new int[] { 1, 1, 1, Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO }, counts);
+    }
+}
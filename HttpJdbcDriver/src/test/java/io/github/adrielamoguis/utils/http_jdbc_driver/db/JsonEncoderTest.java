@@ -0,0 +1,145 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.JsonSupport;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Request body encoding, and an allocation comparison against building each parameter as its own string.
+ */
+class JsonEncoderTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JsonEncoderTest.class);
+
+    @Test
+    void testEscapesEverythingJsonRequires() throws Exception {
+        String tricky = "quote \" backslash \\ newline \n tab \t cr \r bell \u0007 nul \u0000 unicode é 😀";
+        String json = JsonEncoder.quote(tricky);
+
+        assertEquals("\"quote \\\" backslash \\\\ newline \\n tab \\t cr \\r bell \\u0007 nul \\u0000 unicode é 😀\"", json);
+        assertEquals(tricky, JsonSupport.MAPPER.readValue(json, String.class));
+    }
+
+    @Test
+    void testTypedValues() throws Exception {
+        JsonEncoder encoder = new JsonEncoder();
+        encoder.raw("[");
+        Object[] values = {null, 42, 9007199254740993L, (short) 7, 1.5, 0.1f, true, new BigDecimal("12.30"),
+                Double.NaN, Double.NEGATIVE_INFINITY, "text"};
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) encoder.raw(",");
+            encoder.value(values[i]);
+        }
+        String json = encoder.raw("]").toJson();
+
+        assertEquals("[null,42,9007199254740993,7,1.5,0.1,true,12.30,\"NaN\",\"-Infinity\",\"text\"]", json);
+        assertEquals(11, JsonSupport.MAPPER.readValue(json, List.class).size());
+    }
+
+    @Test
+    void testTemporalValuesAreIso() {
+        assertEquals("\"2024-01-31\"", new JsonEncoder().value(LocalDate.of(2024, 1, 31)).toJson());
+        assertEquals("\"2024-01-31T10:15:00\"", new JsonEncoder().value(LocalDateTime.of(2024, 1, 31, 10, 15)).toJson());
+        assertEquals("\"2024-01-31T10:15:30.5\"",
+                new JsonEncoder().value(Timestamp.valueOf("2024-01-31 10:15:30.5")).toJson());
+        assertEquals("\"2024-01-31\"", new JsonEncoder().value(java.sql.Date.valueOf("2024-01-31")).toJson());
+        assertEquals("\"2024-01-31T10:15:00+02:00\"",
+                new JsonEncoder().value(OffsetDateTime.of(2024, 1, 31, 10, 15, 0, 0, ZoneOffset.ofHours(2))).toJson());
+        assertEquals("\"2024-01-31T10:15:00+01:00\"",
+                new JsonEncoder().value(ZonedDateTime.of(2024, 1, 31, 10, 15, 0, 0, ZoneId.of("Europe/Paris"))).toJson());
+    }
+
+    @Test
+    void testBytesAreBase64() {
+        assertEquals("{\"bytea\": \"\"}", new JsonEncoder().value(new byte[0]).toJson());
+        assertEquals("{\"bytea\": \"/w==\"}", new JsonEncoder().value(new byte[]{-1}).toJson());
+        assertEquals("{\"bytea\": \"AP8=\"}", new JsonEncoder().value(new byte[]{0, -1}).toJson());
+        byte[] random = new byte[1000];
+        new Random(7).nextBytes(random);
+        assertEquals("{\"bytea\": \"" + Base64.getEncoder().encodeToString(random) + "\"}",
+                new JsonEncoder().value(random).toJson());
+    }
+
+    @Test
+    void testResetReusesBuffer() {
+        JsonEncoder encoder = new JsonEncoder();
+        assertEquals("\"a\"", encoder.value("a").toJson());
+        assertEquals("\"b\"", encoder.reset().value("b").toJson());
+        assertEquals("{\"query\": \"SELECT '\\\\'\", \"params\": []}", JsonEncoder.query("SELECT '\\'"));
+    }
+
+    @Test
+    void testInListAllocationBenchmark() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        List<Object> params = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            params.add(i % 2 == 0 ? (Object) (long) i : "value-" + i);
+        }
+        String prefix = "{\"query\": \"SELECT * FROM t WHERE id = ANY($1)\", \"params\": [";
+        JsonEncoder encoder = new JsonEncoder();
+        int executions = 2_000;
+
+        // Warm up both paths before measuring them
+        for (int i = 0; i < executions; i++) {
+            encode(encoder, prefix, params);
+            concatenate(prefix, params);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        int length = 0;
+        for (int i = 0; i < executions; i++) {
+            length += encode(encoder, prefix, params).length();
+        }
+        long encoderBytes = threads.getCurrentThreadAllocatedBytes() - before;
+        before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < executions; i++) {
+            length -= concatenate(prefix, params).length();
+        }
+        long concatenateBytes = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals(0, length);
+        LOGGER.info("1000-parameter request: encoder {} bytes allocated per execution, string per parameter {} bytes",
+                encoderBytes / executions, concatenateBytes / executions);
+    }
+
+    private static String encode(JsonEncoder encoder, String prefix, List<Object> params) {
+        encoder.reset().raw(prefix);
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0) encoder.raw(", ");
+            encoder.value(params.get(i));
+        }
+        return encoder.raw("]}").toJson();
+    }
+
+    /**
+     * How bodies were built before: a fresh builder per request and a string per parameter, escaped by chained replaces.
+     */
+    private static String concatenate(String prefix, List<Object> params) {
+        StringBuilder sb = new StringBuilder(prefix.length() + 16 * params.size() + 2).append(prefix);
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0) sb.append(", ");
+            Object param = params.get(i);
+            sb.append(param instanceof String
+                    ? "\"" + ((String) param).replace("\\", "\\\\").replace("\"", "\\\"") + "\""
+                    : param.toString());
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,141 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Typed column storage of buffered results, and a decode-and-read comparison against holding a map per row.
+ */
+class MaterializedRowsTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MaterializedRowsTest.class);
+
+    private static final int ROWS = 100_000;
+
+    @Test
+    void testTypedGettersAndNulls() throws Exception {
+        ResultSet rs = new ProxyResultSet("{\"columns\":[\"id\",\"score\",\"name\"],\"rows\":[[1,2.5,\"a\"],[null,null,null],[3000000000,4.0,\"c\"]]}");
+
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        assertFalse(rs.wasNull());
+        assertEquals(2.5, rs.getDouble("score"));
+        assertInstanceOf(Integer.class, rs.getObject("id"));
+
+        assertTrue(rs.next());
+        assertEquals(0, rs.getLong("id"));
+        assertTrue(rs.wasNull());
+        assertEquals(0.0, rs.getDouble(2));
+        assertTrue(rs.wasNull());
+        assertNull(rs.getString("name"));
+
+        assertTrue(rs.next());
+        assertEquals(3_000_000_000L, rs.getLong("id"));
+        assertInstanceOf(Long.class, rs.getObject("id"));
+        assertEquals("4.0", rs.getString("score"));
+        assertFalse(rs.next());
+    }
+
+    @Test
+    void testMixedColumnFallsBackToObjects() throws Exception {
+        ResultSet rs = new ProxyResultSet("[{\"v\":1},{\"v\":\"7\"},{\"v\":1.5},{\"v\":123456789012345678901234567890}]");
+
+        assertTrue(rs.next());
+        assertEquals(1, rs.getObject("v"));
+        assertTrue(rs.next());
+        assertEquals(7, rs.getInt("v"));
+        assertEquals("7", rs.getObject("v"));
+        assertTrue(rs.next());
+        assertEquals(1.5, rs.getDouble("v"));
+        assertTrue(rs.next());
+        assertEquals(new BigInteger("123456789012345678901234567890"), rs.getObject("v"));
+    }
+
+    @Test
+    void testObjectRowsWithLateAndMissingColumns() throws Exception {
+        ResultSet rs = new ProxyResultSet("[{\"a\":1},{\"a\":2,\"b\":\"x\"},{\"b\":\"y\",\"b\":\"z\"}]");
+
+        assertTrue(rs.next());
+        assertNull(rs.getObject("b"));
+        assertTrue(rs.next());
+        assertEquals("x", rs.getString(2));
+        assertTrue(rs.next());
+        assertEquals(0, rs.getInt("a"));
+        assertTrue(rs.wasNull());
+        assertEquals("z", rs.getString("b"));
+        assertFalse(rs.next());
+    }
+
+    @Test
+    void testColumnVectorsVersusMapPerRowBenchmark() throws Exception {
+        String json = numericColumnar(ROWS);
+
+        // Warm up both paths before timing them
+        for (int i = 0; i < 5; i++) {
+            readVectors(json);
+            readMaps(json);
+        }
+        long vectorNanos = Long.MAX_VALUE;
+        long mapNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            vectorNanos = Math.min(vectorNanos, readVectors(json));
+            mapNanos = Math.min(mapNanos, readMaps(json));
+        }
+
+        LOGGER.info("{} rows x 4 numeric columns: column vectors {} ms, map per row {} ms",
+                ROWS, vectorNanos / 1_000_000, mapNanos / 1_000_000);
+    }
+
+    private static long readVectors(String json) throws Exception {
+        long start = System.nanoTime();
+        ProxyResultSet rs = new ProxyResultSet(json);
+        double checksum = 0;
+        while (rs.next()) {
+            checksum += rs.getLong(1) + rs.getInt(2) + rs.getDouble(3) + rs.getDouble(4);
+        }
+        assertTrue(checksum > 0);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * The layout buffered results used before: a HashMap of boxed values per row, read through {@code Number}.
+     */
+    private static long readMaps(String json) throws Exception {
+        long start = System.nanoTime();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        List<String> columns;
+        try (JsonRowReader reader = JsonRowReader.of(json)) {
+            Map<String, Object> row;
+            while ((row = reader.nextRow()) != null) {
+                rows.add(row);
+            }
+            columns = new ArrayList<>(reader.columns());
+        }
+        double checksum = 0;
+        for (Map<String, Object> row : rows) {
+            checksum += ((Number) row.get(columns.get(0))).longValue() + ((Number) row.get(columns.get(1))).intValue()
+                    + ((Number) row.get(columns.get(2))).doubleValue() + ((Number) row.get(columns.get(3))).doubleValue();
+        }
+        assertTrue(checksum > 0);
+        return System.nanoTime() - start;
+    }
+
+    private static String numericColumnar(int count) {
+        StringBuilder sb = new StringBuilder("{\"columns\":[\"id\",\"quantity\",\"price\",\"discount\"],\"rows\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(',');
+            sb.append('[').append(1_000_000_000_000L + i).append(',').append(i % 1000).append(',')
+                    .append(i * 0.25 + 0.5).append(',').append((i % 10) / 10.0).append(']');
+        }
+        return sb.append("]}").toString();
+    }
+}
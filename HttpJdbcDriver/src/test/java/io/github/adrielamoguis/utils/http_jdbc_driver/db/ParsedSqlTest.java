@@ -0,0 +1,58 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParsedSqlTest {
+
+    @Test
+    void testNumbersPlaceholders() {
+        ParsedSql parsed = ParsedSql.parse("SELECT * FROM users WHERE id = ? AND name = ?");
+        assertEquals("SELECT * FROM users WHERE id = $1 AND name = $2", parsed.getSql());
+        assertEquals(2, parsed.getParameterCount());
+    }
+
+    @Test
+    void testLeavesQuotedAndCommentedQuestionMarks() {
+        String sql = "SELECT 'why?', \"odd?col\", E'it\\'s ?' FROM t -- really?\n"
+                + "WHERE /* outer /* nested? */ still? */ a = ? AND body = $fn$ select ? $fn$ AND b = $1";
+        ParsedSql parsed = ParsedSql.parse(sql);
+        assertEquals(sql.replace("a = ?", "a = $1"), parsed.getSql());
+        assertEquals(1, parsed.getParameterCount());
+    }
+
+    @Test
+    void testDoubledQuestionMarkIsOperator() {
+        ParsedSql parsed = ParsedSql.parse("SELECT * FROM docs WHERE data ?? 'key' AND id = ?");
+        assertEquals("SELECT * FROM docs WHERE data ? 'key' AND id = $1", parsed.getSql());
+        assertEquals(1, parsed.getParameterCount());
+    }
+
+    @Test
+    void testReadOnlyStatements() {
+        assertTrue(ParsedSql.isReadOnly("SELECT * FROM users"));
+        assertTrue(ParsedSql.isReadOnly("  /* report */ (select updated_at from t) union (select 1)"));
+        assertTrue(ParsedSql.isReadOnly("WITH r AS (SELECT 1) SELECT * FROM r"));
+        assertFalse(ParsedSql.isReadOnly("DELETE FROM users RETURNING id"));
+        assertFalse(ParsedSql.isReadOnly("WITH gone AS (DELETE FROM users RETURNING id) SELECT * FROM gone"));
+        assertFalse(ParsedSql.isReadOnly("SELECT * FROM jobs FOR UPDATE SKIP LOCKED"));
+        assertFalse(ParsedSql.isReadOnly("SELECT nextval('ids')"));
+        assertFalse(ParsedSql.isReadOnly("SELECT * INTO archive FROM users"));
+        assertTrue(ParsedSql.get("SELECT * FROM users WHERE id = ?").isReadOnly());
+    }
+
+    @Test
+    void testRequestPrefixesAndCache() {
+        ParsedSql parsed = ParsedSql.get("SELECT \"x\" FROM t WHERE id = ?");
+        assertSame(parsed, ParsedSql.get("SELECT \"x\" FROM t WHERE id = ?"));
+        assertEquals("{\"query\": \"SELECT \\\"x\\\" FROM t WHERE id = $1\", \"params\": [", parsed.getRequestPrefix());
+
+        String id = parsed.getStatementId();
+        assertEquals(22, id.length());
+        assertEquals(id, ParsedSql.parse("SELECT \"x\" FROM t WHERE id = ?").getStatementId());
+        assertNotEquals(id, ParsedSql.parse("SELECT \"x\" FROM t WHERE id = ? LIMIT 1").getStatementId());
+        assertEquals("{\"statement\": \"" + id + "\", \"params\": [", parsed.getHandlePrefix());
+        assertEquals("{\"statement\": \"" + id + "\", " + parsed.getRequestPrefix().substring(1), parsed.getRegisteringPrefix());
+    }
+}
@@ -0,0 +1,220 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.adrielamoguis.utils.http_jdbc_driver.ConnectionProperties;
+import io.github.adrielamoguis.utils.http_jdbc_driver.FakeProxyServer;
+import io.github.adrielamoguis.utils.http_jdbc_driver.HttpJdbcConnection;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.Authenticator;
+import java.net.PasswordAuthentication;
+import java.net.http.HttpClient;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProxyPreparedStatementBinaryTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static ConnectionProperties properties() throws SQLException {
+        Properties info = new Properties();
+        info.setProperty("disableSSL", "true");
+        info.setProperty("compressionThreshold", "0");
+        return ConnectionProperties.parse(info);
+    }
+
+    private static HttpClient authenticatingClient() {
+        return HttpClient.newBuilder().authenticator(new Authenticator() {
+            @Override
+            protected PasswordAuthentication getPasswordAuthentication() {
+                return new PasswordAuthentication("user", "pass".toCharArray());
+            }
+        }).build();
+    }
+
+    private static byte[] random(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] bytea(JsonNode param) {
+        return Base64.getDecoder().decode(param.get("bytea").asText());
+    }
+
+    @Test
+    void testSetBytesSendsBase64() throws Exception {
+        byte[] data = random(100);
+        try (FakeProxyServer server = new FakeProxyServer(body -> "{\"updateCount\": 1}");
+             HttpJdbcConnection connection = server.connect(properties());
+             PreparedStatement ps = connection.prepareStatement("INSERT INTO files (id, content) VALUES (?, ?)")) {
+            ps.setInt(1, 1);
+            ps.setBytes(2, data);
+            assertEquals(1, ps.executeUpdate());
+
+            JsonNode params = MAPPER.readTree(server.getRequests().get(0)).get("params");
+            assertEquals(1, params.get(0).asInt());
+            assertArrayEquals(data, bytea(params.get(1)));
+        }
+    }
+
+    @Test
+    void testBinaryStreamsAreStreamedIntoTheBody() throws Exception {
+        // Not a multiple of the encoding block, so the last block is padded
+        byte[] large = random(3 * 1024 * 1024 + 7);
+        byte[] small = random(10);
+        try (FakeProxyServer server = new FakeProxyServer(body -> "{\"updateCount\": 1}");
+             HttpJdbcConnection connection = server.connect(properties());
+             PreparedStatement ps = connection.prepareStatement("INSERT INTO files (content, name, thumbnail) VALUES (?, ?, ?)")) {
+            ps.setBinaryStream(1, new ByteArrayInputStream(large), (long) large.length);
+            ps.setString(2, "photo \"1\"");
+            ps.setBinaryStream(3, new ByteArrayInputStream(small));
+            assertEquals(1, ps.executeUpdate());
+
+            JsonNode params = MAPPER.readTree(server.getRequests().get(0)).get("params");
+            assertArrayEquals(large, bytea(params.get(0)));
+            assertEquals("photo \"1\"", params.get(1).asText());
+            assertArrayEquals(small, bytea(params.get(2)));
+            // Never compressed, since the body can't be read twice
+            assertNull(server.getRequestHeaders().get(0).get("Content-encoding"));
+        }
+    }
+
+    @Test
+    void testStreamLengthLimitsWhatIsSent() throws Exception {
+        byte[] data = random(5000);
+        try (FakeProxyServer server = new FakeProxyServer(body -> "{\"updateCount\": 1}");
+             HttpJdbcConnection connection = server.connect(properties());
+             PreparedStatement ps = connection.prepareStatement("INSERT INTO files (content) VALUES (?)")) {
+            InputStream in = new ByteArrayInputStream(data);
+            ps.setBlob(1, in, 4000);
+            assertEquals(1, ps.unwrap(HttpJdbcPreparedStatement.class).executeUpdateAsync().get());
+
+            assertArrayEquals(Arrays.copyOf(data, 4000), bytea(MAPPER.readTree(server.getRequests().get(0)).get("params").get(0)));
+            String length = server.getRequestHeaders().get(0).get("Content-length").get(0);
+            assertEquals(server.getRequests().get(0).length(), Integer.parseInt(length));
+            // The rest of the application's stream is left for it to read
+            assertEquals(1000, in.readAllBytes().length);
+        }
+    }
+
+    @Test
+    void testQueriesReadStreamsFirst() throws Exception {
+        byte[] data = random(64);
+        try (FakeProxyServer server = new FakeProxyServer(body -> "[{\"id\": 1}]");
+             HttpJdbcConnection connection = server.connect(properties());
+             PreparedStatement ps = connection.prepareStatement("SELECT id FROM files WHERE content = ?")) {
+            ps.setBinaryStream(1, new ByteArrayInputStream(data), data.length);
+            try (ResultSet rs = ps.executeQuery()) {
+                assertTrue(rs.next());
+            }
+            // The stream was read once into the parameter, so the statement can run again
+            try (ResultSet rs = ps.executeQuery()) {
+                assertTrue(rs.next());
+            }
+
+            List<String> requests = server.getRequests();
+            assertEquals(2, requests.size());
+            assertEquals(requests.get(0), requests.get(1));
+            assertArrayEquals(data, bytea(MAPPER.readTree(requests.get(0)).get("params").get(0)));
+        }
+    }
+
+    @Test
+    void testShortStreamIsAnError() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> "[]");
+             HttpJdbcConnection connection = server.connect(properties());
+             PreparedStatement ps = connection.prepareStatement("SELECT id FROM files WHERE content = ?")) {
+            ps.setBinaryStream(1, new ByteArrayInputStream(new byte[10]), 20);
+            SQLException e = assertThrows(SQLException.class, ps::executeQuery);
+            assertTrue(e.getMessage().contains("10 of 20"), e.getMessage());
+            assertTrue(server.getRequests().isEmpty());
+        }
+    }
+
+    @Test
+    void testSentStreamMustBeSetAgain() throws Exception {
+        byte[] data = random(100);
+        try (FakeProxyServer server = new FakeProxyServer(body -> "{\"updateCount\": 1}");
+             HttpJdbcConnection connection = server.connect(properties());
+             PreparedStatement ps = connection.prepareStatement("INSERT INTO files (content) VALUES (?)")) {
+            ps.setBinaryStream(1, new ByteArrayInputStream(data), data.length);
+            assertEquals(1, ps.executeUpdate());
+
+            // The stream is used up, so running again must not send an empty or truncated value
+            SQLException e = assertThrows(SQLException.class, ps::executeUpdate);
+            assertTrue(e.getMessage().contains("already sent"), e.getMessage());
+            assertThrows(SQLException.class, () -> ps.unwrap(HttpJdbcPreparedStatement.class).executeUpdateAsync());
+            assertThrows(SQLException.class, ps::executeQuery);
+            assertThrows(SQLException.class, ps::addBatch);
+            assertEquals(1, server.getRequests().size());
+
+            ps.setBinaryStream(1, new ByteArrayInputStream(data), data.length);
+            assertEquals(1, ps.executeUpdate());
+            assertEquals(2, server.getRequests().size());
+            assertArrayEquals(data, bytea(MAPPER.readTree(server.getRequests().get(1)).get("params").get(0)));
+        }
+    }
+
+    @Test
+    void testCredentialsAreSettledBeforeStreaming() throws Exception {
+        byte[] data = random(5000);
+        try (FakeProxyServer server = new FakeProxyServer(body -> "{\"updateCount\": 1}")) {
+            server.setBasicAuth("user", "pass");
+            try (HttpJdbcConnection connection = server.connect(properties(), ProxyPreparedStatementBinaryTest::authenticatingClient);
+                 PreparedStatement ps = connection.prepareStatement("INSERT INTO files (content) VALUES (?)")) {
+                ps.setBinaryStream(1, new ByteArrayInputStream(data), data.length);
+                assertEquals(1, ps.executeUpdate());
+                ps.setBinaryStream(1, new ByteArrayInputStream(data));
+                assertEquals(1, ps.unwrap(HttpJdbcPreparedStatement.class).executeUpdateAsync().get());
+
+                // A probe took the challenge, so each streamed body went once, with the credentials
+                List<String> requests = server.getRequests();
+                assertEquals(3, requests.size());
+                assertTrue(requests.get(0).contains("SELECT 1"), requests.get(0));
+                assertEquals(4, server.getRequestHeaders().size());
+                assertNotNull(server.getRequestHeaders().get(2).get("Authorization"));
+                assertArrayEquals(data, bytea(MAPPER.readTree(requests.get(1)).get("params").get(0)));
+                assertArrayEquals(data, bytea(MAPPER.readTree(requests.get(2)).get("params").get(0)));
+            }
+        }
+    }
+
+    @Test
+    void testChallengedStreamedBodyIsNotResent() throws Exception {
+        byte[] data = random(5000);
+        try (FakeProxyServer server = new FakeProxyServer(body -> "{\"updateCount\": 1}")) {
+            server.setBasicAuth("user", "pass");
+            try (HttpJdbcConnection connection = server.connect(properties(), ProxyPreparedStatementBinaryTest::authenticatingClient);
+                 PreparedStatement ps = connection.prepareStatement("INSERT INTO files (content) VALUES (?)")) {
+                ps.setBytes(1, data);
+                assertEquals(1, ps.executeUpdate());
+
+                // The proxy now wants other credentials, so the client retries with what its authenticator has
+                server.setBasicAuth("user", "rotated");
+                ps.setBinaryStream(1, new ByteArrayInputStream(data), data.length);
+                SQLException e = assertThrows(SQLException.class, ps::executeUpdate);
+                assertTrue(e.getMessage().contains("second time"), e.getMessage());
+
+                ps.setBinaryStream(1, new ByteArrayInputStream(data), data.length);
+                ExecutionException async = assertThrows(ExecutionException.class,
+                        () -> ps.unwrap(HttpJdbcPreparedStatement.class).executeUpdateAsync().get());
+                assertInstanceOf(SQLException.class, async.getCause());
+                assertTrue(async.getCause().getMessage().contains("second time"), async.getCause().getMessage());
+                assertEquals(1, server.getRequests().size());
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.adrielamoguis.utils.http_jdbc_driver.ConnectionProperties;
+import io.github.adrielamoguis.utils.http_jdbc_driver.FakeProxyServer;
+import io.github.adrielamoguis.utils.http_jdbc_driver.HttpJdbcConnection;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ProxyTransport;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProxyPreparedStatementServerPrepareTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String SQL = "SELECT id, name FROM users WHERE id = ?";
+
+    private static ConnectionProperties serverPrepare() throws SQLException {
+        Properties info = new Properties();
+        info.setProperty("disableSSL", "true");
+        info.setProperty("serverPrepare", "true");
+        return ConnectionProperties.parse(info);
+    }
+
+    /**
+     * Registers statements sent with their text and answers 404 for handles it doesn't hold.
+     */
+    private static FakeProxyServer preparingProxy(Set<String> registered) throws Exception {
+        FakeProxyServer server = new FakeProxyServer(body -> "[{\"id\":1,\"name\":\"Alice\"}]");
+        server.setResponseStatus(body -> {
+            JsonNode request = readTree(body);
+            String id = request.path("statement").asText(null);
+            if (id != null && request.has("query")) {
+                registered.add(id);
+            }
+            return id != null && !registered.contains(id) ? 404 : 200;
+        });
+        server.setResponseHeaders(body -> {
+            String id = readTree(body).path("statement").asText(null);
+            return id != null && !registered.contains(id) ? Map.of(ProxyTransport.STATEMENT_HEADER, "unknown") : Map.of();
+        });
+        return server;
+    }
+
+    private static JsonNode readTree(String body) {
+        try {
+            return MAPPER.readTree(body);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void testTextSentOnlyUntilRegistered() throws Exception {
+        Set<String> registered = ConcurrentHashMap.newKeySet();
+        try (FakeProxyServer server = preparingProxy(registered);
+             HttpJdbcConnection connection = server.connect(serverPrepare());
+             PreparedStatement ps = connection.prepareStatement(SQL)) {
+            for (int i = 0; i < 3; i++) {
+                ps.setInt(1, i);
+                try (ResultSet rs = ps.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals("Alice", rs.getString("name"));
+                }
+            }
+
+            assertEquals(3, server.getRequests().size());
+            JsonNode first = MAPPER.readTree(server.getRequests().get(0));
+            assertEquals("SELECT id, name FROM users WHERE id = $1", first.get("query").asText());
+            String id = first.get("statement").asText();
+            for (String later : server.getRequests().subList(1, 3)) {
+                JsonNode request = MAPPER.readTree(later);
+                assertEquals(id, request.get("statement").asText());
+                assertNull(request.get("query"));
+            }
+        }
+    }
+
+    @Test
+    void testUnknownHandleFallsBackToText() throws Exception {
+        Set<String> registered = ConcurrentHashMap.newKeySet();
+        try (FakeProxyServer server = preparingProxy(registered);
+             HttpJdbcConnection connection = server.connect(serverPrepare());
+             PreparedStatement ps = connection.prepareStatement(SQL)) {
+            ps.setInt(1, 1);
+            ps.executeQuery().close();
+            // The proxy restarted, or the request landed on another instance
+            registered.clear();
+
+            ps.setInt(1, 2);
+            try (ResultSet rs = ps.executeQuery()) {
+                assertTrue(rs.next());
+            }
+            assertEquals(3, server.getRequests().size());
+            assertNull(MAPPER.readTree(server.getRequests().get(1)).get("query"));
+            assertNotNull(MAPPER.readTree(server.getRequests().get(2)).get("query"));
+
+            ps.setInt(1, 3);
+            ps.unwrap(HttpJdbcPreparedStatement.class).executeQueryAsync().get().close();
+            assertNull(MAPPER.readTree(server.getRequests().get(3)).get("query"));
+        }
+    }
+
+    @Test
+    void testHandleSharedAcrossStatements() throws Exception {
+        Set<String> registered = ConcurrentHashMap.newKeySet();
+        try (FakeProxyServer server = preparingProxy(registered);
+             HttpJdbcConnection connection = server.connect(serverPrepare())) {
+            try (PreparedStatement ps = connection.prepareStatement(SQL)) {
+                ps.setInt(1, 1);
+                ps.executeQuery().close();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(SQL)) {
+                ps.setInt(1, 1);
+                ps.executeQuery().close();
+            }
+            assertNull(MAPPER.readTree(server.getRequests().get(1)).get("query"));
+        }
+    }
+}
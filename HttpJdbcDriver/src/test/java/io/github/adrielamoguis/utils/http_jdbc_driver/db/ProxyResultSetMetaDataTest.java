@@ -0,0 +1,112 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProxyResultSetMetaDataTest {
+
+    private static final String ENVELOPE = "{\"columns\": [\"id\", \"price\", \"ratio\", \"name\", \"extra\"],"
+            + " \"types\": [\"int8\", \"numeric\", \"float8\", \"varchar\", \"geometry\"],"
+            + " \"precision\": [19, 10, null, 40],"
+            + " \"scale\": [0, 2],"
+            + " \"nullable\": [false, true, true, null],"
+            + " \"rows\": [[\"9007199254740993\", 12.30, \"NaN\", \"Alice\", \"POINT(1 2)\"], [2, 0.1, 1, null, null]]}";
+
+    @Test
+    void testMetaDataFromEnvelope() throws SQLException {
+        ResultSetMetaData meta = new ProxyResultSet(ENVELOPE).getMetaData();
+
+        assertEquals(5, meta.getColumnCount());
+        assertEquals("price", meta.getColumnLabel(2));
+        assertEquals(Types.BIGINT, meta.getColumnType(1));
+        assertEquals(Types.NUMERIC, meta.getColumnType(2));
+        assertEquals(Types.DOUBLE, meta.getColumnType(3));
+        assertEquals(Types.VARCHAR, meta.getColumnType(4));
+        assertEquals(Types.OTHER, meta.getColumnType(5));
+        assertEquals("geometry", meta.getColumnTypeName(5));
+        assertEquals(BigDecimal.class.getName(), meta.getColumnClassName(2));
+        assertEquals(10, meta.getPrecision(2));
+        assertEquals(2, meta.getScale(2));
+        assertEquals(0, meta.getScale(3));
+        assertEquals(ResultSetMetaData.columnNoNulls, meta.isNullable(1));
+        assertEquals(ResultSetMetaData.columnNullable, meta.isNullable(2));
+        assertEquals(ResultSetMetaData.columnNullableUnknown, meta.isNullable(5));
+        assertTrue(meta.isSigned(1));
+        assertFalse(meta.isSigned(4));
+        assertThrows(SQLException.class, () -> meta.getColumnType(6));
+    }
+
+    @Test
+    void testDeclaredTypesPickDecoders() throws SQLException {
+        ProxyResultSet rs = new ProxyResultSet(ENVELOPE);
+
+        assertTrue(rs.next());
+        // int8 sent as text, beyond what a double holds exactly
+        assertEquals(9007199254740993L, rs.getLong("id"));
+        assertEquals(Long.class, rs.getObject("id").getClass());
+        assertEquals(new BigDecimal("12.30"), rs.getBigDecimal("price"));
+        assertTrue(Double.isNaN(rs.getDouble("ratio")));
+
+        assertTrue(rs.next());
+        assertEquals(Long.valueOf(2), rs.getObject("id"));
+        assertEquals(new BigDecimal("0.1"), rs.getObject("price"));
+        assertEquals(1.0, rs.getObject("ratio"));
+        assertNull(rs.getString("name"));
+    }
+
+    @Test
+    void testStreamingUsesSameDecoders() throws SQLException {
+        ProxyResultSet rs = ProxyResultSet.streaming(new ByteArrayInputStream(ENVELOPE.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(Types.NUMERIC, rs.getMetaData().getColumnType(2));
+        assertTrue(rs.next());
+        assertEquals(9007199254740993L, rs.getObject("id"));
+        assertEquals(new BigDecimal("12.30"), rs.getObject("price"));
+        rs.close();
+    }
+
+    @Test
+    void testRealColumnsReadAsFloat() throws SQLException {
+        String json = "{\"columns\": [\"r\", \"d\", \"f\"], \"types\": [\"float4\", \"float8\", \"float\"],"
+                + " \"rows\": [[0.1, 0.1, 0.1], [\"2.5\", null, 1]]}";
+        ResultSetMetaData meta = new ProxyResultSet(json).getMetaData();
+        assertEquals(Types.REAL, meta.getColumnType(1));
+        assertEquals(Float.class.getName(), meta.getColumnClassName(1));
+        assertEquals(Double.class.getName(), meta.getColumnClassName(2));
+        assertEquals(Types.DOUBLE, meta.getColumnType(3));
+
+        ProxyResultSet rs = new ProxyResultSet(json);
+        assertTrue(rs.next());
+        assertEquals(0.1f, rs.getObject("r"));
+        assertEquals(0.1f, rs.getFloat("r"));
+        assertEquals(0.1, rs.getObject("d"));
+        assertEquals(0.1, rs.getObject("f"));
+        assertTrue(rs.next());
+        assertEquals(2.5f, rs.getObject("r"));
+
+        ProxyResultSet streamed = ProxyResultSet.streaming(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        assertTrue(streamed.next());
+        assertEquals(0.1f, streamed.getObject("r"));
+        assertEquals(0.1, streamed.getObject("d"));
+        streamed.close();
+    }
+
+    @Test
+    void testUntypedResult() throws SQLException {
+        ResultSetMetaData meta = new ProxyResultSet("[{\"id\": 1, \"name\": \"Alice\"}]").getMetaData();
+
+        assertEquals(2, meta.getColumnCount());
+        assertEquals("name", meta.getColumnName(2));
+        assertEquals(Types.OTHER, meta.getColumnType(1));
+        assertEquals("", meta.getColumnTypeName(1));
+        assertEquals(ResultSetMetaData.columnNullableUnknown, meta.isNullable(1));
+    }
+}
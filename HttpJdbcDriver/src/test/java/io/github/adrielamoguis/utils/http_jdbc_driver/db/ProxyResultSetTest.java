@@ -1,6 +1,10 @@
 package io.github.adrielamoguis.utils.http_jdbc_driver.db;
 
 import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -39,6 +43,51 @@ class ProxyResultSetTest {
         assertFalse(rs.next());
     }
 
+    @Test
+    void testFindColumnIgnoresCase() throws SQLException {
+        String json = "{\"columns\":[\"user_id\",\"Name\",\"name\"],\"rows\":[[1,\"Alice\",\"alice\"]]}";
+        ProxyResultSet rs = new ProxyResultSet(json);
+
+        assertEquals(1, rs.findColumn("user_id"));
+        assertEquals(1, rs.findColumn("USER_ID"));
+        assertEquals(2, rs.findColumn("Name"));
+        assertEquals(3, rs.findColumn("name"));
+        assertEquals(2, rs.findColumn("NAME"));
+        assertThrows(SQLException.class, () -> rs.findColumn("missing"));
+
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt("User_Id"));
+        assertEquals("Alice", rs.getString("NAME"));
+    }
+
+    @Test
+    void testUnknownColumnLabelThrows() throws SQLException {
+        ProxyResultSet rs = new ProxyResultSet("[{\"id\":1,\"name\":\"Alice\"}]");
+        assertTrue(rs.next());
+        SQLException error = assertThrows(SQLException.class, () -> rs.getString("missing"));
+        assertEquals(ProxyResultSet.UNKNOWN_COLUMN_STATE, error.getSQLState());
+        assertThrows(SQLException.class, () -> rs.getInt("missing"));
+
+        String json = "{\"columns\":[\"id\"],\"rows\":[[1]]}";
+        ProxyResultSet streamed = ProxyResultSet.streaming(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        assertTrue(streamed.next());
+        assertThrows(SQLException.class, () -> streamed.getObject("missing"));
+    }
+
+    @Test
+    void testStreamedObjectsReadUnseenColumnAsNull() throws SQLException {
+        String json = "[{\"id\":1},{\"id\":2,\"name\":\"Bob\"}]";
+        ProxyResultSet rs = ProxyResultSet.streaming(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        // A later object may still bring the column
+        assertTrue(rs.next());
+        assertNull(rs.getString("name"));
+        assertTrue(rs.wasNull());
+
+        assertTrue(rs.next());
+        assertEquals("Bob", rs.getString("name"));
+    }
+
     @Test
     void testEmptyJsonArray() throws SQLException {
         String json = "[]";
@@ -51,4 +100,111 @@ class ProxyResultSetTest {
         String json = "{\"not\":\"an array\"}";
         assertThrows(RuntimeException.class, () -> new ProxyResultSet(json));
     }
+
+    @Test
+    void testStreamingJsonArray() throws SQLException {
+        String json = "[{\"id\":1,\"name\":\"Alice\"},{\"id\":2}]";
+        ProxyResultSet rs = ProxyResultSet.streaming(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt("id"));
+        assertEquals("Alice", rs.getString(2));
+
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        assertNull(rs.getString("name"));
+
+        assertFalse(rs.next());
+        assertFalse(rs.next());
+        rs.close();
+        assertTrue(rs.isClosed());
+        assertThrows(SQLException.class, rs::next);
+    }
+
+    @Test
+    void testStreamingLargeResultIsReadRowByRow() throws SQLException {
+        int rowCount = 200_000;
+        ProxyResultSet rs = ProxyResultSet.streaming(new GeneratedRows(rowCount));
+
+        long sum = 0;
+        int rows = 0;
+        while (rs.next()) {
+            sum += rs.getLong("id");
+            rows++;
+        }
+        assertEquals(rowCount, rows);
+        assertEquals((long) rowCount * (rowCount - 1) / 2, sum);
+    }
+
+    @Test
+    void testStreamingInvalidJsonThrows() {
+        InputStream in = new ByteArrayInputStream("{\"not\":\"an array\"}".getBytes(StandardCharsets.UTF_8));
+        assertThrows(SQLException.class, () -> ProxyResultSet.streaming(in));
+    }
+
+    @Test
+    void testColumnarEnvelope() throws SQLException {
+        String json = "{\"columns\":[\"id\",\"name\"],\"types\":[\"int4\",\"text\"],\"rows\":[[1,\"Alice\"],[2,null]]}";
+        ProxyResultSet rs = new ProxyResultSet(json);
+
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt("id"));
+        assertEquals("Alice", rs.getString(2));
+
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        assertNull(rs.getString("name"));
+
+        assertFalse(rs.next());
+    }
+
+    @Test
+    void testStreamingColumnarEnvelope() throws SQLException {
+        String json = "{\"columns\":[\"id\"],\"rows\":[[1],[2],[3]]}";
+        ProxyResultSet rs = ProxyResultSet.streaming(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        long sum = 0;
+        while (rs.next()) {
+            sum += rs.getLong("id");
+        }
+        assertEquals(6, sum);
+    }
+
+    @Test
+    void testColumnarRowsBeforeColumnsThrows() {
+        assertThrows(RuntimeException.class, () -> new ProxyResultSet("{\"rows\":[[1]],\"columns\":[\"id\"]}"));
+    }
+
+    @Test
+    void testColumnarRowWidthMismatchThrows() {
+        assertThrows(RuntimeException.class, () -> new ProxyResultSet("{\"columns\":[\"id\",\"name\"],\"rows\":[[1]]}"));
+    }
+
+    /**
+     * Produces {@code [{"id":0,"payload":"..."}, ...]} on the fly, so the test never holds the whole body either.
+     */
+    private static class GeneratedRows extends InputStream {
+
+        private final int rowCount;
+        private int row = -1;
+        private byte[] chunk = "[".getBytes(StandardCharsets.UTF_8);
+        private int position;
+
+        GeneratedRows(int rowCount) {
+            this.rowCount = rowCount;
+        }
+
+        @Override
+        public int read() {
+            if (position == chunk.length) {
+                row++;
+                if (row > rowCount) return -1;
+                String next = row == rowCount ? "]"
+                        : (row > 0 ? "," : "") + "{\"id\":" + row + ",\"payload\":\"" + "x".repeat(100) + "\"}";
+                chunk = next.getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+            return chunk[position++];
+        }
+    }
 }
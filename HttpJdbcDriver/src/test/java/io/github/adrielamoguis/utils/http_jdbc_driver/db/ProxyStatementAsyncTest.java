@@ -0,0 +1,66 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import io.github.adrielamoguis.utils.http_jdbc_driver.FakeProxyServer;
+import io.github.adrielamoguis.utils.http_jdbc_driver.HttpJdbcConnection;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProxyStatementAsyncTest {
+
+    @Test
+    void testExecuteQueryAsync() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> "[{\"id\":1,\"name\":\"Alice\"}]");
+             HttpJdbcConnection connection = server.connect();
+             Statement statement = connection.createStatement()) {
+            HttpJdbcStatement async = statement.unwrap(HttpJdbcStatement.class);
+
+            ResultSet rs = async.executeQueryAsync("SELECT * FROM users").get(10, TimeUnit.SECONDS);
+
+            assertTrue(rs.next());
+            assertEquals("Alice", rs.getString("name"));
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    void testPreparedStatementsFanOut() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> "{\"updateCount\": 1}");
+             HttpJdbcConnection connection = server.connect();
+             PreparedStatement statement = connection.prepareStatement("UPDATE users SET name = ? WHERE id = ?")) {
+            HttpJdbcPreparedStatement async = statement.unwrap(HttpJdbcPreparedStatement.class);
+
+            statement.setString(1, "Alice");
+            statement.setInt(2, 1);
+            CompletableFuture<Integer> first = async.executeUpdateAsync();
+            statement.setString(1, "Bob");
+            statement.setInt(2, 2);
+            CompletableFuture<Integer> second = async.executeUpdateAsync();
+
+            assertEquals(1, first.get(10, TimeUnit.SECONDS));
+            assertEquals(1, second.get(10, TimeUnit.SECONDS));
+            assertTrue(server.getRequests().stream().anyMatch(r -> r.contains("\"Alice\", 1")));
+            assertTrue(server.getRequests().stream().anyMatch(r -> r.contains("\"Bob\", 2")));
+        }
+    }
+
+    @Test
+    void testHttpErrorCompletesExceptionally() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> { throw new IllegalStateException("boom"); });
+             HttpJdbcConnection connection = server.connect();
+             Statement statement = connection.createStatement()) {
+            CompletableFuture<Integer> future = statement.unwrap(HttpJdbcStatement.class).executeUpdateAsync("DELETE FROM users");
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(SQLException.class, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.adrielamoguis.utils.http_jdbc_driver.ConnectionProperties;
+import io.github.adrielamoguis.utils.http_jdbc_driver.FakeProxyServer;
+import io.github.adrielamoguis.utils.http_jdbc_driver.HttpJdbcConnection;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProxyStatementBufferedTransactionTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static ConnectionProperties buffered() throws SQLException {
+        Properties info = new Properties();
+        info.setProperty("disableSSL", "true");
+        info.setProperty("transactionMode", "buffered");
+        return ConnectionProperties.parse(info);
+    }
+
+    private static String respond(String body) {
+        return body.contains("SELECT") ? "[{\"id\":1}]" : "{\"updateCount\": 1}";
+    }
+
+    @Test
+    void testCommitSendsOneAtomicRequest() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(ProxyStatementBufferedTransactionTest::respond);
+             HttpJdbcConnection connection = server.connect(buffered());
+             Statement statement = connection.createStatement();
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO audit (id) VALUES (?)")) {
+            connection.setAutoCommit(false);
+            assertEquals(Statement.SUCCESS_NO_INFO, statement.executeUpdate("UPDATE accounts SET balance = balance - 10 WHERE id = 1"));
+            assertEquals(Statement.SUCCESS_NO_INFO, statement.executeUpdate("UPDATE accounts SET balance = balance + 10 WHERE id = 2"));
+            for (int i = 0; i < 3; i++) {
+                insert.setInt(1, i);
+                insert.addBatch();
+            }
+            assertArrayEquals(new int[] { Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO }, insert.executeBatch());
+            assertEquals(0, server.getRequests().size());
+
+            connection.commit();
+
+            assertEquals(1, server.getRequests().size());
+            JsonNode request = MAPPER.readTree(server.getRequests().get(0));
+            assertEquals(5, request.get("transaction").size());
+            assertNull(request.get("batch"));
+        }
+    }
+
+    @Test
+    void testQueryCarriesHeldWrites() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(ProxyStatementBufferedTransactionTest::respond);
+             HttpJdbcConnection connection = server.connect(buffered());
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.executeUpdate("INSERT INTO users (id) VALUES (1)");
+
+            ResultSet rs = statement.executeQuery("SELECT id FROM users");
+            assertTrue(rs.next());
+
+            assertEquals(1, server.getRequests().size());
+            JsonNode request = MAPPER.readTree(server.getRequests().get(0));
+            assertEquals(1, request.get("transaction").size());
+            assertNull(request.get("pipeline"));
+
+            connection.commit();
+            assertEquals(1, server.getRequests().size());
+        }
+    }
+
+    @Test
+    void testRollbackDiscardsWithoutRoundTrip() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(ProxyStatementBufferedTransactionTest::respond);
+             HttpJdbcConnection connection = server.connect(buffered());
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.executeUpdate("DELETE FROM users");
+            connection.rollback();
+            connection.setAutoCommit(true);
+
+            assertEquals(0, server.getRequests().size());
+            assertEquals(1, statement.executeUpdate("DELETE FROM sessions"));
+            assertNull(MAPPER.readTree(server.getRequests().get(0)).get("transaction"));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.adrielamoguis.utils.http_jdbc_driver.FakeProxyServer;
+import io.github.adrielamoguis.utils.http_jdbc_driver.HttpJdbcConnection;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.BufferPool;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ProxyResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProxyStatementPagingTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int TOTAL_ROWS = 10;
+
+    /**
+     * Serves ids {@code 0..TOTAL_ROWS-1} in pages; the cursor id is simply the offset of the next page.
+     */
+    private static FakeProxyServer pagingServer() throws IOException {
+        FakeProxyServer server = new FakeProxyServer(body -> {
+            JsonNode request = read(body);
+            if (request.path("close").asBoolean()) {
+                return "{}";
+            }
+            int offset = request.has("cursor") ? Integer.parseInt(request.get("cursor").asText()) : 0;
+            int end = request.has("fetchSize") ? Math.min(TOTAL_ROWS, offset + request.get("fetchSize").asInt()) : TOTAL_ROWS;
+            StringBuilder sb = new StringBuilder("{\"columns\":[\"id\"],\"rows\":[");
+            for (int id = offset; id < end; id++) {
+                sb.append(id > offset ? "," : "").append('[').append(id).append(']');
+            }
+            return sb.append("]}").toString();
+        });
+        server.setResponseHeaders(body -> {
+            JsonNode request = read(body);
+            if (!request.has("fetchSize")) {
+                return Map.of();
+            }
+            int offset = request.has("cursor") ? Integer.parseInt(request.get("cursor").asText()) : 0;
+            int next = offset + request.get("fetchSize").asInt();
+            return next < TOTAL_ROWS ? Map.of(ProxyResponse.CURSOR_HEADER, String.valueOf(next)) : Map.of();
+        });
+        return server;
+    }
+
+    private static JsonNode read(String body) {
+        try {
+            return MAPPER.readTree(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    void testPagesAreFetchedOnDemand() throws Exception {
+        try (FakeProxyServer server = pagingServer();
+             HttpJdbcConnection connection = server.connect();
+             Statement statement = connection.createStatement()) {
+            statement.setFetchSize(4);
+            ResultSet rs = statement.executeQuery("SELECT id FROM report");
+
+            assertEquals(1, server.getRequests().size());
+            assertTrue(server.getRequests().get(0).contains("\"fetchSize\": 4"));
+            int expected = 0;
+            while (rs.next()) {
+                assertEquals(expected++, rs.getInt("id"));
+            }
+            assertEquals(TOTAL_ROWS, expected);
+            // First page plus two cursor fetches; an exhausted cursor needs no close
+            assertEquals(3, server.getRequests().size());
+            rs.close();
+            assertEquals(3, server.getRequests().size());
+        }
+    }
+
+    @Test
+    void testCloseReleasesOpenCursor() throws Exception {
+        try (FakeProxyServer server = pagingServer();
+             HttpJdbcConnection connection = server.connect();
+             PreparedStatement statement = connection.prepareStatement("SELECT id FROM report WHERE id >= ?")) {
+            statement.setInt(1, 0);
+            statement.setFetchSize(3);
+            ResultSet rs = statement.executeQuery();
+
+            assertTrue(rs.next());
+            assertEquals(3, rs.getFetchSize());
+            rs.close();
+
+            assertEquals(2, server.getRequests().size());
+            assertEquals("{\"cursor\": \"3\", \"close\": true}", server.getRequests().get(1));
+            // The answer to the close was read into pooled chunks, which are all back
+            BufferPool pool = connection.getTransport().getBufferPool();
+            assertEquals(pool.getAllocated(), pool.size());
+        }
+    }
+
+    @Test
+    void testWithoutFetchSizeResultIsNotPaged() throws Exception {
+        try (FakeProxyServer server = pagingServer();
+             HttpJdbcConnection connection = server.connect();
+             Statement statement = connection.createStatement()) {
+            ResultSet rs = statement.executeQuery("SELECT id FROM report");
+
+            int rows = 0;
+            while (rs.next()) {
+                rows++;
+            }
+            assertEquals(TOTAL_ROWS, rows);
+            assertEquals(1, server.getRequests().size());
+            assertFalse(server.getRequests().get(0).contains("fetchSize"));
+        }
+    }
+
+    @Test
+    void testNegativeFetchSizeIsRejected() throws Exception {
+        try (FakeProxyServer server = pagingServer();
+             HttpJdbcConnection connection = server.connect();
+             Statement statement = connection.createStatement()) {
+            assertThrows(SQLException.class, () -> statement.setFetchSize(-1));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.adrielamoguis.utils.http_jdbc_driver.ConnectionProperties;
+import io.github.adrielamoguis.utils.http_jdbc_driver.FakeProxyServer;
+import io.github.adrielamoguis.utils.http_jdbc_driver.HttpJdbcConnection;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProxyStatementPipelineTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static ConnectionProperties pipelined() throws SQLException {
+        Properties info = new Properties();
+        info.setProperty("disableSSL", "true");
+        info.setProperty("pipelineWrites", "true");
+        return ConnectionProperties.parse(info);
+    }
+
+    private static String respond(String body) {
+        return body.contains("SELECT") ? "[{\"id\":1}]" : "{\"updateCount\": 1}";
+    }
+
+    @Test
+    void testWritesRideAlongWithNextQuery() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(ProxyStatementPipelineTest::respond);
+             HttpJdbcConnection connection = server.connect(pipelined());
+             PreparedStatement update = connection.prepareStatement("UPDATE users SET name = ? WHERE id = ?")) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < 12; i++) {
+                update.setString(1, "user " + i);
+                update.setInt(2, i);
+                assertEquals(Statement.SUCCESS_NO_INFO, update.executeUpdate());
+            }
+            assertEquals(0, server.getRequests().size());
+
+            ResultSet rs = connection.createStatement().executeQuery("SELECT id FROM users");
+            assertTrue(rs.next());
+
+            assertEquals(1, server.getRequests().size());
+            JsonNode request = MAPPER.readTree(server.getRequests().get(0));
+            assertEquals(12, request.get("pipeline").size());
+            assertEquals("SELECT id FROM users", request.get("query").asText());
+        }
+    }
+
+    @Test
+    void testCommitFlushesAndRollbackDiscards() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(ProxyStatementPipelineTest::respond);
+             HttpJdbcConnection connection = server.connect(pipelined());
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.executeUpdate("DELETE FROM sessions WHERE id = 1");
+            statement.executeUpdate("DELETE FROM sessions WHERE id = 2");
+            connection.commit();
+
+            assertEquals(1, server.getRequests().size());
+            assertEquals(2, MAPPER.readTree(server.getRequests().get(0)).get("batch").size());
+
+            statement.executeUpdate("DELETE FROM sessions WHERE id = 3");
+            connection.rollback();
+            connection.commit();
+            assertEquals(1, server.getRequests().size());
+        }
+    }
+
+    @Test
+    void testDeferredFailureSurfacesAtSync() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> { throw new IllegalStateException("constraint violated"); });
+             HttpJdbcConnection connection = server.connect(pipelined());
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            statement.executeUpdate("INSERT INTO users (id) VALUES (1)");
+
+            SQLException e = assertThrows(SQLException.class, connection::sync);
+            assertTrue(e.getMessage().contains("constraint violated"));
+        }
+    }
+
+    @Test
+    void testAutoCommitWritesAreSentImmediately() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(ProxyStatementPipelineTest::respond);
+             HttpJdbcConnection connection = server.connect(pipelined());
+             Statement statement = connection.createStatement()) {
+            assertEquals(1, statement.executeUpdate("DELETE FROM sessions"));
+            assertEquals(1, server.getRequests().size());
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import io.github.adrielamoguis.utils.http_jdbc_driver.ConnectionProperties;
+import io.github.adrielamoguis.utils.http_jdbc_driver.FakeProxyServer;
+import io.github.adrielamoguis.utils.http_jdbc_driver.HttpJdbcConnection;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ProxyTransport;
+import io.github.adrielamoguis.utils.http_jdbc_driver.http.ResultCache;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProxyStatementResultCacheTest {
+
+    private static ConnectionProperties cached(String ttlSeconds, String staleSeconds) throws SQLException {
+        Properties info = new Properties();
+        info.setProperty("disableSSL", "true");
+        info.setProperty("resultCacheTtlSeconds", ttlSeconds);
+        info.setProperty("resultCacheStaleSeconds", staleSeconds);
+        return ConnectionProperties.parse(info);
+    }
+
+    @Test
+    void testRepeatedQueryServedFromCache() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> "{\"columns\":[\"code\",\"name\"],\"rows\":[[\"DE\",\"Germany\"],[\"FR\",\"France\"]]}");
+             HttpJdbcConnection connection = server.connect(cached("60", "0"));
+             PreparedStatement ps = connection.prepareStatement("SELECT code, name FROM countries WHERE region = ?")) {
+            for (int i = 0; i < 5; i++) {
+                ps.setString(1, "EU");
+                try (ResultSet rs = ps.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals("DE", rs.getString("code"));
+                    assertTrue(rs.next());
+                    assertEquals("France", rs.getString(2));
+                    assertFalse(rs.next());
+                }
+            }
+            ps.setString(1, "APAC");
+            ps.executeQuery().close();
+
+            assertEquals(2, server.getRequests().size());
+            ResultCache cache = connection.getTransport().getResultCache();
+            assertEquals(4, cache.getHits());
+            assertEquals(2, cache.getMisses());
+            assertEquals(2, cache.size());
+            assertTrue(cache.getBytes() > 0);
+        }
+    }
+
+    @Test
+    void testCachedResultSetsReadTheSameVectorsIndependently() throws Exception {
+        StringBuilder rows = new StringBuilder("{\"columns\":[\"id\",\"score\"],\"rows\":[");
+        for (int i = 0; i < 1000; i++) {
+            rows.append(i == 0 ? "" : ",").append("[").append(i).append(",").append(i).append(".5]");
+        }
+        String body = rows.append("]}").toString();
+        try (FakeProxyServer server = new FakeProxyServer(request -> body);
+             HttpJdbcConnection connection = server.connect(cached("60", "0"));
+             Statement statement = connection.createStatement()) {
+            statement.executeQuery("SELECT id, score FROM scores").close();
+            // Unboxed columns: two 8 byte slots and a null bit per row, far below a boxed Integer and Double each
+            assertTrue(connection.getTransport().getResultCache().getBytes() < 1000 * 24);
+
+            try (ResultSet first = statement.executeQuery("SELECT id, score FROM scores");
+                 ResultSet second = connection.createStatement().executeQuery("SELECT id, score FROM scores")) {
+                assertTrue(first.next());
+                int count = 0;
+                while (second.next()) {
+                    count++;
+                }
+                assertEquals(1000, count);
+                assertEquals(0, first.getInt("id"));
+                assertInstanceOf(Integer.class, first.getObject("id"));
+                assertTrue(first.next());
+                assertEquals(1.5, first.getDouble("score"));
+            }
+            assertEquals(1, server.getRequests().size());
+        }
+    }
+
+    @Test
+    void testExecuteAndWritesBypassTheCache() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> "[{\"id\":1}]");
+             HttpJdbcConnection connection = server.connect(cached("60", "0"));
+             Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM sessions WHERE expired");
+            statement.execute("DELETE FROM sessions WHERE expired");
+            statement.executeQuery("DELETE FROM jobs RETURNING id").close();
+            statement.executeQuery("DELETE FROM jobs RETURNING id").close();
+            assertEquals(4, server.getRequests().size());
+            assertEquals(0, connection.getTransport().getResultCache().size());
+        }
+    }
+
+    @Test
+    void testWritesInvalidateCachedResults() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> body.contains("UPDATE") ? "{\"updateCount\": 1}" : "[{\"name\":\"Alice\"}]");
+             HttpJdbcConnection connection = server.connect(cached("60", "0"));
+             Statement statement = connection.createStatement()) {
+            statement.executeQuery("SELECT name FROM users").close();
+            statement.executeQuery("SELECT name FROM users").close();
+            assertEquals(1, server.getRequests().size());
+
+            statement.executeUpdate("UPDATE users SET name = 'Bob'");
+            statement.executeQuery("SELECT name FROM users").close();
+            assertEquals(3, server.getRequests().size());
+
+            statement.addBatch("UPDATE users SET name = 'Carol'");
+            statement.executeBatch();
+            statement.executeQuery("SELECT name FROM users").close();
+            assertEquals(5, server.getRequests().size());
+        }
+    }
+
+    @Test
+    void testWriteDuringQueryDropsItsResult() throws Exception {
+        AtomicReference<Statement> writer = new AtomicReference<>();
+        AtomicBoolean raced = new AtomicBoolean();
+        try (FakeProxyServer server = new FakeProxyServer(body -> {
+                 if (body.contains("UPDATE")) {
+                     return "{\"updateCount\": 1}";
+                 }
+                 if (raced.compareAndSet(false, true)) {
+                     // The write reaches the proxy after the query was sent, before its result is stored
+                     CompletableFuture.runAsync(() -> {
+                         try {
+                             writer.get().executeUpdate("UPDATE users SET name = 'Bob'");
+                         } catch (SQLException e) {
+                             throw new CompletionException(e);
+                         }
+                     }).join();
+                 }
+                 return "[{\"name\":\"Alice\"}]";
+             });
+             HttpJdbcConnection connection = server.connect(cached("60", "0"));
+             Statement statement = connection.createStatement();
+             Statement other = connection.createStatement()) {
+            writer.set(other);
+            statement.executeQuery("SELECT name FROM users").close();
+            statement.executeQuery("SELECT name FROM users").close();
+            assertEquals(3, server.getRequests().size());
+            assertEquals(1, connection.getTransport().getResultCache().size());
+        }
+    }
+
+    @Test
+    void testStaleResultServedWhileRefreshing() throws Exception {
+        AtomicInteger version = new AtomicInteger();
+        try (FakeProxyServer server = new FakeProxyServer(body -> "[{\"v\":" + version.incrementAndGet() + "}]");
+             HttpJdbcConnection connection = server.connect(cached("1", "60"));
+             Statement statement = connection.createStatement()) {
+            int cachedValue = first(statement);
+            assertEquals(cachedValue, first(statement));
+            Thread.sleep(1100);
+
+            assertEquals(cachedValue, first(statement));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (server.getRequests().size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, server.getRequests().size());
+            while (first(statement) == cachedValue && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(cachedValue + 1, first(statement));
+        }
+    }
+
+    @Test
+    void testPendingWritesBypassCache() throws Exception {
+        Properties info = new Properties();
+        info.setProperty("disableSSL", "true");
+        info.setProperty("resultCacheTtlSeconds", "60");
+        info.setProperty("pipelineWrites", "true");
+        try (FakeProxyServer server = new FakeProxyServer(body -> body.contains("SELECT") ? "[{\"id\":1}]" : "{\"updateCount\": 1}");
+             HttpJdbcConnection connection = server.connect(ConnectionProperties.parse(info));
+             Statement statement = connection.createStatement()) {
+            statement.executeQuery("SELECT id FROM users").close();
+            connection.setAutoCommit(false);
+            statement.executeUpdate("INSERT INTO users (id) VALUES (2)");
+            statement.executeQuery("SELECT id FROM users").close();
+            connection.setAutoCommit(true);
+            statement.executeQuery("SELECT id FROM users").close();
+
+            // The pipelined insert also dropped the result cached before it
+            assertEquals(3, server.getRequests().size());
+            assertTrue(server.getRequests().get(1).contains("\"pipeline\""));
+        }
+    }
+
+    @Test
+    void testRefreshLeavesTheConnectionAlone() throws Exception {
+        Properties info = new Properties();
+        info.setProperty("disableSSL", "true");
+        info.setProperty("resultCacheTtlSeconds", "60");
+        info.setProperty("pipelineWrites", "true");
+        try (FakeProxyServer server = new FakeProxyServer(body -> body.contains("SELECT") ? "[{\"id\":1}]" : "{\"updateCount\": 1}");
+             HttpJdbcConnection connection = server.connect(ConnectionProperties.parse(info));
+             Statement statement = connection.createStatement()) {
+            ProxyTransport transport = connection.getTransport();
+            connection.setAutoCommit(false);
+            statement.executeUpdate("INSERT INTO users (id) VALUES (2)");
+
+            transport.refreshAsync("{\"query\": \"SELECT id FROM users\", \"params\": []}").get().close();
+            assertEquals(1, server.getRequests().size());
+            assertFalse(server.getRequests().get(0).contains("\"pipeline\""));
+            assertEquals(1, transport.getDeferredCount());
+
+            connection.rollback();
+            connection.close();
+            ExecutionException error = assertThrows(ExecutionException.class,
+                    () -> transport.refreshAsync("{\"query\": \"SELECT id FROM users\", \"params\": []}").get());
+            assertInstanceOf(SQLException.class, error.getCause());
+            assertEquals(1, server.getRequests().size());
+        }
+    }
+
+    private static int first(Statement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT v FROM versions")) {
+            assertTrue(rs.next());
+            return rs.getInt("v");
+        }
+    }
+}
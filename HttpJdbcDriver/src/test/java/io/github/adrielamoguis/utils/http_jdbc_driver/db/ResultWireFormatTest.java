@@ -0,0 +1,199 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import io.github.adrielamoguis.utils.http_jdbc_driver.ConnectionProperties;
+import io.github.adrielamoguis.utils.http_jdbc_driver.FakeProxyServer;
+import io.github.adrielamoguis.utils.http_jdbc_driver.HttpJdbcConnection;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Negotiation of the columnar result layout and binary encodings, and a size/decode-time comparison against the
+ * array-of-objects layout for a wide table.
+ */
+class ResultWireFormatTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResultWireFormatTest.class);
+
+    private static final int ROWS = 20_000;
+    private static final String[] COLUMNS = {
+            "customer_id", "first_name", "last_name", "email_address", "phone_number", "street_address",
+            "postal_code", "country_code", "account_balance", "loyalty_points", "created_at", "is_active"
+    };
+
+    @Test
+    void testColumnarIsRequestedAndDecoded() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> columnar(2));
+             HttpJdbcConnection connection = server.connect()) {
+            ResultSet rs = connection.createStatement().executeQuery("SELECT * FROM customers");
+
+            assertTrue(rs.next());
+            assertEquals("first 0", rs.getString("first_name"));
+            assertTrue(rs.next());
+            assertFalse(rs.next());
+            assertTrue(server.getRequestHeaders().get(0).get("Accept").get(0).startsWith("application/vnd.http-jdbc.columnar+json"));
+        }
+    }
+
+    @Test
+    void testObjectsResponseStillDecodedWhenColumnarRequested() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> objects(2));
+             HttpJdbcConnection connection = server.connect()) {
+            ResultSet rs = connection.createStatement().executeQuery("SELECT * FROM customers");
+
+            assertTrue(rs.next());
+            assertEquals("last 0", rs.getString("last_name"));
+            assertTrue(rs.next());
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    void testObjectsFormatOnlyAcceptsJson() throws Exception {
+        Properties info = new Properties();
+        info.setProperty("disableSSL", "true");
+        info.setProperty("resultFormat", "objects");
+        try (FakeProxyServer server = new FakeProxyServer(body -> objects(1));
+             HttpJdbcConnection connection = server.connect(ConnectionProperties.parse(info))) {
+            connection.createStatement().executeQuery("SELECT * FROM customers").close();
+
+            assertEquals(List.of("application/json"), server.getRequestHeaders().get(0).get("Accept"));
+        }
+    }
+
+    @Test
+    void testCborResponseIsDecoded() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> columnar(2));
+             HttpJdbcConnection connection = server.connect(encoding("cbor"))) {
+            server.setBinaryResponses(true);
+            ResultSet rs = connection.createStatement().executeQuery("SELECT * FROM customers");
+
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt("customer_id"));
+            assertTrue(rs.next());
+            assertEquals(1.25, rs.getDouble("account_balance"));
+            assertInstanceOf(Integer.class, rs.getObject("loyalty_points"));
+            assertFalse(rs.next());
+            assertTrue(server.getRequestHeaders().get(0).get("Accept").get(0).startsWith("application/cbor"));
+        }
+    }
+
+    @Test
+    void testSmileUpdateCountIsDecoded() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> "{\"updateCount\": 7}");
+             HttpJdbcConnection connection = server.connect(encoding("smile"))) {
+            server.setBinaryResponses(true);
+
+            assertEquals(7, connection.createStatement().executeUpdate("DELETE FROM customers"));
+        }
+    }
+
+    @Test
+    void testJsonFallbackWhenBinaryIsNotOffered() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(body -> objects(1));
+             HttpJdbcConnection connection = server.connect(encoding("cbor"))) {
+            ResultSet rs = connection.createStatement().executeQuery("SELECT * FROM customers");
+
+            assertTrue(rs.next());
+            assertEquals("first 0", rs.getString("first_name"));
+        }
+    }
+
+    @Test
+    void testColumnarVersusObjectsBenchmark() throws SQLException {
+        String objects = objects(ROWS);
+        String columnar = columnar(ROWS);
+        int objectBytes = objects.getBytes(StandardCharsets.UTF_8).length;
+        int columnarBytes = columnar.getBytes(StandardCharsets.UTF_8).length;
+
+        // Warm up both paths before timing them
+        for (int i = 0; i < 5; i++) {
+            decode(objects);
+            decode(columnar);
+        }
+        long objectNanos = Long.MAX_VALUE;
+        long columnarNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            objectNanos = Math.min(objectNanos, decode(objects));
+            columnarNanos = Math.min(columnarNanos, decode(columnar));
+        }
+
+        LOGGER.info("{} rows x {} columns: objects {} bytes / {} ms, columnar {} bytes / {} ms ({}% of the payload)",
+                ROWS, COLUMNS.length, objectBytes, objectNanos / 1_000_000, columnarBytes, columnarNanos / 1_000_000,
+                columnarBytes * 100L / objectBytes);
+        assertTrue(columnarBytes < objectBytes * 0.6, "columnar payload should drop the repeated keys");
+    }
+
+    private static ConnectionProperties encoding(String encoding) throws SQLException {
+        Properties info = new Properties();
+        info.setProperty("disableSSL", "true");
+        info.setProperty("encoding", encoding);
+        return ConnectionProperties.parse(info);
+    }
+
+    private static long decode(String json) throws SQLException {
+        long start = System.nanoTime();
+        ProxyResultSet rs = new ProxyResultSet(json);
+        long checksum = 0;
+        while (rs.next()) {
+            checksum += rs.getLong("customer_id");
+        }
+        assertEquals((long) ROWS * (ROWS - 1) / 2, checksum);
+        return System.nanoTime() - start;
+    }
+
+    private static Object[] row(int i) {
+        return new Object[] {
+                i, "first " + i, "last " + i, "user" + i + "@example.com", "+1-555-" + (1000 + i % 9000),
+                i + " Main Street", String.format("%05d", i % 100_000), "US", i * 1.25, i % 500,
+                "2024-01-01T00:00:00Z", i % 2 == 0
+        };
+    }
+
+    private static String literal(Object value) {
+        return value instanceof String ? "\"" + value + "\"" : String.valueOf(value);
+    }
+
+    private static String objects(int count) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(',');
+            Object[] values = row(i);
+            sb.append('{');
+            for (int c = 0; c < COLUMNS.length; c++) {
+                if (c > 0) sb.append(',');
+                sb.append('"').append(COLUMNS[c]).append("\":").append(literal(values[c]));
+            }
+            sb.append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String columnar(int count) {
+        StringBuilder sb = new StringBuilder("{\"columns\":[");
+        for (int c = 0; c < COLUMNS.length; c++) {
+            if (c > 0) sb.append(',');
+            sb.append('"').append(COLUMNS[c]).append('"');
+        }
+        sb.append("],\"types\":[\"int4\",\"text\",\"text\",\"text\",\"text\",\"text\",\"text\",\"bpchar\",\"numeric\",\"int4\",\"timestamptz\",\"bool\"],\"rows\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(',');
+            Object[] values = row(i);
+            sb.append('[');
+            for (int c = 0; c < COLUMNS.length; c++) {
+                if (c > 0) sb.append(',');
+                sb.append(literal(values[c]));
+            }
+            sb.append(']');
+        }
+        return sb.append("]}").toString();
+    }
+}
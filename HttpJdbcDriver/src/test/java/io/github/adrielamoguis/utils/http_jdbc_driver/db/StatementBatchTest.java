@@ -0,0 +1,154 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.db;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.adrielamoguis.utils.http_jdbc_driver.ConnectionProperties;
+import io.github.adrielamoguis.utils.http_jdbc_driver.FakeProxyServer;
+import io.github.adrielamoguis.utils.http_jdbc_driver.HttpJdbcConnection;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementBatchTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Answers every batch entry with an update count of 1.
+     */
+    private static String updateCounts(String body) {
+        try {
+            JsonNode batch = MAPPER.readTree(body).get("batch");
+            return "{\"updateCounts\": [" + "1,".repeat(batch.size() - 1) + "1]}";
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ConnectionProperties batchMaxBytes(int bytes) throws Exception {
+        Properties info = new Properties();
+        info.setProperty("disableSSL", "true");
+        info.setProperty("batchMaxBytes", String.valueOf(bytes));
+        return ConnectionProperties.parse(info);
+    }
+
+    @Test
+    void testPreparedBatchIsOneRequest() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(StatementBatchTest::updateCounts);
+             HttpJdbcConnection connection = server.connect();
+             PreparedStatement statement = connection.prepareStatement("INSERT INTO users (id, name) VALUES (?, ?)")) {
+            for (int i = 0; i < 3; i++) {
+                statement.setInt(1, i);
+                statement.setString(2, "user " + i);
+                statement.addBatch();
+            }
+
+            assertArrayEquals(new int[] { 1, 1, 1 }, statement.executeBatch());
+            assertEquals(1, server.getRequests().size());
+            JsonNode batch = MAPPER.readTree(server.getRequests().get(0)).get("batch");
+            assertEquals(3, batch.size());
+            assertEquals("user 2", batch.get(2).get("params").get(1).asText());
+
+            // The batch is cleared once executed
+            assertArrayEquals(new int[0], statement.executeBatch());
+        }
+    }
+
+    @Test
+    void testStatementBatch() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(StatementBatchTest::updateCounts);
+             HttpJdbcConnection connection = server.connect();
+             Statement statement = connection.createStatement()) {
+            statement.addBatch("DELETE FROM sessions WHERE expired");
+            statement.addBatch("UPDATE users SET active = false WHERE id = 1");
+
+            assertArrayEquals(new int[] { 1, 1 }, statement.executeBatch());
+            assertTrue(server.getRequests().get(0).contains("\"query\": \"DELETE FROM sessions WHERE expired\""));
+        }
+    }
+
+    @Test
+    void testLargeBatchIsSplit() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(StatementBatchTest::updateCounts);
+             HttpJdbcConnection connection = server.connect(batchMaxBytes(1024));
+             PreparedStatement statement = connection.prepareStatement("INSERT INTO users (id, name) VALUES (?, ?)")) {
+            for (int i = 0; i < 50; i++) {
+                statement.setInt(1, i);
+                statement.setString(2, "user " + i);
+                statement.addBatch();
+            }
+
+            int[] counts = statement.executeBatch();
+            assertEquals(50, counts.length);
+            assertTrue(server.getRequests().size() > 1);
+            int entries = 0;
+            for (String request : server.getRequests()) {
+                assertTrue(request.length() <= 1024);
+                entries += MAPPER.readTree(request).get("batch").size();
+            }
+            assertEquals(50, entries);
+        }
+    }
+
+    @Test
+    void testRewrittenInsertBatch() throws Exception {
+        Properties info = new Properties();
+        info.setProperty("disableSSL", "true");
+        info.setProperty("rewriteBatchedInserts", "true");
+        // Each rewritten insert reports one affected row per (id, name) pair
+        try (FakeProxyServer server = new FakeProxyServer(body -> {
+                 try {
+                     StringBuilder sb = new StringBuilder("{\"updateCounts\": [");
+                     for (JsonNode entry : MAPPER.readTree(body).get("batch")) {
+                         sb.append(sb.charAt(sb.length() - 1) == '[' ? "" : ",").append(entry.get("params").size() / 2);
+                     }
+                     return sb.append("]}").toString();
+                 } catch (IOException e) {
+                     throw new UncheckedIOException(e);
+                 }
+             });
+             HttpJdbcConnection connection = server.connect(ConnectionProperties.parse(info));
+             PreparedStatement statement = connection.prepareStatement("INSERT INTO users (id, name) VALUES (?, ?)")) {
+            for (int i = 0; i < 3; i++) {
+                statement.setInt(1, i);
+                statement.setString(2, "user " + i);
+                statement.addBatch();
+            }
+
+            assertArrayEquals(new int[] { 1, 1, 1 }, statement.executeBatch());
+            JsonNode batch = MAPPER.readTree(server.getRequests().get(0)).get("batch");
+            assertEquals(1, batch.size());
+            assertEquals("INSERT INTO users (id, name) VALUES ($1, $2), ($3, $4), ($5, $6)", batch.get(0).get("query").asText());
+            assertEquals(6, batch.get(0).get("params").size());
+        }
+    }
+
+    @Test
+    void testFailedChunkReportsCompletedCounts() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(StatementBatchTest::updateCounts);
+             HttpJdbcConnection connection = server.connect(batchMaxBytes(256));
+             PreparedStatement statement = connection.prepareStatement("INSERT INTO users (id) VALUES (?)")) {
+            for (int i = 0; i < 20; i++) {
+                statement.setInt(1, i);
+                statement.addBatch();
+            }
+            server.setHandler(body -> {
+                if (server.getRequests().size() > 1) {
+                    throw new IllegalStateException("duplicate key");
+                }
+                return updateCounts(body);
+            });
+
+            BatchUpdateException e = assertThrows(BatchUpdateException.class, statement::executeBatch);
+            int firstChunk = MAPPER.readTree(server.getRequests().get(0)).get("batch").size();
+            assertEquals(firstChunk, e.getUpdateCounts().length);
+        }
+    }
+}
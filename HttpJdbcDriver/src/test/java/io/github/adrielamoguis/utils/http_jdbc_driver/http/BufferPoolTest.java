@@ -0,0 +1,258 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import io.github.adrielamoguis.utils.http_jdbc_driver.ConnectionProperties;
+import io.github.adrielamoguis.utils.http_jdbc_driver.FakeProxyServer;
+import io.github.adrielamoguis.utils.http_jdbc_driver.HttpJdbcConnection;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pooled request and response bodies, and a per-query garbage comparison against fresh arrays.
+ */
+class BufferPoolTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BufferPoolTest.class);
+
+    @Test
+    void testBodyReadAcrossChunksAndReturnedOnClose() throws Exception {
+        byte[] data = new byte[BufferPool.CHUNK_SIZE * 2 + 123];
+        new Random(42).nextBytes(data);
+        BufferPool pool = new BufferPool();
+
+        PooledInputStream body = PooledInputStream.readFully(new ByteArrayInputStream(data), pool);
+        assertEquals(data.length, body.length());
+        assertEquals(0, pool.size());
+        assertArrayEquals(data, body.readAllBytes());
+
+        body.close();
+        body.close();
+        assertEquals(3, pool.size());
+        assertEquals(-1, body.read());
+
+        // A body that is an exact number of chunks doesn't keep an empty one
+        PooledInputStream exact = PooledInputStream.readFully(new ByteArrayInputStream(new byte[BufferPool.CHUNK_SIZE]), pool);
+        assertEquals(BufferPool.CHUNK_SIZE, exact.readAllBytes().length);
+        exact.close();
+        assertEquals(3, pool.size());
+        assertEquals(2, pool.getReused());
+    }
+
+    @Test
+    void testRequestChunkIsHeldUntilTheBodyIsPublished() {
+        BufferPool pool = new BufferPool();
+        String json = "{\"query\": \"SELECT 1\"}";
+        PooledBodyPublisher publisher = PooledBodyPublisher.encode(pool, json);
+
+        // The proxy answered while the client had yet to ask for the body
+        Collector early = new Collector();
+        publisher.subscribe(early);
+        publisher.exchangeDone();
+        assertEquals(0, pool.size());
+
+        early.subscription.request(Long.MAX_VALUE);
+        assertTrue(early.completed);
+        assertArrayEquals(json.getBytes(StandardCharsets.UTF_8), early.body.toByteArray());
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    void testRequestChunkIsHeldAcrossResends() {
+        BufferPool pool = new BufferPool();
+        PooledBodyPublisher publisher = PooledBodyPublisher.encode(pool, "{\"query\": \"SELECT 1\"}");
+
+        // E.g. an authentication challenge: the first attempt is cancelled and the body published again
+        Collector first = new Collector();
+        publisher.subscribe(first);
+        first.subscription.cancel();
+        assertEquals(0, pool.size());
+        Collector second = new Collector();
+        publisher.subscribe(second);
+        second.subscription.request(Long.MAX_VALUE);
+        assertEquals(0, pool.size());
+
+        publisher.exchangeDone();
+        assertEquals(1, pool.size());
+        // Cancelling after completion doesn't hand the chunk back twice
+        second.subscription.cancel();
+        assertEquals(1, pool.size());
+    }
+
+        @Test
+    void testEncodeUtf8MatchesGetBytes() {
+        String json = "{\"query\": \"SELECT 'é', '€', '😀', '\uD800' \", \"params\": [\"ascii\"]}";
+        assertArrayEquals(json.getBytes(StandardCharsets.UTF_8), publish(PooledBodyPublisher.encode(new BufferPool(), json)));
+    }
+
+    @Test
+    void testLargeBodyIsEncodedAcrossChunks() {
+        // Shifting by one byte per round puts each kind of multi-byte character across a chunk boundary
+        StringBuilder json = new StringBuilder("{\"query\": \"INSERT INTO t VALUES ($1)\", \"params\": [\"");
+        for (int shift = 0; shift < 4; shift++) {
+            json.append("x".repeat(BufferPool.CHUNK_SIZE - json.length() % BufferPool.CHUNK_SIZE - 1 - shift));
+            json.append("é€😀");
+        }
+        json.append("\"]}");
+        BufferPool pool = new BufferPool();
+
+        PooledBodyPublisher publisher = PooledBodyPublisher.encode(pool, json.toString());
+        byte[] expected = json.toString().getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected.length, publisher.contentLength());
+        assertArrayEquals(expected, publish(publisher));
+        publisher.exchangeDone();
+        assertEquals(pool.getAllocated(), pool.size());
+        assertTrue(pool.size() > 3);
+    }
+
+    @Test
+    void testQueriesReuseChunks() throws Exception {
+        Properties info = new Properties();
+        info.setProperty("disableSSL", "true");
+        try (FakeProxyServer server = new FakeProxyServer(request -> "[{\"id\": 1}]");
+             HttpJdbcConnection connection = server.connect(ConnectionProperties.parse(info))) {
+            BufferPool pool = connection.getTransport().getBufferPool();
+            long reused = pool.getReused();
+            for (int i = 0; i < 3; i++) {
+                try (ResultSet rs = connection.createStatement().executeQuery("SELECT 1 AS id")) {
+                    assertTrue(rs.next());
+                    assertEquals(1, rs.getInt("id"));
+                }
+            }
+            assertTrue(pool.getReused() > reused);
+            // Bodies of closed results are all back in the pool
+            assertEquals(pool.getAllocated(), pool.size());
+        }
+    }
+
+    @Test
+    void testLargeRequestsAreSentFromPooledChunks() throws Exception {
+        Properties info = new Properties();
+        info.setProperty("disableSSL", "true");
+        info.setProperty("compressionThreshold", "-1");
+        String payload = "é€😀".repeat(BufferPool.CHUNK_SIZE);
+        try (FakeProxyServer server = new FakeProxyServer(request -> "{\"updateCount\": 1}");
+             HttpJdbcConnection connection = server.connect(ConnectionProperties.parse(info));
+             PreparedStatement ps = connection.prepareStatement("INSERT INTO docs (body) VALUES (?)")) {
+            BufferPool pool = connection.getTransport().getBufferPool();
+            ps.setString(1, payload);
+            ps.executeUpdate();
+            long allocated = pool.getAllocated();
+            ps.executeUpdate();
+
+            assertTrue(server.getRequests().get(1).contains(payload));
+            // The second body went out in the chunks the first one handed back
+            assertEquals(allocated, pool.getAllocated());
+            assertEquals(pool.getAllocated(), pool.size());
+        }
+    }
+
+    @Test
+    void testPooledVersusFreshBodiesBenchmark() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        String request = "{\"query\": \"INSERT INTO events (id, payload) VALUES ($1, $2)\", \"params\": [42, \"" + "x".repeat(400) + "\"]}";
+        byte[] response = "{\"updateCount\": 1}".getBytes(StandardCharsets.UTF_8);
+        BufferPool pool = new BufferPool();
+        int queries = 20_000;
+
+        // Warm up both paths before measuring them
+        for (int i = 0; i < queries; i++) {
+            pooled(pool, request, response);
+            fresh(request, response);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < queries; i++) {
+            pooled(pool, request, response);
+        }
+        long pooledBytes = threads.getCurrentThreadAllocatedBytes() - before;
+        before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < queries; i++) {
+            fresh(request, response);
+        }
+        long freshBytes = threads.getCurrentThreadAllocatedBytes() - before;
+
+        LOGGER.info("Write request and response bodies: pooled {} bytes per query, fresh arrays {} bytes per query",
+                pooledBytes / queries, freshBytes / queries);
+    }
+
+    private static void pooled(BufferPool pool, String request, byte[] response) throws Exception {
+        PooledBodyPublisher encoded = PooledBodyPublisher.encode(pool, request);
+        assertTrue(encoded.contentLength() > 0);
+        encoded.exchangeDone();
+        try (InputStream body = PooledInputStream.readFully(network(response), pool)) {
+            assertEquals('{', body.read());
+        }
+    }
+
+    /**
+     * What each query allocated before: a UTF-8 copy of the request and the response read into a new array.
+     */
+    private static void fresh(String request, byte[] response) throws Exception {
+        assertTrue(request.getBytes(StandardCharsets.UTF_8).length > 0);
+        try (InputStream body = new ByteArrayInputStream(network(response).readAllBytes())) {
+            assertEquals('{', body.read());
+        }
+    }
+
+    private static byte[] publish(PooledBodyPublisher publisher) {
+        Collector collector = new Collector();
+        publisher.subscribe(collector);
+        collector.subscription.request(Long.MAX_VALUE);
+        assertTrue(collector.completed);
+        return collector.body.toByteArray();
+    }
+
+    /**
+     * A body stream without ByteArrayInputStream's shortcuts, read the way the HTTP client's would be.
+     */
+    private static InputStream network(byte[] response) {
+        return new FilterInputStream(new ByteArrayInputStream(response)) {
+        };
+    }
+
+    /**
+     * Subscriber that only asks for the body when told to, as the client does while it waits to send.
+     */
+    private static final class Collector implements Flow.Subscriber<ByteBuffer> {
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        Flow.Subscription subscription;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            byte[] bytes = new byte[item.remaining()];
+            item.get(bytes);
+            body.writeBytes(bytes);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpClientRegistryTest {
+
+    @Test
+    void testSameKeySharesClient() {
+        HttpClientRegistry registry = new HttpClientRegistry();
+        AtomicInteger built = new AtomicInteger();
+        HttpClientRegistry.ClientKey key = new HttpClientRegistry.ClientKey("localhost:8080", "user", "pass", false, Protocol.HTTP_1_1);
+
+        SharedHttpClient first = registry.acquire(key, () -> { built.incrementAndGet(); return HttpClient.newHttpClient(); });
+        SharedHttpClient second = registry.acquire(key, () -> { built.incrementAndGet(); return HttpClient.newHttpClient(); });
+
+        assertSame(first, second);
+        assertSame(first.getClient(), second.getClient());
+        assertEquals(1, built.get());
+        assertEquals(2, first.getReferences());
+    }
+
+    @Test
+    void testDifferentCredentialsGetDifferentClients() {
+        HttpClientRegistry registry = new HttpClientRegistry();
+        SharedHttpClient a = registry.acquire(new HttpClientRegistry.ClientKey("localhost:8080", "alice", "pass", false, Protocol.HTTP_1_1), HttpClient::newHttpClient);
+        SharedHttpClient b = registry.acquire(new HttpClientRegistry.ClientKey("localhost:8080", "bob", "pass", false, Protocol.HTTP_1_1), HttpClient::newHttpClient);
+        SharedHttpClient c = registry.acquire(new HttpClientRegistry.ClientKey("localhost:8080", "alice", "pass", true, Protocol.HTTP_1_1), HttpClient::newHttpClient);
+
+        assertNotSame(a.getClient(), b.getClient());
+        assertNotSame(a.getClient(), c.getClient());
+        assertEquals(3, registry.size());
+    }
+
+    @Test
+    void testClientDiscardedAfterLastRelease() {
+        HttpClientRegistry registry = new HttpClientRegistry();
+        HttpClientRegistry.ClientKey key = new HttpClientRegistry.ClientKey("localhost:8080", "user", "pass", false, Protocol.HTTP_1_1);
+        SharedHttpClient first = registry.acquire(key, HttpClient::newHttpClient);
+        SharedHttpClient second = registry.acquire(key, HttpClient::newHttpClient);
+
+        first.release();
+        assertEquals(1, registry.size());
+
+        second.release();
+        assertEquals(0, registry.size());
+
+        SharedHttpClient third = registry.acquire(key, HttpClient::newHttpClient);
+        assertNotSame(first, third);
+    }
+
+    @Test
+    void testKeyDoesNotLeakPassword() {
+        HttpClientRegistry.ClientKey key = new HttpClientRegistry.ClientKey("localhost:8080", "user", "s3cret", false, Protocol.HTTP_1_1);
+        assertFalse(key.toString().contains("s3cret"));
+    }
+
+    @Test
+    void testPoolPropertiesSetByTheApplicationAreKept() {
+        String poolSize = System.getProperty("jdk.httpclient.connectionPoolSize");
+        String keepAlive = System.getProperty("jdk.httpclient.keepalive.timeout");
+        try {
+            System.setProperty("jdk.httpclient.connectionPoolSize", "5");
+            System.clearProperty("jdk.httpclient.keepalive.timeout");
+            System.setProperty(HttpClientRegistry.CONFIGURE_POOL_PROPERTY, "false");
+            HttpClientRegistry.configureConnectionPool();
+            assertNull(System.getProperty("jdk.httpclient.keepalive.timeout"));
+
+            System.clearProperty(HttpClientRegistry.CONFIGURE_POOL_PROPERTY);
+            HttpClientRegistry.configureConnectionPool();
+            assertEquals("5", System.getProperty("jdk.httpclient.connectionPoolSize"));
+            assertEquals(HttpClientRegistry.DEFAULT_KEEP_ALIVE_TIMEOUT, System.getProperty("jdk.httpclient.keepalive.timeout"));
+        } finally {
+            System.clearProperty(HttpClientRegistry.CONFIGURE_POOL_PROPERTY);
+            restore("jdk.httpclient.connectionPoolSize", poolSize);
+            restore("jdk.httpclient.keepalive.timeout", keepAlive);
+        }
+    }
+
+    private static void restore(String property, String value) {
+        if (value == null) {
+            System.clearProperty(property);
+        } else {
+            System.setProperty(property, value);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The shared Jackson setup, and a per-query comparison against building a mapper for every result.
+ */
+class JsonSupportTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JsonSupportTest.class);
+
+    private static final int QUERIES = 20_000;
+
+    private static final String RESULT = "[{\"id\": 1, \"name\": \"Alice\", \"tags\": {\"admin\": true}},"
+            + " {\"id\": 2, \"name\": \"Bob\", \"tags\": {\"admin\": false}}]";
+
+    @Test
+    void testJsonEncodingUsesSharedFactory() {
+        assertSame(JsonSupport.JSON_FACTORY, ResponseEncoding.JSON.getFactory());
+        assertSame(JsonSupport.JSON_FACTORY, JsonSupport.MAPPER.getFactory());
+    }
+
+    @Test
+    void testValueReaderReadsBinaryParsers() throws Exception {
+        byte[] cbor = new ObjectMapper(ResponseEncoding.CBOR.getFactory()).writeValueAsBytes(Map.of("admin", true));
+        try (JsonParser parser = ResponseEncoding.CBOR.getFactory().createParser(cbor)) {
+            parser.nextToken();
+            assertEquals(Map.of("admin", true), JsonSupport.VALUE_READER.readValue(parser));
+        }
+    }
+
+    @Test
+    void testSharedVersusPerQueryMapperBenchmark() throws Exception {
+        // Warm up both paths before timing them
+        for (int i = 0; i < 3; i++) {
+            readShared(QUERIES);
+            readWithNewMapper(QUERIES);
+        }
+        long sharedNanos = Long.MAX_VALUE;
+        long perQueryNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            sharedNanos = Math.min(sharedNanos, readShared(QUERIES));
+            perQueryNanos = Math.min(perQueryNanos, readWithNewMapper(QUERIES));
+        }
+
+        LOGGER.info("{} small results: shared reader {} ns/query, new ObjectMapper per query {} ns/query",
+                QUERIES, sharedNanos / QUERIES, perQueryNanos / QUERIES);
+    }
+
+    private static long readShared(int queries) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
+        for (int i = 0; i < queries; i++) {
+            List<?> result = JsonSupport.VALUE_READER.readValue(RESULT);
+            rows += result.size();
+        }
+        assertEquals(2 * queries, rows);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * What every result set paid before the mapper was shared: construction and cold type caches.
+     */
+    private static long readWithNewMapper(int queries) throws Exception {
+        long start = System.nanoTime();
+        int rows = 0;
+        for (int i = 0; i < queries; i++) {
+            List<?> result = new ObjectMapper().readValue(RESULT, List.class);
+            rows += result.size();
+        }
+        assertEquals(2 * queries, rows);
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import io.github.adrielamoguis.utils.http_jdbc_driver.ConnectionProperties;
+import io.github.adrielamoguis.utils.http_jdbc_driver.FakeProxyServer;
+import io.github.adrielamoguis.utils.http_jdbc_driver.HttpJdbcConnection;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProxyTransportCompressionTest {
+
+    private static final String LARGE_QUERY = "SELECT * FROM users WHERE name IN (" + "'someone', ".repeat(200) + "'last')";
+
+    private static ConnectionProperties properties(int threshold) throws Exception {
+        Properties info = new Properties();
+        info.setProperty("disableSSL", "true");
+        info.setProperty("compressionThreshold", String.valueOf(threshold));
+        return ConnectionProperties.parse(info);
+    }
+
+    private static String rows(int count) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"id\":").append(i).append(",\"name\":\"user number ").append(i).append("\"}");
+        }
+        return sb.append(']').toString();
+    }
+
+    @Test
+    void testGzipResponseIsDecoded() throws Exception {
+        String body = rows(500);
+        try (FakeProxyServer server = new FakeProxyServer(request -> body);
+             HttpJdbcConnection connection = server.connect(properties(-1))) {
+            server.setGzipResponses(true);
+            ProxyTransport transport = connection.getTransport();
+
+            try (ProxyResponse response = transport.send("{\"query\": \"SELECT 1\", \"params\": []}")) {
+                assertEquals(body, new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8));
+            }
+            assertEquals(List.of("gzip, deflate"), server.getRequestHeaders().get(0).get("Accept-encoding"));
+            assertEquals(1, transport.getCompressionStats().getCompressedResponses());
+            assertTrue(transport.getCompressionStats().getResponseCompressionRatio() < 0.5);
+        }
+    }
+
+    @Test
+    void testRequestsAreNotGzippedByDefault() throws Exception {
+        Properties info = new Properties();
+        info.setProperty("disableSSL", "true");
+        try (FakeProxyServer server = new FakeProxyServer(request -> "{\"updateCount\": 0}");
+             HttpJdbcConnection connection = server.connect(ConnectionProperties.parse(info))) {
+            connection.createStatement().executeUpdate("SELECT 1 /* " + "x".repeat(64 * 1024) + " */");
+
+            assertNull(server.getRequestHeaders().get(0).get("Content-encoding"));
+            // Responses may still be compressed
+            assertEquals(List.of("gzip, deflate"), server.getRequestHeaders().get(0).get("Accept-encoding"));
+        }
+    }
+
+    @Test
+    void testLargeRequestIsGzipped() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(request -> "{\"updateCount\": 0}");
+             HttpJdbcConnection connection = server.connect(properties(1024))) {
+            connection.createStatement().executeUpdate(LARGE_QUERY);
+            connection.createStatement().executeUpdate("DELETE FROM users");
+
+            assertEquals(List.of("gzip"), server.getRequestHeaders().get(0).get("Content-encoding"));
+            assertNull(server.getRequestHeaders().get(1).get("Content-encoding"));
+            assertTrue(server.getRequests().get(0).contains("'last'"));
+            assertEquals(1, connection.getTransport().getCompressionStats().getCompressedRequests());
+        }
+    }
+
+    @Test
+    void testRejectedRequestCompressionFallsBack() throws Exception {
+        try (FakeProxyServer server = new FakeProxyServer(request -> "{\"updateCount\": 3}");
+             HttpJdbcConnection connection = server.connect(properties(1024))) {
+            server.setRejectCompressedRequests(true);
+
+            assertEquals(3, connection.createStatement().executeUpdate(LARGE_QUERY));
+            assertEquals(3, connection.createStatement().executeUpdate(LARGE_QUERY));
+
+            // One rejected gzip attempt, then plain bodies only
+            assertEquals(3, server.getRequestHeaders().size());
+            assertNull(server.getRequestHeaders().get(2).get("Content-encoding"));
+        }
+    }
+}
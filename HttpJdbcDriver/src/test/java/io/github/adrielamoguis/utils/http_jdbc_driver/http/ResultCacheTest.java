@@ -0,0 +1,93 @@
+package io.github.adrielamoguis.utils.http_jdbc_driver.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+
+    private static final HttpClientRegistry.ClientKey CLIENT =
+            new HttpClientRegistry.ClientKey("localhost:8080", "user", "pass", true, Protocol.HTTP_1_1);
+
+    private static ResultCache.Key key(String sql) {
+        return new ResultCache.Key(CLIENT, "{\"query\": \"" + sql + "\", \"params\": []}");
+    }
+
+    private static CachedResult result(int rows) {
+        // The cache only looks at the size of what it holds
+        long bytes = 64L * rows;
+        return () -> bytes;
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedOverBudget() {
+        ResultCache cache = new ResultCache();
+        CachedResult result = result(10);
+        cache.ensureCapacity(3 * result.getBytes() + 1000);
+        Duration ttl = Duration.ofMinutes(1);
+
+        cache.put(key("a"), result, ttl, Duration.ZERO, cache.generation(CLIENT));
+        cache.put(key("b"), result, ttl, Duration.ZERO, cache.generation(CLIENT));
+        cache.put(key("c"), result, ttl, Duration.ZERO, cache.generation(CLIENT));
+        assertNotNull(cache.get(key("a")));
+        cache.put(key("d"), result, ttl, Duration.ZERO, cache.generation(CLIENT));
+
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get(key("b")));
+        assertNotNull(cache.get(key("a")));
+        assertTrue(cache.getBytes() <= 3 * result.getBytes() + 1000);
+    }
+
+    @Test
+    void testSkipsResultsLargerThanBudget() {
+        ResultCache cache = new ResultCache();
+        cache.ensureCapacity(100);
+        cache.put(key("big"), result(100), Duration.ofMinutes(1), Duration.ZERO, cache.generation(CLIENT));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    void testStaleEntryRevalidatedOnce() {
+        ResultCache cache = new ResultCache();
+        cache.ensureCapacity(1024 * 1024);
+        cache.put(key("a"), result(1), Duration.ZERO, Duration.ofMinutes(1), cache.generation(CLIENT));
+
+        ResultCache.Hit first = cache.get(key("a"));
+        ResultCache.Hit second = cache.get(key("a"));
+        assertTrue(first.revalidate());
+        assertFalse(second.revalidate());
+        assertEquals(2, cache.getStaleHits());
+
+        cache.refreshFailed(key("a"));
+        assertTrue(cache.get(key("a")).revalidate());
+    }
+
+    @Test
+    void testExpiredEntryIsMiss() {
+        ResultCache cache = new ResultCache();
+        cache.ensureCapacity(1024 * 1024);
+        cache.put(key("a"), result(1), Duration.ZERO, Duration.ZERO, cache.generation(CLIENT));
+        assertNull(cache.get(key("a")));
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    void testDropsResultFetchedBeforeInvalidation() {
+        ResultCache cache = new ResultCache();
+        cache.ensureCapacity(1024 * 1024);
+        long generation = cache.generation(CLIENT);
+        // A write lands while the query is in flight
+        cache.invalidate(CLIENT);
+        cache.put(key("a"), result(1), Duration.ofMinutes(1), Duration.ZERO, generation);
+        assertEquals(0, cache.size());
+
+        cache.put(key("a"), result(1), Duration.ofMinutes(1), Duration.ZERO, cache.generation(CLIENT));
+        assertEquals(1, cache.size());
+    }
+}